@@ -0,0 +1,81 @@
+package fr.gn.derive4j.jackson;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Commits a JDK Flight Recorder event per value, when recording with the events enabled
+// (eg. -XX:StartFlightRecording with a settings file enabling fr.gn.derive4j.jackson.*).
+// Disabled events cost their allocation, which escape analysis usually removes.
+// In a source set of its own, compiled against a JDK with the jdk.jfr API (8u272 and later,
+// or 11 and later), so that the rest of the library builds and runs without it: only
+// loaded, by name, by Instrumentation.
+final class FlightRecorderEvents implements CodecListener {
+  @Override
+  public void serialized(Class<?> adt, String valueConstructor, long nanos) {
+    final Serialized event = new Serialized();
+
+    if (event.isEnabled()) {
+      event.adt = adt;
+      event.valueConstructor = valueConstructor;
+      event.nanos = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void deserialized(Class<?> adt, String valueConstructor, long nanos, long bytes) {
+    final Deserialized event = new Deserialized();
+
+    if (event.isEnabled()) {
+      event.adt = adt;
+      event.valueConstructor = valueConstructor;
+      event.nanos = nanos;
+      event.bytes = bytes;
+      event.commit();
+    }
+  }
+
+  @Name("fr.gn.derive4j.jackson.Serialized")
+  @Label("Value Serialized")
+  @Description("A value written by an instrumented derived serializer")
+  @Category({"Derive4j", "Jackson"})
+  @StackTrace(false)
+  static final class Serialized extends Event {
+    @Label("ADT")
+    Class<?> adt;
+
+    @Label("Value Constructor")
+    String valueConstructor;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+  }
+
+  @Name("fr.gn.derive4j.jackson.Deserialized")
+  @Label("Value Deserialized")
+  @Description("A value read by an instrumented derived deserializer")
+  @Category({"Derive4j", "Jackson"})
+  @StackTrace(false)
+  static final class Deserialized extends Event {
+    @Label("ADT")
+    Class<?> adt;
+
+    @Label("Value Constructor")
+    String valueConstructor;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+  }
+}
@@ -0,0 +1,24 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.Ord;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Set;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// Large functionaljava collections
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Batch {
+  public interface Cases<R> {
+    R batch(List<Integer> ids, Set<String> tags, Option<Person> owner, List<Person> members);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  // Needed to derive the deserializer of Set<String>
+  static final Ord<String> stringOrd = Ord.stringOrd;
+}
@@ -0,0 +1,58 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.bench.Pojos.BatchPojo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+  @Param({"1000", "100000"})
+  public int size;
+
+  private ObjectMapper derivedMapper;
+  private ObjectMapper pojoMapper;
+
+  private Batch batch;
+  private BatchPojo batchPojo;
+  private byte[] batchJson;
+  private byte[] batchPojoJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+    pojoMapper = Samples.pojoMapper();
+
+    batch = Samples.batch(size);
+    batchPojo = Samples.batchPojo(batch);
+    batchJson = derivedMapper.writeValueAsBytes(batch);
+    batchPojoJson = pojoMapper.writeValueAsBytes(batchPojo);
+  }
+
+  @Benchmark
+  public byte[] serializeDerived() throws IOException {
+    return derivedMapper.writeValueAsBytes(batch);
+  }
+
+  @Benchmark
+  public byte[] serializePojo() throws IOException {
+    return pojoMapper.writeValueAsBytes(batchPojo);
+  }
+
+  @Benchmark
+  public Batch deserializeDerived() throws IOException {
+    return derivedMapper.readValue(batchJson, Batch.class);
+  }
+
+  @Benchmark
+  public BatchPojo deserializePojo() throws IOException {
+    return pojoMapper.readValue(batchPojoJson, BatchPojo.class);
+  }
+}
@@ -0,0 +1,18 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.List;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A routing header in front of a large payload, decoded eagerly
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Envelope {
+  public interface Cases<R> {
+    R envelope(String route, List<Person> payload);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+}
@@ -0,0 +1,85 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A wide sum type: sixty constructors sharing a common prefix
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Event {
+  public interface Cases<R> {
+    R event00(int id);
+    R event01(int id);
+    R event02(int id);
+    R event03(int id);
+    R event04(int id);
+    R event05(int id);
+    R event06(int id);
+    R event07(int id);
+    R event08(int id);
+    R event09(int id);
+    R event10(int id);
+    R event11(int id);
+    R event12(int id);
+    R event13(int id);
+    R event14(int id);
+    R event15(int id);
+    R event16(int id);
+    R event17(int id);
+    R event18(int id);
+    R event19(int id);
+    R event20(int id);
+    R event21(int id);
+    R event22(int id);
+    R event23(int id);
+    R event24(int id);
+    R event25(int id);
+    R event26(int id);
+    R event27(int id);
+    R event28(int id);
+    R event29(int id);
+    R event30(int id);
+    R event31(int id);
+    R event32(int id);
+    R event33(int id);
+    R event34(int id);
+    R event35(int id);
+    R event36(int id);
+    R event37(int id);
+    R event38(int id);
+    R event39(int id);
+    R event40(int id);
+    R event41(int id);
+    R event42(int id);
+    R event43(int id);
+    R event44(int id);
+    R event45(int id);
+    R event46(int id);
+    R event47(int id);
+    R event48(int id);
+    R event49(int id);
+    R event50(int id);
+    R event51(int id);
+    R event52(int id);
+    R event53(int id);
+    R event54(int id);
+    R event55(int id);
+    R event56(int id);
+    R event57(int id);
+    R event58(int id);
+    R event59(int id);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  // Looked up by the instances of the ADTs that hold an Event
+  public static JsonSerializer<Event> eventJsonSerializer() {
+    return Events.eventJsonSerializer();
+  }
+
+  public static JsonDeserializer<Event> eventJsonDeserializer() {
+    return Events.eventJsonDeserializer();
+  }
+}
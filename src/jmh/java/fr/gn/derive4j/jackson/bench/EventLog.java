@@ -0,0 +1,17 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.List;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class EventLog {
+  public interface Cases<R> {
+    R eventLog(List<Event> events);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+}
@@ -0,0 +1,52 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.PositionalEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Constructor dispatch on a sum type with sixty constructors
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+  @Param({"1000"})
+  public int size;
+
+  private ObjectMapper derivedMapper;
+  private ObjectMapper positionalMapper;
+
+  private EventLog eventLog;
+  private byte[] eventLogJson;
+  private byte[] eventLogPositionalJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+    positionalMapper = PositionalEncoding.enable(Samples.derivedMapper());
+
+    eventLog = derivedMapper.readValue(Samples.eventLogJson(size), EventLog.class);
+    eventLogJson = derivedMapper.writeValueAsBytes(eventLog);
+    eventLogPositionalJson = positionalMapper.writeValueAsBytes(eventLog);
+  }
+
+  @Benchmark
+  public byte[] serializeDerived() throws IOException {
+    return derivedMapper.writeValueAsBytes(eventLog);
+  }
+
+  @Benchmark
+  public EventLog deserializeDerived() throws IOException {
+    return derivedMapper.readValue(eventLogJson, EventLog.class);
+  }
+
+  @Benchmark
+  public EventLog deserializePositional() throws IOException {
+    return positionalMapper.readValue(eventLogPositionalJson, EventLog.class);
+  }
+}
@@ -0,0 +1,27 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fr.gn.derive4j.jackson.JsonNodeDecoder;
+import fr.gn.derive4j.jackson.JsonNodeEncoder;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A recursive sum type, built as deep trees
+@Data(@Derive(@Instances({JsonSerializer.class
+  , JsonDeserializer.class
+  , JsonNodeEncoder.class
+  , JsonNodeDecoder.class})))
+public abstract class Expr {
+  public interface Cases<R> {
+    R lit(int value);
+    R var(String name);
+    R add(Expr left, Expr right);
+    R mul(Expr left, Expr right);
+    R neg(Expr expr);
+    R ifZero(Expr cond, Expr then, Expr otherwise);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+}
@@ -0,0 +1,167 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import fj.data.Option;
+import fr.gn.derive4j.jackson.JsonNodeDecoder;
+import fr.gn.derive4j.jackson.JsonNodeEncoder;
+import fr.gn.derive4j.jackson.Parsers;
+import fr.gn.derive4j.jackson.PositionalEncoding;
+import fr.gn.derive4j.jackson.bench.Pojos.ExprPojo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExprBenchmark {
+  @Param({"4", "12"})
+  public int depth;
+
+  private ObjectMapper derivedMapper;
+  private ObjectMapper pojoMapper;
+  private ObjectMapper positionalMapper;
+
+  private Expr expr;
+  private ExprPojo exprPojo;
+  private byte[] exprJson;
+  private byte[] exprPositionalJson;
+  private byte[] exprPojoJson;
+
+  private JsonNode exprTree;
+
+  private JsonDeserializer<Option<Expr>> litsOnly;
+
+  private JsonNodeEncoder<Expr> nodeEncoder;
+  private JsonNodeDecoder<Expr> nodeDecoder;
+
+  private JsonSerializer<Expr> serializer;
+  private SerializerProvider provider;
+  private JsonGenerator generator;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+    pojoMapper = Samples.pojoMapper();
+    positionalMapper = PositionalEncoding.enable(Samples.derivedMapper());
+
+    expr = Samples.expr(depth);
+    exprPojo = Samples.exprPojo(expr);
+    exprJson = derivedMapper.writeValueAsBytes(expr);
+    exprPositionalJson = positionalMapper.writeValueAsBytes(expr);
+    exprPojoJson = pojoMapper.writeValueAsBytes(exprPojo);
+
+    exprTree = derivedMapper.valueToTree(expr);
+
+    litsOnly = Exprs.exprJsonFilteredDeserializer("lit");
+
+    nodeEncoder = Exprs.exprJsonNodeEncoder();
+    nodeDecoder = Exprs.exprJsonNodeDecoder();
+
+    serializer = Exprs.exprJsonSerializer();
+    provider = derivedMapper.getSerializerProviderInstance();
+    generator = derivedMapper.getFactory().createGenerator(new OutputStream() {
+      @Override
+      public void write(int b) {}
+
+      @Override
+      public void write(byte[] b, int off, int len) {}
+    });
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    generator.close();
+  }
+
+  @Benchmark
+  public byte[] serializeDerived() throws IOException {
+    return derivedMapper.writeValueAsBytes(expr);
+  }
+
+  @Benchmark
+  public byte[] serializePojo() throws IOException {
+    return pojoMapper.writeValueAsBytes(exprPojo);
+  }
+
+  @Benchmark
+  public Expr deserializeDerived() throws IOException {
+    return derivedMapper.readValue(exprJson, Expr.class);
+  }
+
+  @Benchmark
+  public byte[] serializePositional() throws IOException {
+    return positionalMapper.writeValueAsBytes(expr);
+  }
+
+  @Benchmark
+  public Expr deserializePositional() throws IOException {
+    return positionalMapper.readValue(exprPositionalJson, Expr.class);
+  }
+
+  @Benchmark
+  public ExprPojo deserializePojo() throws IOException {
+    return pojoMapper.readValue(exprPojoJson, ExprPojo.class);
+  }
+
+  // What a router reads: the value constructor only, the rest being skipped
+  @Benchmark
+  public String readValueConstructor() throws IOException {
+    try (JsonParser p = derivedMapper.getFactory().createParser(exprJson)) {
+      p.nextToken();
+      return Exprs.exprJsonValueConstructor(p);
+    }
+  }
+
+  // Filtered out, hence skipped without decoding
+  @Benchmark
+  public Option<Expr> deserializeFiltered() throws IOException {
+    try (JsonParser p = derivedMapper.getFactory().createParser(exprJson)) {
+      final DeserializationContext ctxt = Parsers.deserializationContext(derivedMapper, p);
+      p.nextToken();
+      return litsOnly.deserialize(p, ctxt);
+    }
+  }
+
+  // Through a token buffer
+  @Benchmark
+  public JsonNode valueToTree() {
+    return derivedMapper.valueToTree(expr);
+  }
+
+  @Benchmark
+  public JsonNode encodeTree() {
+    return nodeEncoder.encode(expr, JsonNodeFactory.instance);
+  }
+
+  // Through a tree parser
+  @Benchmark
+  public Expr treeToValue() throws IOException {
+    return derivedMapper.treeToValue(exprTree, Expr.class);
+  }
+
+  @Benchmark
+  public Expr decodeTree() throws IOException {
+    return nodeDecoder.decode(exprTree);
+  }
+
+  // The serializer alone, writing into a reused generator that discards its
+  // output: the GC profiler should report no allocation at all
+  @Benchmark
+  public void serializeDerivedToGenerator() throws IOException {
+    serializer.serialize(expr, generator, provider);
+  }
+}
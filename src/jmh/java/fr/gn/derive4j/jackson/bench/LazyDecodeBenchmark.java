@@ -0,0 +1,51 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.P;
+import fj.data.List;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Reading the header of an envelope, with its payload decoded eagerly or lazily
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyDecodeBenchmark {
+  @Param({"10", "1000"})
+  public int size;
+
+  private ObjectMapper derivedMapper;
+
+  private byte[] envelopeJson;
+  private byte[] lazyEnvelopeJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+
+    final List<Person> payload = List.range(0, size).map(Samples::person);
+
+    envelopeJson = derivedMapper.writeValueAsBytes(Envelopes.envelope("route", payload));
+    lazyEnvelopeJson = derivedMapper.writeValueAsBytes(LazyEnvelopes.lazyEnvelope("route", P.p(payload)));
+  }
+
+  @Benchmark
+  public String routeEager() throws IOException {
+    return Envelopes.getRoute(derivedMapper.readValue(envelopeJson, Envelope.class));
+  }
+
+  @Benchmark
+  public String routeLazy() throws IOException {
+    return LazyEnvelopes.getRoute(derivedMapper.readValue(lazyEnvelopeJson, LazyEnvelope.class));
+  }
+
+  @Benchmark
+  public List<Person> payloadLazy() throws IOException {
+    return LazyEnvelopes.getPayload(derivedMapper.readValue(lazyEnvelopeJson, LazyEnvelope.class))._1();
+  }
+}
@@ -0,0 +1,19 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.P1;
+import fj.data.List;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// The same envelope, with a payload decoded on first access
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class LazyEnvelope {
+  public interface Cases<R> {
+    R lazyEnvelope(String route, P1<List<Person>> payload);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+}
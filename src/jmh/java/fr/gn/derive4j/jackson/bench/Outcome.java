@@ -0,0 +1,28 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// Nullary constructors only
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Outcome {
+  public interface Cases<R> {
+    R ok();
+    R stale();
+    R failed();
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  // Looked up by the instances of the ADTs that hold a Outcome
+  public static JsonSerializer<Outcome> outcomeJsonSerializer() {
+    return Outcomes.outcomeJsonSerializer();
+  }
+
+  public static JsonDeserializer<Outcome> outcomeJsonDeserializer() {
+    return Outcomes.outcomeJsonDeserializer();
+  }
+}
@@ -0,0 +1,69 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.data.List;
+import fr.gn.derive4j.jackson.ParallelArrayReader;
+import fr.gn.derive4j.jackson.SequenceReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Scaling of parallel array decoding with the number of workers, against a sequential read
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelDecodeBenchmark {
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  @Param({"100000"})
+  public int size;
+
+  private ObjectMapper derivedMapper;
+  private ForkJoinPool pool;
+
+  private byte[] personsJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+    pool = new ForkJoinPool(parallelism);
+
+    final java.util.List<Person> persons = new java.util.ArrayList<>(size);
+    for (int i = 0; i < size; i++)
+      persons.add(Samples.person(i));
+
+    personsJson = derivedMapper.writeValueAsBytes(persons);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public List<Person> readSequential() throws IOException {
+    final List.Buffer<Person> persons = new List.Buffer<>();
+
+    try (MappingIterator<Person> values = SequenceReader.readElements(derivedMapper
+      , Persons.personJsonDeserializer()
+      , new ByteArrayInputStream(personsJson))) {
+      while (values.hasNextValue())
+        persons.snoc(values.nextValue());
+    }
+
+    return persons.toList();
+  }
+
+  @Benchmark
+  public List<Person> readParallel() throws IOException {
+    return ParallelArrayReader.readList(derivedMapper, Persons.personJsonDeserializer(), personsJson, pool);
+  }
+}
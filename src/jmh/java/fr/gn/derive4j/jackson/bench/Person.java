@@ -0,0 +1,35 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.Option;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+import java.time.LocalDate;
+
+// A flat record: one constructor, scalar fields only
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Person {
+  public interface Cases<R> {
+    R person(String name
+      , int age
+      , String email
+      , double score
+      , boolean active
+      , LocalDate birthDate
+      , Option<String> nickname);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  // Looked up by the instances of the ADTs that hold a Person
+  public static JsonSerializer<Person> personJsonSerializer() {
+    return Persons.personJsonSerializer();
+  }
+
+  public static JsonDeserializer<Person> personJsonDeserializer() {
+    return Persons.personJsonDeserializer();
+  }
+}
@@ -0,0 +1,84 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.JsonCodec;
+import fr.gn.derive4j.jackson.PositionalEncoding;
+import fr.gn.derive4j.jackson.bench.Pojos.PersonPojo;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonBenchmark {
+  private ObjectMapper derivedMapper;
+  private ObjectMapper pojoMapper;
+  private ObjectMapper positionalMapper;
+  private JsonCodec<Person> codec;
+
+  private Person person;
+  private PersonPojo personPojo;
+  private byte[] personJson;
+  private byte[] personPositionalJson;
+  private byte[] personPojoJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+    pojoMapper = Samples.pojoMapper();
+    positionalMapper = PositionalEncoding.enable(Samples.derivedMapper());
+    codec = Persons.personJsonCodec(derivedMapper);
+
+    person = Samples.person(42);
+    personPojo = Samples.personPojo(person);
+    personJson = derivedMapper.writeValueAsBytes(person);
+    personPositionalJson = positionalMapper.writeValueAsBytes(person);
+    personPojoJson = pojoMapper.writeValueAsBytes(personPojo);
+  }
+
+  @Benchmark
+  public byte[] serializeDerived() throws IOException {
+    return derivedMapper.writeValueAsBytes(person);
+  }
+
+  // The same encoding, through the codec rather than the mapper
+  @Benchmark
+  public byte[] serializeCodec() throws IOException {
+    return codec.toBytes(person);
+  }
+
+  @Benchmark
+  public byte[] serializePojo() throws IOException {
+    return pojoMapper.writeValueAsBytes(personPojo);
+  }
+
+  @Benchmark
+  public Person deserializeDerived() throws IOException {
+    return derivedMapper.readValue(personJson, Person.class);
+  }
+
+  @Benchmark
+  public Person deserializeCodec() throws IOException {
+    return codec.readFrom(personJson);
+  }
+
+  @Benchmark
+  public byte[] serializePositional() throws IOException {
+    return positionalMapper.writeValueAsBytes(person);
+  }
+
+  @Benchmark
+  public Person deserializePositional() throws IOException {
+    return positionalMapper.readValue(personPositionalJson, Person.class);
+  }
+
+  @Benchmark
+  public PersonPojo deserializePojo() throws IOException {
+    return pojoMapper.readValue(personPojoJson, PersonPojo.class);
+  }
+}
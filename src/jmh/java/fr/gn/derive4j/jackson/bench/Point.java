@@ -0,0 +1,32 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A small value with structural equality: shared when read with Deduplication
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Point {
+  public interface Cases<R> {
+    R point(int x, int y);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  @Override
+  public abstract boolean equals(Object obj);
+
+  @Override
+  public abstract int hashCode();
+
+  // Looked up by the instances of the ADTs that hold a Point
+  public static JsonSerializer<Point> pointJsonSerializer() {
+    return Points.pointJsonSerializer();
+  }
+
+  public static JsonDeserializer<Point> pointJsonDeserializer() {
+    return Points.pointJsonDeserializer();
+  }
+}
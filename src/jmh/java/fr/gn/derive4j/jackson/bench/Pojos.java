@@ -0,0 +1,69 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+// Mutable beans mirroring the sample ADTs, mapped by Jackson's reflective
+// BeanSerializer / BeanDeserializer
+public final class Pojos {
+  private Pojos() {}
+
+  public static final class PersonPojo {
+    public String name;
+    public int age;
+    public String email;
+    public double score;
+    public boolean active;
+    public LocalDate birthDate;
+    public String nickname;
+  }
+
+  @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "_tag")
+  @JsonSubTypes({
+    @JsonSubTypes.Type(value = Lit.class, name = "lit")
+    , @JsonSubTypes.Type(value = Var.class, name = "var")
+    , @JsonSubTypes.Type(value = Add.class, name = "add")
+    , @JsonSubTypes.Type(value = Mul.class, name = "mul")
+    , @JsonSubTypes.Type(value = Neg.class, name = "neg")
+    , @JsonSubTypes.Type(value = IfZero.class, name = "ifZero")})
+  public abstract static class ExprPojo {}
+
+  public static final class Lit extends ExprPojo {
+    public int value;
+  }
+
+  public static final class Var extends ExprPojo {
+    public String name;
+  }
+
+  public static final class Add extends ExprPojo {
+    public ExprPojo left;
+    public ExprPojo right;
+  }
+
+  public static final class Mul extends ExprPojo {
+    public ExprPojo left;
+    public ExprPojo right;
+  }
+
+  public static final class Neg extends ExprPojo {
+    public ExprPojo expr;
+  }
+
+  public static final class IfZero extends ExprPojo {
+    public ExprPojo cond;
+    public ExprPojo then;
+    public ExprPojo otherwise;
+  }
+
+  public static final class BatchPojo {
+    public List<Integer> ids;
+    public Set<String> tags;
+    public PersonPojo owner;
+    public List<PersonPojo> members;
+  }
+}
@@ -0,0 +1,27 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.Option;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A sensor reading: few distinct sensors, places, outcomes and units among many readings
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Reading {
+  public interface Cases<R> {
+    R reading(String sensor, Point location, Outcome outcome, Option<String> unit, double value);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  // Looked up by the instances of the ADTs that hold a Reading
+  public static JsonSerializer<Reading> readingJsonSerializer() {
+    return Readings.readingJsonSerializer();
+  }
+
+  public static JsonDeserializer<Reading> readingJsonDeserializer() {
+    return Readings.readingJsonDeserializer();
+  }
+}
@@ -0,0 +1,149 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import fj.Ord;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Set;
+import fr.gn.derive4j.jackson.bench.Pojos.*;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+// Fixtures shared by the benchmarks: the same data as ADT values and as POJOs
+final class Samples {
+  private Samples() {}
+
+  // Registers every derived instance of the package, generated by the processor
+  static ObjectMapper derivedMapper() {
+    return new ObjectMapper().registerModule(new DerivedJacksonModule());
+  }
+
+  // Plain Jackson 2.8 has no java.time support: reuse the library's codecs
+  static ObjectMapper pojoMapper() {
+    final SimpleModule module = new SimpleModule("pojo")
+      .addSerializer(LocalDate.class, JavaTypes.localDateSerializer)
+      .addDeserializer(LocalDate.class, JavaTypes.localDateDeserializer);
+
+    return new ObjectMapper().registerModule(module);
+  }
+
+  static Person person(int i) {
+    return Persons.person("name-" + i
+      , 20 + i % 50
+      , "name-" + i + "@example.org"
+      , i * 0.5
+      , i % 2 == 0
+      , LocalDate.of(1950 + i % 50, 1 + i % 12, 1 + i % 28)
+      , i % 3 == 0 ? Option.none() : Option.some("nick-" + i));
+  }
+
+  // A complete tree of the given depth, going through every constructor
+  static Expr expr(int depth) {
+    if (depth == 0)
+      return Exprs.lit(1);
+
+    switch (depth % 4) {
+      case 0: return Exprs.add(expr(depth - 1), expr(depth - 1));
+      case 1: return Exprs.mul(expr(depth - 1), Exprs.neg(expr(depth - 1)));
+      case 2: return Exprs.ifZero(Exprs.var("x" + depth), expr(depth - 1), expr(depth - 1));
+      default: return Exprs.add(Exprs.lit(depth), expr(depth - 1));
+    }
+  }
+
+  static Batch batch(int size) {
+    return Batches.batch(List.range(0, size)
+      , Set.iterableSet(Ord.stringOrd, List.range(0, size).map(i -> "tag-" + i))
+      , Option.some(person(size))
+      , List.range(0, size / 10).map(Samples::person));
+  }
+
+  // Readings of 100 sensors, at 70 places, each taken apart
+  static Snapshot snapshot(int size) {
+    return Snapshots.snapshot(1_500_000_000_000L, List.range(0, size).map(i -> Readings.reading("sensor-" + i % 100
+      , Points.point(i % 10, i % 7)
+      , i % 3 == 0 ? Outcomes.ok() : i % 3 == 1 ? Outcomes.stale() : Outcomes.failed()
+      , i % 4 == 0 ? Option.none() : Option.some("celsius")
+      , i * 0.1)));
+  }
+
+  // Goes through every Event constructor in turn
+  static String eventLogJson(int size) {
+    final StringBuilder json = new StringBuilder("{\"_tag\":\"eventLog\",\"events\":[");
+
+    for (int i = 0; i < size; i++)
+      json
+        .append(i == 0 ? "" : ",")
+        .append(String.format("{\"_tag\":\"event%02d\",\"id\":%d}", i % 60, i));
+
+    return json.append("]}").toString();
+  }
+
+  static PersonPojo personPojo(Person person) {
+    final PersonPojo pojo = new PersonPojo();
+    pojo.name = Persons.getName(person);
+    pojo.age = Persons.getAge(person);
+    pojo.email = Persons.getEmail(person);
+    pojo.score = Persons.getScore(person);
+    pojo.active = Persons.getActive(person);
+    pojo.birthDate = Persons.getBirthDate(person);
+    pojo.nickname = Persons.getNickname(person).toNull();
+    return pojo;
+  }
+
+  static ExprPojo exprPojo(Expr expr) {
+    return expr.match(new Expr.Cases<ExprPojo>() {
+      public ExprPojo lit(int value) {
+        final Lit pojo = new Lit();
+        pojo.value = value;
+        return pojo;
+      }
+
+      public ExprPojo var(String name) {
+        final Var pojo = new Var();
+        pojo.name = name;
+        return pojo;
+      }
+
+      public ExprPojo add(Expr left, Expr right) {
+        final Add pojo = new Add();
+        pojo.left = exprPojo(left);
+        pojo.right = exprPojo(right);
+        return pojo;
+      }
+
+      public ExprPojo mul(Expr left, Expr right) {
+        final Mul pojo = new Mul();
+        pojo.left = exprPojo(left);
+        pojo.right = exprPojo(right);
+        return pojo;
+      }
+
+      public ExprPojo neg(Expr expr) {
+        final Neg pojo = new Neg();
+        pojo.expr = exprPojo(expr);
+        return pojo;
+      }
+
+      public ExprPojo ifZero(Expr cond, Expr then, Expr otherwise) {
+        final IfZero pojo = new IfZero();
+        pojo.cond = exprPojo(cond);
+        pojo.then = exprPojo(then);
+        pojo.otherwise = exprPojo(otherwise);
+        return pojo;
+      }
+    });
+  }
+
+  static BatchPojo batchPojo(Batch batch) {
+    final BatchPojo pojo = new BatchPojo();
+    pojo.ids = new ArrayList<>(Batches.getIds(batch).toJavaList());
+    pojo.tags = new TreeSet<>(Batches.getTags(batch).toList().toJavaList());
+    pojo.owner = Batches.getOwner(batch).map(Samples::personPojo).toNull();
+    pojo.members = new ArrayList<>(Batches.getMembers(batch).map(Samples::personPojo).toJavaList());
+    return pojo;
+  }
+}
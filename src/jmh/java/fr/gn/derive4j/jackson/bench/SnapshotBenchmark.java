@@ -0,0 +1,78 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.Deduplication;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Reading a large, repetitive snapshot with and without Deduplication: the gc profiler gives
+// the allocation rate, and retained the heap retained by a snapshot once read, as its
+// secondary result retainedBytes.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+  @Param({"100000"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean deduplicated;
+
+  private ObjectMapper derivedMapper;
+
+  private byte[] snapshotJson;
+
+  @Setup
+  public void setup() throws IOException {
+    derivedMapper = Samples.derivedMapper();
+
+    if (deduplicated)
+      Deduplication.enable(derivedMapper, Deduplication.of(1 << 12, 1 << 12));
+
+    snapshotJson = derivedMapper.writeValueAsBytes(Samples.snapshot(size));
+  }
+
+  @Benchmark
+  public Snapshot deserialize() throws IOException {
+    return derivedMapper.readValue(snapshotJson, Snapshot.class);
+  }
+
+  // Aux counters are only reported in these modes.
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+  public Snapshot retained(Retention retention) throws IOException {
+    return deserialize();
+  }
+
+  // Measured before each iteration, outside of the timings: the used heap with a snapshot
+  // held, less the used heap without, both after full collections.
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Retention {
+    public long retainedBytes;
+
+    @Setup(Level.Iteration)
+    public void measure(SnapshotBenchmark benchmark) throws IOException {
+      final long before = usedHeap();
+      final Snapshot held = benchmark.deserialize();
+      final long after = usedHeap();
+
+      // Keeps the snapshot reachable until measured.
+      retainedBytes = held == null ? 0 : after - before;
+    }
+  }
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+
+    for (int i = 0; i < 3; i++)
+      System.gc();
+
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,140 @@
+package fr.gn.derive4j.jackson.bench;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Arrays of timestamps, through the instances of JavaTypes and through DateTimeFormatter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeBenchmark {
+  @Param({"1000"})
+  public int size;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private List<Instant> instants;
+  private List<OffsetDateTime> offsetDateTimes;
+  private byte[] instantsJson;
+  private byte[] offsetDateTimesJson;
+
+  @Setup
+  public void setup() throws IOException {
+    instants = new ArrayList<>(size);
+    offsetDateTimes = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      final Instant instant = Instant.ofEpochSecond(1500000000L + i * 7919L, i * 1000000L);
+
+      instants.add(instant);
+      offsetDateTimes.add(instant.atOffset(ZoneOffset.ofHours(i % 24 - 12)));
+    }
+
+    instantsJson = write(instants, JavaTypes.instantSerializer);
+    offsetDateTimesJson = write(offsetDateTimes, JavaTypes.offsetDateTimeSerializer);
+  }
+
+  @Benchmark
+  public byte[] writeInstants() throws IOException {
+    return write(instants, JavaTypes.instantSerializer);
+  }
+
+  @Benchmark
+  public byte[] writeInstantsFormatter() throws IOException {
+    return write(instants, (value, gen) -> gen.writeString(DateTimeFormatter.ISO_INSTANT.format(value)));
+  }
+
+  @Benchmark
+  public List<Instant> readInstants() throws IOException {
+    return read(instantsJson, JavaTypes.instantDeserializer);
+  }
+
+  @Benchmark
+  public List<Instant> readInstantsFormatter() throws IOException {
+    return read(instantsJson, p -> DateTimeFormatter.ISO_INSTANT.parse(p.getValueAsString(), Instant::from));
+  }
+
+  @Benchmark
+  public byte[] writeOffsetDateTimes() throws IOException {
+    return write(offsetDateTimes, JavaTypes.offsetDateTimeSerializer);
+  }
+
+  @Benchmark
+  public byte[] writeOffsetDateTimesFormatter() throws IOException {
+    return write(offsetDateTimes, (value, gen) -> gen.writeString(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value)));
+  }
+
+  @Benchmark
+  public List<OffsetDateTime> readOffsetDateTimes() throws IOException {
+    return read(offsetDateTimesJson, JavaTypes.offsetDateTimeDeserializer);
+  }
+
+  @Benchmark
+  public List<OffsetDateTime> readOffsetDateTimesFormatter() throws IOException {
+    return read(offsetDateTimesJson
+      , p -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(p.getValueAsString(), OffsetDateTime::from));
+  }
+
+  private interface Writer<T> {
+    void write(T value, JsonGenerator gen) throws IOException;
+  }
+
+  private interface Reader<T> {
+    T read(JsonParser p) throws IOException;
+  }
+
+  private <T> byte[] write(List<T> values, JsonSerializer<T> serializer) throws IOException {
+    return write(values, (value, gen) -> serializer.serialize(value, gen, mapper.getSerializerProvider()));
+  }
+
+  private <T> byte[] write(List<T> values, Writer<T> writer) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+      gen.writeStartArray();
+
+      for (T value : values)
+        writer.write(value, gen);
+
+      gen.writeEndArray();
+    }
+
+    return out.toByteArray();
+  }
+
+  private <T> List<T> read(byte[] json, JsonDeserializer<T> deserializer) throws IOException {
+    return read(json, p -> deserializer.deserialize(p, mapper.getDeserializationContext()));
+  }
+
+  private <T> List<T> read(byte[] json, Reader<T> reader) throws IOException {
+    final List<T> values = new ArrayList<>(size);
+
+    try (JsonParser p = mapper.getFactory().createParser(json)) {
+      p.nextToken();
+
+      while (p.nextToken() != JsonToken.END_ARRAY)
+        values.add(reader.read(p));
+    }
+
+    return values;
+  }
+}
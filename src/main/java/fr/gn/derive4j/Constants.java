@@ -1,5 +1,10 @@
+
+
 package fr.gn.derive4j;
 
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
 public final class Constants {
   private Constants() {}
 
@@ -8,7 +13,7 @@ public final class Constants {
     private FieldNameFor() {}
 
     public static final String
-      valueConstructor = "_tag", value = "value";
+      valueConstructor = "_tag", value = "value", _1 = "_1", _2 = "_2";
   }
 
   public static final class FieldValueFor {
@@ -29,5 +34,80 @@ public final class Constants {
         leftValueConstructor = "left"
         , rightValueConstructor = "right";
     }
+
+    public static final class Validation {
+      private Validation() {}
+
+      public static final String
+        failValueConstructor = "fail"
+        , successValueConstructor = "success";
+    }
+  }
+
+  // Constructor indexes of the positional encoding, in declaration order
+  public static final class ValueConstructorIndexFor {
+    private ValueConstructorIndexFor() {}
+
+    public static final class Option {
+      private Option() {}
+
+      public static final int
+        noneValueConstructor = 0
+        , someValueConstructor = 1;
+    }
+
+    public static final class Either {
+      private Either() {}
+
+      public static final int
+        leftValueConstructor = 0
+        , rightValueConstructor = 1;
+    }
+
+    public static final class Validation {
+      private Validation() {}
+
+      public static final int
+        failValueConstructor = 0
+        , successValueConstructor = 1;
+    }
+  }
+
+  public static final class EncodedFieldNameFor {
+    private EncodedFieldNameFor() {}
+
+    public static final SerializableString
+      valueConstructor = new SerializedString(FieldNameFor.valueConstructor)
+      , value = new SerializedString(FieldNameFor.value)
+      , _1 = new SerializedString(FieldNameFor._1)
+      , _2 = new SerializedString(FieldNameFor._2);
+  }
+
+  public static final class EncodedFieldValueFor {
+    private EncodedFieldValueFor() {}
+
+    public static final class Option {
+      private Option() {}
+
+      public static final SerializableString
+        someValueConstructor = new SerializedString(FieldValueFor.Option.someValueConstructor)
+        , noneValueConstructor = new SerializedString(FieldValueFor.Option.noneValueConstructor);
+    }
+
+    public static final class Either {
+      private Either() {}
+
+      public static final SerializableString
+        leftValueConstructor = new SerializedString(FieldValueFor.Either.leftValueConstructor)
+        , rightValueConstructor = new SerializedString(FieldValueFor.Either.rightValueConstructor);
+    }
+
+    public static final class Validation {
+      private Validation() {}
+
+      public static final SerializableString
+        failValueConstructor = new SerializedString(FieldValueFor.Validation.failValueConstructor)
+        , successValueConstructor = new SerializedString(FieldValueFor.Validation.successValueConstructor);
+    }
   }
 }
@@ -0,0 +1,11 @@
+package fr.gn.derive4j.jackson;
+
+// Told about every value written or read by instrumented codecs (see Instrumentation),
+// on the thread doing it: implementations must be thread-safe, and cheap.
+// Times and sizes include those of the values nested in the value. Only sizes read are
+// known, from the parser's offsets: -1 for input without any (eg. token buffers).
+public interface CodecListener {
+  void serialized(Class<?> adt, String valueConstructor, long nanos);
+
+  void deserialized(Class<?> adt, String valueConstructor, long nanos, long bytes);
+}
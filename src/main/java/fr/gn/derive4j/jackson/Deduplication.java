@@ -0,0 +1,140 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Opt-in canonicalization of the values read by an ObjectMapper (or an ObjectReader), so that
+// the many equal values of a large document share a single instance once read:
+// - short strings, read by JavaTypes.stringDeserializer, through a table of strings: those of
+//   the fields of derived ADTs, and of the String type arguments of fj and derived types
+//   (eg. Option<String>) through InstancesModule. Other strings (eg. of POJOs or Java
+//   collections) are read by Jackson's own deserializers, and left as read,
+// - small values of the derived deserializers, through a table of values: those of ADTs
+//   declaring an abstract equals (derived structurally by derive4j), with one to four fields
+//   of primitive, boxed or String types.
+// Nullary constructors and Option.none are singletons, whatever the configuration.
+// eg. `Deduplication.enable(mapper, Deduplication.of(1 << 16, 1 << 14))`.
+// Both tables are bounded and lossy: a value only replaces the one in its slot, and equal
+// values may still be read apart. They are shared by every thread reading with the
+// configuration, without locks: the values are immutable, and safely published by their
+// final fields.
+public final class Deduplication {
+  public static final Object attribute = Deduplication.class;
+
+  // Longer strings are rarely repeated, and costly to compare.
+  public static final int maxStringLength = 64;
+
+  private final String[] strings;
+  private final Object[] values;
+
+  private Deduplication(int stringTableSize, int valueTableSize) {
+    strings = new String[tableSize(stringTableSize)];
+    values = new Object[tableSize(valueTableSize)];
+  }
+
+  // Sizes are rounded up to powers of two. A size of zero leaves the strings or values as read.
+  public static Deduplication of(int stringTableSize, int valueTableSize) {
+    return new Deduplication(stringTableSize, valueTableSize);
+  }
+
+  public static ObjectMapper enable(ObjectMapper mapper, Deduplication deduplication) {
+    return mapper.setConfig(mapper.getDeserializationConfig().withAttribute(attribute, deduplication));
+  }
+
+  public static ObjectReader enable(ObjectReader reader, Deduplication deduplication) {
+    return reader.withAttribute(attribute, deduplication);
+  }
+
+  // The string of the current token of p, as JsonParser.getValueAsString.
+  public static String string(JsonParser p, DeserializationContext ctxt) throws IOException {
+    final Deduplication deduplication = configured(ctxt);
+
+    return deduplication == null || !p.hasToken(JsonToken.VALUE_STRING)
+      ? p.getValueAsString()
+      : deduplication.intern(p);
+  }
+
+  // Called by the derived deserializers on the small values they read.
+  public static <T> T value(DeserializationContext ctxt, T value) {
+    final Deduplication deduplication = configured(ctxt);
+
+    return deduplication == null ? value : deduplication.intern(value);
+  }
+
+  public void clear() {
+    Arrays.fill(strings, null);
+    Arrays.fill(values, null);
+  }
+
+  private static Deduplication configured(DeserializationContext ctxt) {
+    return ctxt == null ? null : (Deduplication) ctxt.getAttribute(attribute);
+  }
+
+  // Compares the characters of the token to the string in its slot, allocating nothing on a hit.
+  private String intern(JsonParser p) throws IOException {
+    final int length = p.getTextLength();
+
+    if (strings.length == 0 || length > maxStringLength)
+      return p.getText();
+
+    final char[] chars = p.getTextCharacters();
+    final int offset = p.getTextOffset();
+
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++)
+      hash = 31 * hash + chars[i];
+
+    final int slot = spread(hash) & (strings.length - 1);
+    final String interned = strings[slot];
+
+    if (interned != null && sameChars(interned, chars, offset, length))
+      return interned;
+
+    final String string = new String(chars, offset, length);
+    strings[slot] = string;
+    return string;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T intern(T value) {
+    if (values.length == 0)
+      return value;
+
+    final int slot = spread(value.hashCode()) & (values.length - 1);
+    final Object interned = values[slot];
+
+    if (interned != null && interned.getClass() == value.getClass() && interned.equals(value))
+      return (T) interned;
+
+    values[slot] = value;
+    return value;
+  }
+
+  private static boolean sameChars(String string, char[] chars, int offset, int length) {
+    if (string.length() != length)
+      return false;
+
+    for (int i = 0; i < length; i++)
+      if (string.charAt(i) != chars[offset + i])
+        return false;
+
+    return true;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int tableSize(int size) {
+    if (size < 0 || size > 1 << 30)
+      throw new IllegalArgumentException("Invalid table size: " + size);
+
+    return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+  }
+}
@@ -0,0 +1,272 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Writes the values of a serializer from their encoded form, kept from the first time they
+// were written: derive4j values are immutable, so the same value always encodes the same.
+// eg. for reference data written over and over,
+// `module.addSerializer(Config.class, EncodedValueCache.of(Configs.configJsonSerializer(), 1024))`.
+// Values are looked up by identity, and weakly referenced: equal values built apart are
+// encoded apart, and entries go once their value is collected.
+// An encoding is only written again under the serialization config it was made with
+// (compared by identity, eg. that of one mapper, or of one writer): a value written under
+// another one (another mapper, a writer with other attributes or a view...) is encoded
+// again, replacing it. Sharing a cache between mappers is correct, but costs misses.
+// At most maxSize entries are kept: a full cache replaces them in CLOCK (second chance)
+// order, as InstanceCache does, under a lock only taken for new entries.
+// JSON text generators (without a pretty printer, nor features changing the text) are given
+// the encoded text as a raw value; others (eg. binary formats, token buffers) replay its tokens.
+// The derived serializers always write their nullary constructors from pre-encoded text that way.
+@SuppressWarnings("serial")
+public final class EncodedValueCache<T> extends StdSerializer<T> {
+  private static final JsonFactory textFactory = new JsonFactory();
+
+  // The features of the generators the encoded text is rendered with.
+  private static final int textFeatures = JsonGenerator.Feature.QUOTE_FIELD_NAMES.getMask()
+    | JsonGenerator.Feature.QUOTE_NON_NUMERIC_NUMBERS.getMask()
+    | JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS.getMask()
+    | JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN.getMask()
+    | JsonGenerator.Feature.ESCAPE_NON_ASCII.getMask();
+
+  private static final int defaultTextFeatures = JsonGenerator.Feature.collectDefaults() & textFeatures;
+
+  private final JsonSerializer<T> ser;
+
+  private final ConcurrentMap<Object, Entry> cache = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  // The entries in their CLOCK slots, guarded by itself.
+  private final Entry[] clock;
+  private int hand;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private EncodedValueCache(JsonSerializer<T> ser, int maxSize) {
+    super(ser.handledType());
+
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("Non positive cache size: " + maxSize);
+
+    this.ser = ser;
+    this.clock = new Entry[maxSize];
+  }
+
+  public static <T> EncodedValueCache<T> of(JsonSerializer<T> ser, int maxSize) {
+    return new EncodedValueCache<>(ser, maxSize);
+  }
+
+  // Whether gen writes raw values as is, and would write the encoded text the same.
+  public static boolean canWriteRaw(JsonGenerator gen) {
+    return gen instanceof JsonGeneratorImpl
+      && gen.getPrettyPrinter() == null
+      && gen.getCharacterEscapes() == null
+      && (gen.getFeatureMask() & textFeatures) == defaultTextFeatures;
+  }
+
+  @Override
+  public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    expungeCollected();
+
+    final SerializationConfig config = provider.getConfig();
+    final boolean positional = PositionalEncoding.isEnabled(provider);
+    final Entry cached = cache.get(new Lookup(value));
+    final Encoded encoded = cached == null ? null : cached.encoded(positional);
+
+    if (encoded != null && encoded.config == config) {
+      if (!cached.referenced)
+        cached.referenced = true;
+
+      hits.increment();
+      encoded.writeTo(gen);
+      return;
+    }
+
+    misses.increment();
+
+    final TokenBuffer tokens = new TokenBuffer(gen.getCodec(), false);
+    ser.serialize(value, tokens, provider);
+
+    final Encoded fresh = new Encoded(config, tokens);
+    final Entry entry = cached != null ? cached : insert(value);
+    entry.setEncoded(positional, fresh);
+
+    fresh.writeTo(gen);
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    expungeCollected();
+    return cache.size();
+  }
+
+  public void clear() {
+    synchronized (clock) {
+      cache.clear();
+      Arrays.fill(clock, null);
+    }
+  }
+
+  // The entry of another thread if it was first, else a new one, replacing the entry of
+  // its CLOCK slot.
+  private Entry insert(Object value) {
+    synchronized (clock) {
+      final Entry previous = cache.get(new Lookup(value));
+
+      if (previous != null)
+        return previous;
+
+      final Entry entry = new Entry(value, collected);
+      final int slot = replacedSlot();
+      final Entry replaced = clock[slot];
+
+      if (replaced != null)
+        cache.remove(replaced, replaced);
+
+      clock[slot] = entry;
+      cache.put(entry, entry);
+      return entry;
+    }
+  }
+
+  // Entries of collected values are replaced first.
+  private int replacedSlot() {
+    while (true) {
+      final int slot = hand;
+      final Entry entry = clock[slot];
+
+      hand = slot + 1 == clock.length ? 0 : slot + 1;
+
+      if (entry == null || !entry.referenced || entry.get() == null)
+        return slot;
+
+      entry.referenced = false;
+    }
+  }
+
+  // Their slots are left to the hand of the clock.
+  private void expungeCollected() {
+    for (Object entry = collected.poll(); entry != null; entry = collected.poll())
+      cache.remove(entry, entry);
+  }
+
+  // The tokens of a value under a config, and their text once a raw value is written.
+  private static final class Encoded {
+    private final SerializationConfig config;
+    private final TokenBuffer tokens;
+    private volatile SerializedString text;
+
+    Encoded(SerializationConfig config, TokenBuffer tokens) {
+      this.config = config;
+      this.tokens = tokens;
+    }
+
+    void writeTo(JsonGenerator gen) throws IOException {
+      if (canWriteRaw(gen))
+        gen.writeRawValue(text());
+      else
+        tokens.serialize(gen);
+    }
+
+    private SerializedString text() throws IOException {
+      SerializedString text = this.text;
+
+      if (text == null) {
+        final StringWriter out = new StringWriter();
+
+        try (JsonGenerator textGen = textFactory.createGenerator(out)) {
+          tokens.serialize(textGen);
+        }
+
+        this.text = text = new SerializedString(out.toString());
+      }
+
+      return text;
+    }
+  }
+
+  // Keyed by the identity of its value, held weakly. Both encodings of the value may be kept.
+  private static final class Entry extends WeakReference<Object> {
+    private final int hash;
+
+    private volatile Encoded named;
+    private volatile Encoded positional;
+
+    // Set by hits, cleared by the hand of the clock.
+    volatile boolean referenced;
+
+    Entry(Object value, ReferenceQueue<Object> collected) {
+      super(value, collected);
+      this.hash = System.identityHashCode(value);
+    }
+
+    Encoded encoded(boolean positional) {
+      return positional ? this.positional : named;
+    }
+
+    void setEncoded(boolean positional, Encoded encoded) {
+      if (positional)
+        this.positional = encoded;
+      else
+        named = encoded;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+
+      final Object value = get();
+
+      return value != null
+        && (o instanceof Entry && ((Entry) o).get() == value || o instanceof Lookup && ((Lookup) o).value == value);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class Lookup {
+    private final Object value;
+
+    Lookup(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Entry ? o.equals(this) : o instanceof Lookup && ((Lookup) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(value);
+    }
+  }
+}
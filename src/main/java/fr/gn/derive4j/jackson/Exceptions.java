@@ -0,0 +1,12 @@
+package fr.gn.derive4j.jackson;
+
+public final class Exceptions {
+  private Exceptions() {}
+
+  // Rethrows a checked exception from code that cannot declare it, such as a derive4j visitor,
+  // so that it reaches the caller unchanged.
+  @SuppressWarnings("unchecked")
+  public static <X extends Throwable> RuntimeException sneakyThrow(Throwable t) throws X {
+    throw (X) t;
+  }
+}
@@ -0,0 +1,99 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.util.Arrays;
+
+// The frames of the values being written or read by the codecs of self-recursive ADTs
+// once they are nested deeper than recursionLimit: kept on the heap rather than on the
+// call stack, so that the depth of the input is only limited by memory.
+// A frame holds a value (or the fields read so far), the index of its value constructor,
+// a position in its fields and, when reading, the parser and encoding of the value; for
+// instrumented codecs, where the value started as well.
+public final class ExplicitStack {
+  // Depth up to which the codecs recurse: shallow values never use a stack.
+  public static final int recursionLimit =
+    Integer.getInteger("fr.gn.derive4j.jackson.recursionLimit", 256);
+
+  private static final int initialCapacity = 16;
+
+  private Object[] values = new Object[initialCapacity];
+  private int[] valueConstructors = new int[initialCapacity];
+  private int[] positions = new int[initialCapacity];
+  private JsonParser[] parsers = new JsonParser[initialCapacity];
+  private boolean[] positionals = new boolean[initialCapacity];
+  private long[] startNanos = new long[initialCapacity];
+  private long[] startOffsets = new long[initialCapacity];
+  private int size;
+
+  public void push(Object value, int valueConstructor, int position) {
+    push(value, valueConstructor, position, null, false);
+  }
+
+  public void push(Object value, int valueConstructor, int position, JsonParser parser, boolean positional) {
+    if (size == values.length) {
+      final int capacity = size * 2;
+      values = Arrays.copyOf(values, capacity);
+      valueConstructors = Arrays.copyOf(valueConstructors, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+      parsers = Arrays.copyOf(parsers, capacity);
+      positionals = Arrays.copyOf(positionals, capacity);
+      startNanos = Arrays.copyOf(startNanos, capacity);
+      startOffsets = Arrays.copyOf(startOffsets, capacity);
+    }
+
+    values[size] = value;
+    valueConstructors[size] = valueConstructor;
+    positions[size] = position;
+    parsers[size] = parser;
+    positionals[size] = positional;
+    size++;
+  }
+
+  public void pop() {
+    size--;
+    values[size] = null;
+    parsers[size] = null;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public Object value() {
+    return values[size - 1];
+  }
+
+  public int valueConstructor() {
+    return valueConstructors[size - 1];
+  }
+
+  public int position() {
+    return positions[size - 1];
+  }
+
+  public void setPosition(int position) {
+    positions[size - 1] = position;
+  }
+
+  public JsonParser parser() {
+    return parsers[size - 1];
+  }
+
+  public boolean isPositional() {
+    return positionals[size - 1];
+  }
+
+  public void setStart(long nanos, long offset) {
+    startNanos[size - 1] = nanos;
+    startOffsets[size - 1] = offset;
+  }
+
+  public long startNanos() {
+    return startNanos[size - 1];
+  }
+
+  public long startOffset() {
+    return startOffsets[size - 1];
+  }
+}
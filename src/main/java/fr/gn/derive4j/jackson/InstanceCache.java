@@ -0,0 +1,278 @@
+package fr.gn.derive4j.jackson;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Shares the instances built by parameterized instance factories: the same
+// argument instances (compared by identity) give back the same instance, for as
+// long as it is in use. Both arguments and instances are weakly referenced (an
+// instance usually holds its arguments) and the number of entries is bounded.
+// Factories of one or two arguments pass a non-capturing function building the instance
+// from them (eg. a method reference): a hit then allocates nothing, being looked up with
+// a per-thread probe; the weakly referenced key is only built for a new instance.
+// A full cache replaces entries in CLOCK (second chance) order: a hand goes round the
+// entries, sparing (once) those hit since it last passed them, and replacing the first
+// other one.
+public final class InstanceCache {
+  private InstanceCache() {}
+
+  private static final int maxSize =
+    Math.max(1, Integer.getInteger("fr.gn.derive4j.jackson.instanceCacheSize", 4096));
+
+  private static final ConcurrentMap<Key, Entry> cache = new ConcurrentHashMap<>();
+
+  private static final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  // The entries in their CLOCK slots, guarded by itself: only new instances take the lock.
+  private static final Entry[] clock = new Entry[maxSize];
+  private static int hand;
+
+  private static final ThreadLocal<Probe> probes = ThreadLocal.withInitial(Probe::new);
+
+  public static <A, T> T memoize(Class<?> type
+    , Class<?> instanceClass
+    , A argument
+    , Function<? super A, ? extends T> newInstance) {
+    final T cached = lookup(probes.get().of(type, instanceClass, argument, null, null, 3));
+
+    return cached != null
+      ? cached
+      : insert(newInstance.apply(argument), probes.get().of(type, instanceClass, argument, null, null, 3));
+  }
+
+  public static <A, B, T> T memoize(Class<?> type
+    , Class<?> instanceClass
+    , A argument1
+    , B argument2
+    , BiFunction<? super A, ? super B, ? extends T> newInstance) {
+    final T cached = lookup(probes.get().of(type, instanceClass, argument1, argument2, null, 4));
+
+    return cached != null
+      ? cached
+      : insert(newInstance.apply(argument1, argument2), probes.get().of(type, instanceClass, argument1, argument2, null, 4));
+  }
+
+  // Any number of arguments (eg. for ADTs of three type variables or more).
+  public static <T> T memoize(Class<?> type
+    , Class<?> instanceClass
+    , Supplier<? extends T> newInstance
+    , Object... arguments) {
+    final T cached = lookup(probes.get().of(type, instanceClass, null, null, arguments, arguments.length + 2));
+
+    return cached != null
+      ? cached
+      : insert(newInstance.get(), probes.get().of(type, instanceClass, null, null, arguments, arguments.length + 2));
+  }
+
+  public static int size() {
+    expungeCollected();
+    return cache.size();
+  }
+
+  public static void clear() {
+    synchronized (clock) {
+      cache.clear();
+      Arrays.fill(clock, null);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T lookup(Probe probe) {
+    expungeCollected();
+
+    final Entry entry = cache.get(probe);
+    final Object instance = entry == null ? null : entry.get();
+    probe.clear();
+
+    if (instance != null && !entry.referenced)
+      entry.referenced = true;
+
+    return (T) instance;
+  }
+
+  // The instance of another thread if it was first, else the given one, cached.
+  @SuppressWarnings("unchecked")
+  private static <T> T insert(T instance, Probe probe) {
+    try {
+      synchronized (clock) {
+        final Entry previous = cache.get(probe);
+        final Object previousInstance = previous == null ? null : previous.get();
+
+        if (previousInstance != null)
+          return (T) previousInstance;
+
+        final Key key = new Key(probe);
+        final Entry entry = new Entry(key, instance);
+        final int slot = replacedSlot();
+        final Entry replaced = clock[slot];
+
+        if (replaced != null)
+          cache.remove(replaced.key, replaced);
+
+        clock[slot] = entry;
+        cache.put(key, entry);
+        return instance;
+      }
+    } finally {
+      probe.clear();
+    }
+  }
+
+  // Collected entries and those of collected arguments are replaced first.
+  private static int replacedSlot() {
+    while (true) {
+      final int slot = hand;
+      final Entry entry = clock[slot];
+
+      hand = slot + 1 == clock.length ? 0 : slot + 1;
+
+      if (entry == null || !entry.referenced || entry.get() == null || !entry.key.isLive())
+        return slot;
+
+      entry.referenced = false;
+    }
+  }
+
+  private static void expungeCollected() {
+    for (Reference<?> ref = collected.poll(); ref != null; ref = collected.poll()) {
+      if (ref instanceof Entry) {
+        final Entry entry = (Entry) ref;
+        cache.remove(entry.key, entry);
+      } else
+        cache.remove(((Component) ref).key);
+    }
+  }
+
+  // The type, the instance class, then the arguments: keys and probes are equal when
+  // they hold the same ones.
+  private abstract static class Components {
+    int hash;
+    int length;
+
+    abstract Object component(int i);
+
+    @Override
+    public final boolean equals(Object o) {
+      if (this == o)
+        return true;
+
+      if (!(o instanceof Components))
+        return false;
+
+      final Components other = (Components) o;
+
+      if (hash != other.hash || length != other.length)
+        return false;
+
+      for (int i = 0; i < length; i++) {
+        final Object component = component(i);
+
+        if (component == null || component != other.component(i))
+          return false;
+      }
+
+      return true;
+    }
+
+    @Override
+    public final int hashCode() {
+      return hash;
+    }
+  }
+
+  // Reused by a thread for its lookups, cleared after each so as not to retain its arguments.
+  private static final class Probe extends Components {
+    private Class<?> type;
+    private Class<?> instanceClass;
+    private Object argument1;
+    private Object argument2;
+    private Object[] arguments;
+
+    Probe of(Class<?> type, Class<?> instanceClass, Object argument1, Object argument2, Object[] arguments, int length) {
+      this.type = type;
+      this.instanceClass = instanceClass;
+      this.argument1 = argument1;
+      this.argument2 = argument2;
+      this.arguments = arguments;
+      this.length = length;
+
+      int hash = 1;
+      for (int i = 0; i < length; i++)
+        hash = 31 * hash + System.identityHashCode(component(i));
+
+      this.hash = hash;
+      return this;
+    }
+
+    void clear() {
+      type = null;
+      instanceClass = null;
+      argument1 = null;
+      argument2 = null;
+      arguments = null;
+    }
+
+    @Override
+    Object component(int i) {
+      switch (i) {
+        case 0: return type;
+        case 1: return instanceClass;
+        default: return arguments != null ? arguments[i - 2] : i == 2 ? argument1 : argument2;
+      }
+    }
+  }
+
+  private static final class Key extends Components {
+    private final Component[] components;
+
+    Key(Probe probe) {
+      hash = probe.hash;
+      length = probe.length;
+      components = new Component[length];
+
+      for (int i = 0; i < length; i++)
+        components[i] = new Component(probe.component(i), this);
+    }
+
+    @Override
+    Object component(int i) {
+      return components[i].get();
+    }
+
+    boolean isLive() {
+      for (Component component : components)
+        if (component.get() == null)
+          return false;
+
+      return true;
+    }
+  }
+
+  private static final class Component extends WeakReference<Object> {
+    final Key key;
+
+    Component(Object referent, Key key) {
+      super(referent, collected);
+      this.key = key;
+    }
+  }
+
+  private static final class Entry extends WeakReference<Object> {
+    final Key key;
+
+    // Set by hits, cleared by the hand of the clock.
+    volatile boolean referenced;
+
+    Entry(Key key, Object instance) {
+      super(instance, collected);
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import fj.P1;
+import fj.P2;
+import fj.data.*;
+import fr.gn.derive4j.jackson.instances.FjTypes;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.function.Function;
+
+// Registers the instances of FjTypes with an ObjectMapper, and the derived ones added by
+// subclasses: the processor generates one (DerivedJacksonModule) per package of ADTs.
+// Every registered type is then read and written by its instance, without Jackson ever
+// introspecting its properties. Instances of parameterized types (fj.data.Option<T>, or
+// derived ones) are built for the type arguments of each use, from the instances of
+// JavaTypes for the Java types they cover, else from the instances Jackson finds for them.
+// Other uses of Java types (eg. the String fields of a POJO) are left to Jackson.
+public class InstancesModule extends SimpleModule {
+  private static final long serialVersionUID = 1L;
+
+  // The instances of JavaTypes, only looked up for the type arguments of fj and derived types
+  // (eg. Option<String>): registered for the mapper, they would also read and write the
+  // strings, numbers and dates of every other class (POJOs, Java collections).
+  private static final Map<Class<?>, JsonSerializer<?>> javaTypeSerializers = new HashMap<>();
+  private static final Map<Class<?>, JsonDeserializer<?>> javaTypeDeserializers = new HashMap<>();
+
+  static {
+    javaTypeSerializers.put(String.class, JavaTypes.stringSerializer);
+    javaTypeSerializers.put(Integer.class, JavaTypes.integerSerializer);
+    javaTypeSerializers.put(Boolean.class, JavaTypes.booleanSerializer);
+    javaTypeSerializers.put(Long.class, JavaTypes.longSerializer);
+    javaTypeSerializers.put(Double.class, JavaTypes.doubleSerializer);
+    javaTypeSerializers.put(Float.class, JavaTypes.floatSerializer);
+    javaTypeSerializers.put(Short.class, JavaTypes.shortSerializer);
+    javaTypeSerializers.put(Byte.class, JavaTypes.byteSerializer);
+    javaTypeSerializers.put(Character.class, JavaTypes.characterSerializer);
+    javaTypeSerializers.put(BigDecimal.class, JavaTypes.bigDecimalSerializer);
+    javaTypeSerializers.put(BigInteger.class, JavaTypes.bigIntegerSerializer);
+    javaTypeSerializers.put(LocalDate.class, JavaTypes.localDateSerializer);
+    javaTypeSerializers.put(LocalDateTime.class, JavaTypes.localDateTimeSerializer);
+    javaTypeSerializers.put(OffsetDateTime.class, JavaTypes.offsetDateTimeSerializer);
+    javaTypeSerializers.put(ZonedDateTime.class, JavaTypes.zonedDateTimeSerializer);
+    javaTypeSerializers.put(Instant.class, JavaTypes.instantSerializer);
+    javaTypeSerializers.put(Duration.class, JavaTypes.durationSerializer);
+    javaTypeSerializers.put(Period.class, JavaTypes.periodSerializer);
+    javaTypeSerializers.put(Year.class, JavaTypes.yearSerializer);
+
+    javaTypeDeserializers.put(String.class, JavaTypes.stringDeserializer);
+    javaTypeDeserializers.put(Integer.class, JavaTypes.integerDeserializer);
+    javaTypeDeserializers.put(Boolean.class, JavaTypes.booleanDeserializer);
+    javaTypeDeserializers.put(Long.class, JavaTypes.longDeserializer);
+    javaTypeDeserializers.put(Double.class, JavaTypes.doubleDeserializer);
+    javaTypeDeserializers.put(Float.class, JavaTypes.floatDeserializer);
+    javaTypeDeserializers.put(Short.class, JavaTypes.shortDeserializer);
+    javaTypeDeserializers.put(Byte.class, JavaTypes.byteDeserializer);
+    javaTypeDeserializers.put(Character.class, JavaTypes.characterDeserializer);
+    javaTypeDeserializers.put(BigDecimal.class, JavaTypes.bigDecimalDeserializer);
+    javaTypeDeserializers.put(BigInteger.class, JavaTypes.bigIntegerDeserializer);
+    javaTypeDeserializers.put(LocalDate.class, JavaTypes.localDateDeserializer);
+    javaTypeDeserializers.put(LocalDateTime.class, JavaTypes.localDateTimeDeserializer);
+    javaTypeDeserializers.put(OffsetDateTime.class, JavaTypes.offsetDateTimeDeserializer);
+    javaTypeDeserializers.put(ZonedDateTime.class, JavaTypes.zonedDateTimeDeserializer);
+    javaTypeDeserializers.put(Instant.class, JavaTypes.instantDeserializer);
+    javaTypeDeserializers.put(Duration.class, JavaTypes.durationDeserializer);
+    javaTypeDeserializers.put(Period.class, JavaTypes.periodDeserializer);
+    javaTypeDeserializers.put(Year.class, JavaTypes.yearDeserializer);
+  }
+
+  private final java.util.Set<Class<?>> serialized = new LinkedHashSet<>();
+  private final java.util.Set<Class<?>> deserialized = new LinkedHashSet<>();
+  private final Map<Class<?>, Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>>> genericSerializers =
+    new LinkedHashMap<>();
+  private final Map<Class<?>, Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>>> genericDeserializers =
+    new LinkedHashMap<>();
+
+  public InstancesModule(String name) {
+    super(name, Version.unknownVersion());
+
+    addGenericSerializer(Option.class, instances -> FjTypes.optionStdSerializer(instances.get(0)));
+    addGenericSerializer(List.class, instances -> FjTypes.listStdSerializer(instances.get(0)));
+    addGenericSerializer(Either.class, instances -> FjTypes.eitherStdSerializer(instances.get(0), instances.get(1)));
+    addGenericSerializer(Set.class, instances -> FjTypes.setStdSerializer(instances.get(0)));
+    addGenericSerializer(Validation.class, instances -> FjTypes.validationStdSerializer(instances.get(0), instances.get(1)));
+    addGenericSerializer(P2.class, instances -> FjTypes.p2StdSerializer(instances.get(0), instances.get(1)));
+    addGenericSerializer(P1.class, instances -> FjTypes.p1StdSerializer(instances.get(0)));
+    addGenericSerializer(NonEmptyList.class, instances -> FjTypes.nonEmptyListStdSerializer(instances.get(0)));
+
+    // Not fj.data.Set: its instance needs the Ord of its elements.
+    addGenericDeserializer(Option.class, instances -> FjTypes.optionStdDeserializer(instances.get(0)));
+    addGenericDeserializer(List.class, instances -> FjTypes.listStdDeserializer(instances.get(0)));
+    addGenericDeserializer(Either.class, instances -> FjTypes.eitherStdDeserializer(instances.get(0), instances.get(1)));
+    addGenericDeserializer(Validation.class, instances -> FjTypes.validationStdDeserializer(instances.get(0), instances.get(1)));
+    addGenericDeserializer(P2.class, instances -> FjTypes.p2StdDeserializer(instances.get(0), instances.get(1)));
+    addGenericDeserializer(P1.class, instances -> FjTypes.p1StdDeserializer(instances.get(0)));
+    addGenericDeserializer(NonEmptyList.class, instances -> FjTypes.nonEmptyListStdDeserializer(instances.get(0)));
+  }
+
+  @Override
+  public <T> SimpleModule addSerializer(Class<? extends T> type, JsonSerializer<T> ser) {
+    serialized.add(type);
+    return super.addSerializer(type, ser);
+  }
+
+  @Override
+  public <T> SimpleModule addDeserializer(Class<T> type, JsonDeserializer<? extends T> deser) {
+    deserialized.add(type);
+    return super.addDeserializer(type, deser);
+  }
+
+  // The instance of a parameterized type (and its subtypes), built from the instances of its type arguments.
+  public InstancesModule addGenericSerializer(Class<?> type
+    , Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>> instance) {
+    genericSerializers.put(type, instance);
+    return this;
+  }
+
+  public InstancesModule addGenericDeserializer(Class<?> type
+    , Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>> instance) {
+    genericDeserializers.put(type, instance);
+    return this;
+  }
+
+  @Override
+  public void setupModule(SetupContext context) {
+    super.setupModule(context);
+    context.addSerializers(new GenericSerializers(genericSerializers));
+    context.addDeserializers(new GenericDeserializers(genericDeserializers));
+  }
+
+  // Looks up the root instances of the registered (non parameterized) types, as a first
+  // read or write would: to be called at startup, so that first requests do not pay for it.
+  public void warmUp(ObjectMapper mapper) {
+    for (Class<?> type : serialized)
+      mapper.writerFor(type);
+
+    for (Class<?> type : deserialized)
+      mapper.readerFor(type);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <I> I javaTypeInstance(Map<Class<?>, ?> instances, JavaType type) {
+    return (I) instances.get(type.getRawClass());
+  }
+
+  private static final class GenericSerializers extends Serializers.Base {
+    private final Map<Class<?>, Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>>> instances;
+
+    GenericSerializers(Map<Class<?>, Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>>> instances) {
+      this.instances = instances;
+    }
+
+    // Values are written according to their class, a subclass of the registered one.
+    @Override
+    public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+      for (Map.Entry<Class<?>, Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>>> instance : instances.entrySet())
+        if (instance.getKey().isAssignableFrom(type.getRawClass()))
+          return new GenericSerializer(type.findTypeParameters(instance.getKey()), instance.getValue());
+
+      return null;
+    }
+  }
+
+  private static final class GenericDeserializers extends Deserializers.Base {
+    private final Map<Class<?>, Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>>> instances;
+
+    GenericDeserializers(Map<Class<?>, Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>>> instances) {
+      this.instances = instances;
+    }
+
+    @Override
+    public JsonDeserializer<?> findBeanDeserializer(JavaType type, DeserializationConfig config, BeanDescription beanDesc) {
+      final Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>> instance = instances.get(type.getRawClass());
+
+      return instance == null
+        ? null
+        : new GenericDeserializer(type.findTypeParameters(type.getRawClass()), instance);
+    }
+  }
+
+  // Stands for the instance until Jackson contextualizes it, which it does before any use.
+  @SuppressWarnings("serial")
+  private static final class GenericSerializer extends StdSerializer<Object> implements ContextualSerializer {
+    private final JavaType[] typeArguments;
+    private final Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>> instance;
+
+    GenericSerializer(JavaType[] typeArguments, Function<java.util.List<JsonSerializer<Object>>, JsonSerializer<?>> instance) {
+      super(Object.class);
+      this.typeArguments = typeArguments;
+      this.instance = instance;
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+      final java.util.List<JsonSerializer<Object>> instances = new ArrayList<>(typeArguments.length);
+
+      // Unknown type arguments (eg. of values written by their class) are resolved value by value.
+      for (JavaType typeArgument : typeArguments) {
+        final JsonSerializer<Object> javaTypeSerializer = javaTypeInstance(javaTypeSerializers, typeArgument);
+
+        instances.add(javaTypeSerializer != null
+          ? javaTypeSerializer
+          : typeArgument.hasRawClass(Object.class)
+            ? DynamicSerializer.instance
+            : prov.findValueSerializer(typeArgument, property));
+      }
+
+      return instance.apply(instances);
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) {
+      throw new IllegalStateException("Serializer not contextualized");
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private static final class DynamicSerializer extends StdSerializer<Object> {
+    static final DynamicSerializer instance = new DynamicSerializer();
+
+    private DynamicSerializer() {
+      super(Object.class);
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      provider.defaultSerializeValue(value, gen);
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private static final class GenericDeserializer extends StdDeserializer<Object> implements ContextualDeserializer {
+    private final JavaType[] typeArguments;
+    private final Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>> instance;
+
+    GenericDeserializer(JavaType[] typeArguments, Function<java.util.List<JsonDeserializer<Object>>, JsonDeserializer<?>> instance) {
+      super(Object.class);
+      this.typeArguments = typeArguments;
+      this.instance = instance;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+      final java.util.List<JsonDeserializer<Object>> instances = new ArrayList<>(typeArguments.length);
+
+      for (JavaType typeArgument : typeArguments) {
+        final JsonDeserializer<Object> javaTypeDeserializer = javaTypeInstance(javaTypeDeserializers, typeArgument);
+
+        instances.add(javaTypeDeserializer != null
+          ? javaTypeDeserializer
+          : ctxt.findContextualValueDeserializer(typeArgument, property));
+      }
+
+      return instance.apply(instances);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) {
+      throw new IllegalStateException("Deserializer not contextualized");
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the calls and time of the derived serializers and deserializers, and the bytes of
+// the deserializers, per ADT and value constructor, and passes every value on to the
+// CodecListeners (including the built-in JDK Flight Recorder events, where available).
+// Bytes written are not counted: the generator's buffer is flushed to its target in the
+// middle of values, which only the target could count.
+// Two switches, both off by default:
+// - codecs are generated instrumented when compiling with fr.gn.derive4j.jackson.instrumented
+//   set (eg. -J-Dfr.gn.derive4j.jackson.instrumented=true on the javac command line),
+// - instrumented codecs then record values when running with fr.gn.derive4j.jackson.instrumentation
+//   set; otherwise the JIT folds their checks of `enabled` away.
+// Values written or read by the explicit stack of stack-safe codecs (past
+// ExplicitStack.recursionLimit) are accounted to the value holding them.
+public final class Instrumentation {
+  private Instrumentation() {}
+
+  public static final boolean enabled = Boolean.getBoolean("fr.gn.derive4j.jackson.instrumentation");
+
+  private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Site>> sites = new ConcurrentHashMap<>();
+
+  private static final List<CodecListener> listeners = new CopyOnWriteArrayList<>(flightRecorderEvents());
+
+  public static void addListener(CodecListener listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeListener(CodecListener listener) {
+    listeners.remove(listener);
+  }
+
+  // The sites of the value constructors of an ADT, in the given order: the instrumented
+  // serializer and deserializer of the ADT share them.
+  public static Site[] sites(Class<?> adt, String... valueConstructors) {
+    final ConcurrentMap<String, Site> adtSites = sites.computeIfAbsent(adt, __ -> new ConcurrentHashMap<>());
+
+    return Arrays
+      .stream(valueConstructors)
+      .map(valueConstructor -> adtSites.computeIfAbsent(valueConstructor, __ -> new Site(adt, valueConstructor)))
+      .toArray(Site[]::new);
+  }
+
+  // Every site, the most time consuming first.
+  public static List<Site> sites() {
+    final List<Site> all = new ArrayList<>();
+    sites.values().forEach(adtSites -> all.addAll(adtSites.values()));
+
+    all.sort(Comparator.comparingLong((Site site) -> site.serializationNanos() + site.deserializationNanos()).reversed());
+    return all;
+  }
+
+  // A line per site with values, the most time consuming first.
+  public static void dump(Appendable out) throws IOException {
+    out.append(String.format("%-48s %12s %12s %12s %12s %14s%n"
+      , "value constructor", "ser. calls", "ser. ms", "deser. calls", "deser. ms", "deser. bytes"));
+
+    for (Site site : sites())
+      if (site.serializations() > 0 || site.deserializations() > 0)
+        out.append(String.format("%-48s %12d %12.1f %12d %12.1f %14d%n"
+          , site.adt().getName() + "." + site.valueConstructor()
+          , site.serializations()
+          , site.serializationNanos() / 1e6
+          , site.deserializations()
+          , site.deserializationNanos() / 1e6
+          , site.deserializedBytes()));
+  }
+
+  public static void reset() {
+    sites.values().forEach(adtSites -> adtSites.values().forEach(Site::reset));
+  }
+
+  // Where an instrumented deserializer starts reading a value: its current token.
+  public static long inputOffset(JsonParser p) {
+    return offset(p.getTokenLocation());
+  }
+
+  private static long offset(JsonLocation location) {
+    return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+  }
+
+  // Compiled apart, in the jfr source set: absent from the class path, or failing to link
+  // on JVMs without the jdk.jfr API.
+  private static List<CodecListener> flightRecorderEvents() {
+    try {
+      return Collections.singletonList((CodecListener) Class
+        .forName("fr.gn.derive4j.jackson.FlightRecorderEvents")
+        .getDeclaredConstructor()
+        .newInstance());
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return Collections.emptyList();
+    }
+  }
+
+  // The counters of a value constructor, totals including the nested values.
+  public static final class Site {
+    private final Class<?> adt;
+    private final String valueConstructor;
+
+    private final LongAdder serializations = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongAdder deserializations = new LongAdder();
+    private final LongAdder deserializationNanos = new LongAdder();
+    private final LongAdder deserializedBytes = new LongAdder();
+
+    private Site(Class<?> adt, String valueConstructor) {
+      this.adt = adt;
+      this.valueConstructor = valueConstructor;
+    }
+
+    // Called by instrumented serializers once the value is written.
+    public void serialized(long startNanos) {
+      final long nanos = System.nanoTime() - startNanos;
+
+      serializations.increment();
+      serializationNanos.add(nanos);
+
+      for (CodecListener listener : listeners)
+        listener.serialized(adt, valueConstructor, nanos);
+    }
+
+    // Called by instrumented deserializers once the value is read, p on its last token:
+    // unknown sizes are not counted.
+    public void deserialized(long startNanos, long startOffset, JsonParser p) {
+      final long nanos = System.nanoTime() - startNanos;
+      final long endOffset = offset(p.getCurrentLocation());
+      final long bytes = startOffset >= 0 && endOffset >= startOffset ? endOffset - startOffset : -1;
+
+      deserializations.increment();
+      deserializationNanos.add(nanos);
+      if (bytes >= 0)
+        deserializedBytes.add(bytes);
+
+      for (CodecListener listener : listeners)
+        listener.deserialized(adt, valueConstructor, nanos, bytes);
+    }
+
+    public Class<?> adt() {
+      return adt;
+    }
+
+    public String valueConstructor() {
+      return valueConstructor;
+    }
+
+    public long serializations() {
+      return serializations.sum();
+    }
+
+    public long serializationNanos() {
+      return serializationNanos.sum();
+    }
+
+    public long deserializations() {
+      return deserializations.sum();
+    }
+
+    public long deserializationNanos() {
+      return deserializationNanos.sum();
+    }
+
+    public long deserializedBytes() {
+      return deserializedBytes.sum();
+    }
+
+    private void reset() {
+      serializations.reset();
+      serializationNanos.reset();
+      deserializations.reset();
+      deserializationNanos.reset();
+      deserializedBytes.reset();
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Writes and reads the values of one type with its instances, straight to and from bytes,
+// skipping ObjectMapper.writeValue and readValue: no root instance lookup, and no generator
+// nor parser created per call. Each thread keeps, per codec:
+// - a generator, writing each value in turn to a reusable buffer (or to the given target),
+// - a blocking parser, reset onto each message in turn and reading it in place,
+// both set up once as the mapper would set them up, and thrown away after a failed call.
+// The serializer provider and deserialization context are created for each call, as the
+// mapper does: they hold the attributes set while writing or reading a value.
+// The processor generates a codec factory (eg. exprJsonCodec(mapper)) for every ADT deriving
+// both a JsonSerializer and a JsonDeserializer. JSON mappers only.
+public final class JsonCodec<T> {
+  // Buffers grown past this size by a large value are not kept for the next ones.
+  private static final int initialBufferSize = 512;
+  private static final int maxRetainedBufferSize = 1 << 16;
+
+  private final ObjectMapper mapper;
+  private final JsonSerializer<T> ser;
+  private final JsonDeserializer<T> deser;
+
+  private final ThreadLocal<ThreadWriter> writers = new ThreadLocal<>();
+  private final ThreadLocal<ThreadReader> readers = new ThreadLocal<>();
+
+  private JsonCodec(ObjectMapper mapper, JsonSerializer<T> ser, JsonDeserializer<T> deser) {
+    if (!JsonFactory.FORMAT_NAME_JSON.equals(mapper.getFactory().getFormatName()))
+      throw new IllegalArgumentException("Not a JSON mapper: " + mapper.getFactory().getFormatName());
+
+    this.mapper = mapper;
+    this.ser = ser;
+    this.deser = deser;
+  }
+
+  public static <T> JsonCodec<T> of(ObjectMapper mapper, JsonSerializer<T> ser, JsonDeserializer<T> deser) {
+    return new JsonCodec<>(mapper, ser, deser);
+  }
+
+  // Leaves out open, and unflushed.
+  public void writeTo(T value, OutputStream out) throws IOException {
+    final ThreadWriter writer = acquireWriter();
+
+    try {
+      writer.sink.out = out;
+      writer.write(ser, value);
+    } finally {
+      release(writer);
+    }
+  }
+
+  // From the position of buffer, advanced past the value. A value that does not fit
+  // throws a BufferOverflowException, leaving the part of it that did in buffer.
+  public void writeTo(T value, ByteBuffer buffer) throws IOException {
+    final ThreadWriter writer = acquireWriter();
+
+    try {
+      writer.sink.buffer = buffer;
+      writer.write(ser, value);
+    } finally {
+      release(writer);
+    }
+  }
+
+  public byte[] toBytes(T value) throws IOException {
+    final ThreadWriter writer = acquireWriter();
+
+    try {
+      writer.write(ser, value);
+      return writer.sink.toByteArray();
+    } finally {
+      release(writer);
+    }
+  }
+
+  // The message must hold exactly one value, surrounded by whitespace at most.
+  public T readFrom(byte[] bytes, int offset, int length) throws IOException {
+    final ThreadReader reader = acquireReader();
+
+    try {
+      return reader.read(deser, bytes, offset, length);
+    } finally {
+      release(reader);
+    }
+  }
+
+  public T readFrom(byte[] bytes) throws IOException {
+    return readFrom(bytes, 0, bytes.length);
+  }
+
+  // A codec used again while in use on the same thread (eg. by a nested instance) gets a
+  // state of its own for the nested call, not kept afterwards.
+  private ThreadWriter acquireWriter() throws IOException {
+    ThreadWriter writer = writers.get();
+
+    if (writer == null || writer.busy) {
+      final ThreadWriter fresh = new ThreadWriter(mapper);
+
+      if (writer == null)
+        writers.set(fresh);
+
+      writer = fresh;
+    }
+
+    writer.busy = true;
+    return writer;
+  }
+
+  private void release(ThreadWriter writer) {
+    if (writer.broken && writers.get() == writer)
+      writers.remove();
+
+    writer.sink.reset();
+    writer.busy = false;
+  }
+
+  private ThreadReader acquireReader() {
+    ThreadReader reader = readers.get();
+
+    if (reader == null || reader.busy) {
+      final ThreadReader fresh = new ThreadReader(mapper);
+
+      if (reader == null)
+        readers.set(fresh);
+
+      reader = fresh;
+    }
+
+    reader.busy = true;
+    return reader;
+  }
+
+  private void release(ThreadReader reader) {
+    if ((reader.broken || reader.parser.isWorn()) && readers.get() == reader)
+      readers.remove();
+
+    reader.busy = false;
+  }
+
+  private static final class ThreadWriter {
+    final Sink sink = new Sink();
+    final ObjectMapper mapper;
+    final JsonGenerator gen;
+
+    boolean busy;
+    // Set while a value is being written: a failed write leaves the generator inside it.
+    boolean broken;
+
+    ThreadWriter(ObjectMapper mapper) throws IOException {
+      this.mapper = mapper;
+
+      gen = mapper.getFactory().createGenerator(sink, JsonEncoding.UTF8);
+      mapper.getSerializationConfig().initialize(gen);
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      // Values are written one after the other at the root, each in a message of its own.
+      gen.setRootValueSeparator(null);
+    }
+
+    <T> void write(JsonSerializer<T> ser, T value) throws IOException {
+      broken = true;
+
+      if (value == null)
+        gen.writeNull();
+      else
+        ser.serialize(value, gen, ((DefaultSerializerProvider) mapper.getSerializerProvider())
+          .createInstance(mapper.getSerializationConfig(), mapper.getSerializerFactory()));
+
+      gen.flush();
+      broken = false;
+    }
+  }
+
+  // The generator's output: the given stream or buffer if any, else a growable array.
+  private static final class Sink extends OutputStream {
+    OutputStream out;
+    ByteBuffer buffer;
+
+    private byte[] bytes = new byte[initialBufferSize];
+    private int size;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (out != null)
+        out.write(b);
+      else if (buffer != null)
+        buffer.put((byte) b);
+      else {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (out != null)
+        out.write(b, off, len);
+      else if (buffer != null)
+        buffer.put(b, off, len);
+      else {
+        ensureCapacity(len);
+        System.arraycopy(b, off, bytes, size, len);
+        size += len;
+      }
+    }
+
+    // Not passed on: flushing the target is left to the caller.
+    @Override
+    public void flush() {}
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+
+    void reset() {
+      out = null;
+      buffer = null;
+      size = 0;
+
+      if (bytes.length > maxRetainedBufferSize)
+        bytes = new byte[initialBufferSize];
+    }
+
+    private void ensureCapacity(int length) {
+      if (size + length > bytes.length)
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+    }
+  }
+
+  private static final class ThreadReader {
+    final ObjectMapper mapper;
+    final ReusableJsonParser parser;
+
+    boolean busy;
+    // Set while a message is being read: a failed read may leave the parser in any state.
+    boolean broken;
+
+    ThreadReader(ObjectMapper mapper) {
+      this.mapper = mapper;
+      this.parser = ReusableJsonParser.of(mapper);
+    }
+
+    <T> T read(JsonDeserializer<T> deser, byte[] bytes, int offset, int length) throws IOException {
+      broken = true;
+      parser.reset(bytes, offset, length);
+
+      final DeserializationContext ctxt = Parsers.deserializationContext(mapper, parser);
+      final JsonToken token = parser.nextToken();
+
+      if (token == null)
+        throw new JsonEOFException(parser, null, "Unexpected end of input");
+
+      final T value = token == JsonToken.VALUE_NULL
+        ? deser.getNullValue(ctxt)
+        : deser.deserialize(parser, ctxt);
+
+      if (parser.nextToken() != null)
+        throw new JsonParseException(parser, "Unexpected content after the value");
+
+      broken = false;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+// Reads a value directly from a tree, without turning the tree back into tokens
+// as ObjectMapper.treeToValue does.
+public interface JsonNodeDecoder<T> {
+  T decode(JsonNode node) throws IOException;
+}
@@ -0,0 +1,10 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+// Builds the tree of a value directly, the tree ObjectMapper.valueToTree would
+// give back after serializing the value to tokens and reading them again.
+public interface JsonNodeEncoder<T> {
+  JsonNode encode(T value, JsonNodeFactory nodes);
+}
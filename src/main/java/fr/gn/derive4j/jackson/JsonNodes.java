@@ -0,0 +1,67 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.gn.derive4j.Constants.FieldNameFor;
+
+import java.io.IOException;
+
+// The tree counterparts of Parsers, used by JsonNode decoders.
+public final class JsonNodes {
+  private JsonNodes() {}
+
+  // The value constructor named by the `_tag` field of an object node.
+  public static String valueConstructor(JsonNode node) throws IOException {
+    if (!node.isObject())
+      throw error("Node is not an object");
+
+    final JsonNode valueConstructor = node.get(FieldNameFor.valueConstructor);
+
+    if (valueConstructor == null)
+      throw error("Missing value constructor");
+
+    if (!valueConstructor.isTextual())
+      throw error("Value constructor is not a string");
+
+    return valueConstructor.textValue();
+  }
+
+  // The constructor index starting a positionally encoded value.
+  public static int positionalValueConstructor(JsonNode node) throws IOException {
+    final JsonNode index = node.get(0);
+
+    if (index == null || !index.isInt())
+      throw error("Value constructor index is not an integer");
+
+    return index.intValue();
+  }
+
+  // The component of a positionally encoded value at the given position, the first one being 1.
+  public static JsonNode component(JsonNode node, int position) throws IOException {
+    final JsonNode component = node.get(position);
+
+    if (component == null)
+      throw error("Missing positional component");
+
+    return component;
+  }
+
+  // Decodes the given field of an object node, giving null for a missing field,
+  // as the derived deserializers do.
+  public static <T> T field(JsonNode node, String fieldName, JsonNodeDecoder<T> decoder) throws IOException {
+    final JsonNode field = node.get(fieldName);
+
+    return field == null ? null : decoder.decode(field);
+  }
+
+  public static JsonNode array(JsonNode node) throws IOException {
+    if (!node.isArray())
+      throw error("Node is not an array");
+
+    return node;
+  }
+
+  public static JsonMappingException error(String message) {
+    return new JsonMappingException(null, message);
+  }
+}
@@ -0,0 +1,110 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fj.P;
+import fj.P1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// A value decoded on first access, from a compact copy of the structure it was read from:
+// the bytes of the structure re-encoded by the codec's factory (so only the raw text of its
+// strings and numbers is copied), or a token buffer when the input is not text.
+// Scalars are decoded right away, keeping them would cost as much as decoding them.
+// Decoding errors surface from _1() as UncheckedIOException. Thread-safe.
+public final class LazyValue<T> extends P1<T> {
+  private final JsonDeserializer<T> deser;
+  private final ObjectCodec codec;
+  private final DefaultDeserializationContext contextBlueprint;
+  private final DeserializationConfig config;
+
+  // byte[] or TokenBuffer, released once decoded
+  private Object raw;
+  private T value;
+  private volatile boolean decoded;
+
+  private LazyValue(JsonDeserializer<T> deser
+    , ObjectCodec codec
+    , DefaultDeserializationContext contextBlueprint
+    , DeserializationConfig config
+    , Object raw) {
+    this.deser = deser;
+    this.codec = codec;
+    this.contextBlueprint = contextBlueprint;
+    this.config = config;
+    this.raw = raw;
+  }
+
+  // Consumes the value p is positioned on.
+  public static <T> P1<T> capture(JsonParser p, DeserializationContext ctxt, JsonDeserializer<T> deser) throws IOException {
+    if (!p.getCurrentToken().isStructStart())
+      return P.p(deser.deserialize(p, ctxt));
+
+    final ObjectCodec codec = p.getCodec();
+    final Object raw;
+
+    // Parsers without an input location (over tokens or trees) have no text to copy.
+    if (codec == null || p.getTokenLocation() == JsonLocation.NA) {
+      final TokenBuffer tokens = new TokenBuffer(p, ctxt);
+      tokens.copyCurrentStructure(p);
+      raw = tokens;
+    } else {
+      final ByteArrayBuilder bytes = new ByteArrayBuilder();
+
+      try (JsonGenerator gen = codec.getFactory().createGenerator(bytes)) {
+        gen.copyCurrentStructure(p);
+      }
+
+      raw = bytes.toByteArray();
+    }
+
+    // Keeping ctxt itself would keep its parser, hence possibly the whole input, alive.
+    final DefaultDeserializationContext contextBlueprint = codec instanceof ObjectMapper
+      ? (DefaultDeserializationContext) ((ObjectMapper) codec).getDeserializationContext()
+      : ((DefaultDeserializationContext) ctxt).copy();
+
+    return new LazyValue<>(deser, codec, contextBlueprint, ctxt.getConfig(), raw);
+  }
+
+  public boolean isDecoded() {
+    return decoded;
+  }
+
+  @Override
+  public T _1() {
+    if (!decoded) {
+      synchronized (this) {
+        if (!decoded) {
+          value = decode();
+          raw = null;
+          decoded = true;
+        }
+      }
+    }
+
+    return value;
+  }
+
+  private T decode() {
+    try (JsonParser p = raw instanceof byte[]
+      ? codec.getFactory().createParser((byte[]) raw)
+      : ((TokenBuffer) raw).asParser(codec)) {
+      config.initialize(p);
+      p.nextToken();
+
+      return deser.deserialize(p, contextBlueprint.createInstance(config, p, null));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
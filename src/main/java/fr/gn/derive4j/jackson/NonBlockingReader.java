@@ -0,0 +1,144 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fj.data.List;
+
+import java.io.IOException;
+
+// Decodes a top-level sequence of values from bytes fed as they arrive (eg. network
+// chunks), never blocking for more input: the mapper factory's non-blocking parser
+// tokenizes every chunk, the tokens of the value being received are kept, and each
+// value is decoded by the derived deserializer as soon as it is complete.
+// Meant for streams of many small values (messages, events, lines of newline-delimited
+// JSON): the derived deserializers cannot suspend, so each value is buffered whole, as
+// tokens, until its last byte arrives. A single large document is better read by a
+// blocking parser, or ParallelArrayReader. Not thread-safe: one reader per connection.
+// Given ReadLimits, maxTokens bounds the tokens of each value (and so the tokens held at
+// once) rather than those of the whole input; the other limits apply as for any parser.
+public final class NonBlockingReader<T> {
+  private final JsonDeserializer<T> deser;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final DeserializationContext ctxt;
+  private final boolean elements;
+  private final long maxValueTokens;
+
+  private TokenBuffer value;
+  private long valueTokens;
+  private int depth;
+  private boolean inArray;
+
+  private NonBlockingReader(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , ReadLimits limits
+    , boolean elements) throws IOException {
+    final JsonParser async = mapper.getFactory().createNonBlockingByteArrayParser();
+
+    this.deser = deser;
+    this.parser = limits.withMaxTokens(Long.MAX_VALUE).limit(async);
+    this.feeder = (ByteArrayFeeder) async.getNonBlockingInputFeeder();
+    this.ctxt = Parsers.deserializationContext(mapper, parser);
+    this.elements = elements;
+    this.maxValueTokens = limits.maxTokens();
+  }
+
+  // The elements of a top-level array.
+  public static <T> NonBlockingReader<T> readElements(ObjectMapper mapper, JsonDeserializer<T> deser) throws IOException {
+    return readElements(mapper, deser, ReadLimits.none);
+  }
+
+  public static <T> NonBlockingReader<T> readElements(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , ReadLimits limits) throws IOException {
+    return new NonBlockingReader<>(mapper, deser, limits, true);
+  }
+
+  // Root-level values separated by whitespace, eg. newline-delimited JSON.
+  public static <T> NonBlockingReader<T> readValues(ObjectMapper mapper, JsonDeserializer<T> deser) throws IOException {
+    return readValues(mapper, deser, ReadLimits.none);
+  }
+
+  public static <T> NonBlockingReader<T> readValues(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , ReadLimits limits) throws IOException {
+    return new NonBlockingReader<>(mapper, deser, limits, false);
+  }
+
+  // Returns the values completed by the chunk, in order.
+  public List<T> feed(byte[] bytes, int offset, int length) throws IOException {
+    feeder.feedInput(bytes, offset, offset + length);
+    return readAvailable();
+  }
+
+  public List<T> feed(byte[] bytes) throws IOException {
+    return feed(bytes, 0, bytes.length);
+  }
+
+  // Signals the end of the input, returning the values it completes.
+  public List<T> endOfInput() throws IOException {
+    feeder.endOfInput();
+    final List<T> values = readAvailable();
+
+    if (value != null || inArray)
+      throw new JsonParseException(parser, "Unexpected end of input inside a value");
+
+    parser.close();
+    return values;
+  }
+
+  private List<T> readAvailable() throws IOException {
+    final List.Buffer<T> values = new List.Buffer<>();
+
+    for (JsonToken token = parser.nextToken()
+      ; token != null && token != JsonToken.NOT_AVAILABLE
+      ; token = parser.nextToken()) {
+
+      if (elements && value == null) {
+        if (!inArray) {
+          if (token != JsonToken.START_ARRAY)
+            throw new JsonParseException(parser, "Current token is not the start of an array");
+
+          inArray = true;
+          continue;
+        }
+
+        if (token == JsonToken.END_ARRAY) {
+          inArray = false;
+          continue;
+        }
+      }
+
+      if (value == null) {
+        value = new TokenBuffer(parser, ctxt);
+        valueTokens = 0;
+      }
+
+      if (++valueTokens > maxValueTokens)
+        throw new RejectedInputException(parser, "Maximum number of tokens of a value exceeded: " + maxValueTokens);
+
+      value.copyCurrentEvent(parser);
+
+      if (token.isStructStart())
+        depth++;
+      else if (token.isStructEnd())
+        depth--;
+
+      if (depth == 0) {
+        final JsonParser valueParser = value.asParser(parser);
+        valueParser.nextToken();
+
+        values.snoc(deser.deserialize(valueParser, ctxt));
+        value = null;
+      }
+    }
+
+    return values.toList();
+  }
+}
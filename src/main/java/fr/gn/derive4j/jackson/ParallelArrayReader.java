@@ -0,0 +1,248 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.F;
+import fj.data.List;
+import fj.data.Seq;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Decodes a large top-level JSON array on a ForkJoinPool. A first sequential pass
+// over the bytes finds top-level commas splitting the array into slices (a few per
+// worker); the elements of each slice are then decoded in place, by a parser reset onto
+// them and the derived deserializer; slices are finally reassembled in order. A slice
+// failing cancels the others, its error being the one thrown.
+// Input that is not a JSON text array, or too small to be split, is decoded sequentially.
+public final class ParallelArrayReader {
+  private ParallelArrayReader() {}
+
+  private static final int minSliceLength = 1 << 16;
+  private static final int slicesPerWorker = 4;
+
+  public static <T> List<T> readList(ObjectMapper mapper, JsonDeserializer<T> deser, byte[] json) throws IOException {
+    return readList(mapper, deser, json, ForkJoinPool.commonPool());
+  }
+
+  public static <T> List<T> readList(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , byte[] json
+    , ForkJoinPool pool) throws IOException {
+    final java.util.List<List.Buffer<T>> slices = read(mapper, deser, json, pool, buffer -> buffer);
+
+    List<T> list = List.nil();
+    for (int i = slices.size() - 1; i >= 0; i--)
+      list = slices.get(i).prependToList(list);
+
+    return list;
+  }
+
+  public static <T> Seq<T> readSeq(ObjectMapper mapper, JsonDeserializer<T> deser, byte[] json) throws IOException {
+    return readSeq(mapper, deser, json, ForkJoinPool.commonPool());
+  }
+
+  public static <T> Seq<T> readSeq(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , byte[] json
+    , ForkJoinPool pool) throws IOException {
+    Seq<T> seq = Seq.empty();
+    for (Seq<T> slice : read(mapper, deser, json, pool, Seq::iterableSeq))
+      seq = seq.append(slice);
+
+    return seq;
+  }
+
+  private static <T, R> java.util.List<R> read(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , byte[] json
+    , ForkJoinPool pool
+    , F<List.Buffer<T>, R> finish) throws IOException {
+    final int[] bounds = JsonFactory.FORMAT_NAME_JSON.equals(mapper.getFactory().getFormatName())
+      ? sliceBounds(json, Math.max(minSliceLength, json.length / (pool.getParallelism() * slicesPerWorker)))
+      : null;
+
+    if (bounds == null || bounds.length <= 2)
+      return Collections.singletonList(finish.f(decode(mapper, deser, json, 0, json.length)));
+
+    final java.util.List<SliceTask<T, R>> tasks = new ArrayList<>(bounds.length - 1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    for (int i = 0; i < bounds.length - 1; i++)
+      tasks.add(new SliceTask<>(mapper, deser, json, bounds[i] + 1, bounds[i + 1], finish, tasks, failure));
+
+    for (SliceTask<T, R> task : tasks)
+      pool.execute(task);
+
+    for (SliceTask<T, R> task : tasks)
+      task.quietlyJoin();
+
+    // Set before any slice is cancelled.
+    if (failure.get() != null)
+      throw Exceptions.sneakyThrow(failure.get());
+
+    final java.util.List<R> slices = new ArrayList<>(tasks.size());
+    for (SliceTask<T, R> task : tasks)
+      slices.add(task.join());
+
+    return slices;
+  }
+
+  // Offsets of the array's '[', of the top-level commas ending each slice, then of its ']'.
+  // Null when the input is not a well formed array, leaving the sequential parse to report it.
+  private static int[] sliceBounds(byte[] json, int sliceLength) {
+    int i = skipWhitespace(json, 0);
+
+    if (i == json.length || json[i] != '[')
+      return null;
+
+    int[] bounds = new int[16];
+    int count = 0;
+    bounds[count++] = i;
+
+    int depth = 0;
+    boolean inString = false;
+
+    for (int nextBound = i + sliceLength; i < json.length; i++) {
+      final byte b = json[i];
+
+      if (inString) {
+        if (b == '\\')
+          i++;
+        else if (b == '"')
+          inString = false;
+
+        continue;
+      }
+
+      switch (b) {
+        case '"':
+          inString = true;
+          break;
+
+        case '[':
+        case '{':
+          depth++;
+          break;
+
+        case ']':
+        case '}':
+          if (--depth > 0)
+            break;
+
+          if (skipWhitespace(json, i + 1) != json.length)
+            return null;
+
+          bounds = Arrays.copyOf(bounds, count + 1);
+          bounds[count] = i;
+          return bounds;
+
+        case ',':
+          if (depth == 1 && i >= nextBound) {
+            if (count == bounds.length)
+              bounds = Arrays.copyOf(bounds, count * 2);
+
+            bounds[count++] = i;
+            nextBound = i + sliceLength;
+          }
+          break;
+      }
+    }
+
+    return null;
+  }
+
+  private static int skipWhitespace(byte[] json, int from) {
+    int i = from;
+    while (i < json.length && (json[i] == ' ' || json[i] == '\n' || json[i] == '\r' || json[i] == '\t'))
+      i++;
+
+    return i;
+  }
+
+  private static <T> List.Buffer<T> decode(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , byte[] json
+    , int offset
+    , int length) throws IOException {
+    try (JsonParser p = mapper.getFactory().createParser(json, offset, length)) {
+      final DeserializationContext ctxt = Parsers.deserializationContext(mapper, p);
+
+      if (p.nextToken() != JsonToken.START_ARRAY)
+        throw new JsonParseException(p, "Current token is not the start of an array");
+
+      final List.Buffer<T> buffer = new List.Buffer<>();
+
+      while (Parsers.nextElement(p))
+        buffer.snoc(deser.deserialize(p, ctxt));
+
+      return buffer;
+    }
+  }
+
+  // Decodes the elements found between two bounds: from the byte after the '[' or comma
+  // starting the slice, up to the comma or ']' ending it.
+  private static final class SliceTask<T, R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private final ObjectMapper mapper;
+    private final JsonDeserializer<T> deser;
+    private final byte[] json;
+    private final int from, to;
+    private final F<List.Buffer<T>, R> finish;
+    private final java.util.List<SliceTask<T, R>> siblings;
+    private final AtomicReference<Throwable> failure;
+
+    SliceTask(ObjectMapper mapper
+      , JsonDeserializer<T> deser
+      , byte[] json
+      , int from
+      , int to
+      , F<List.Buffer<T>, R> finish
+      , java.util.List<SliceTask<T, R>> siblings
+      , AtomicReference<Throwable> failure) {
+      this.mapper = mapper;
+      this.deser = deser;
+      this.json = json;
+      this.from = from;
+      this.to = to;
+      this.finish = finish;
+      this.siblings = siblings;
+      this.failure = failure;
+    }
+
+    @Override
+    protected R compute() {
+      try (ReusableJsonParser p = ReusableJsonParser.of(mapper).resetInArray(json, from, to - from + 1)) {
+        final DeserializationContext ctxt = Parsers.deserializationContext(mapper, p);
+        final List.Buffer<T> buffer = new List.Buffer<>();
+
+        // Cancelled by a failed sibling, this slice is not needed any more.
+        for (int end = from; skipWhitespace(json, end) < to && !isCancelled(); end = p.tokenEnd()) {
+          p.nextToken();
+          buffer.snoc(deser.deserialize(p, ctxt));
+        }
+
+        return finish.f(buffer);
+      } catch (IOException | RuntimeException e) {
+        failure.compareAndSet(null, e);
+
+        for (SliceTask<T, R> sibling : siblings)
+          if (sibling != this)
+            sibling.cancel(false);
+
+        throw Exceptions.sneakyThrow(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fr.gn.derive4j.Constants.FieldNameFor;
+
+import java.io.IOException;
+
+public final class Parsers {
+  private Parsers() {}
+
+  // The context ObjectMapper would read from p with, after applying its parser features to p.
+  public static DeserializationContext deserializationContext(ObjectMapper mapper, JsonParser p) {
+    mapper.getDeserializationConfig().initialize(p);
+
+    return ((DefaultDeserializationContext) mapper.getDeserializationContext())
+      .createInstance(mapper.getDeserializationConfig(), p, mapper.getInjectableValues());
+  }
+
+  // Positions the returned parser on the value of the `_tag` field of the current object.
+  // Fields met before `_tag` are buffered and replayed, by the returned parser, before the remaining ones.
+  // A parser already positioned there (by a previous seek) is returned as is.
+  public static JsonParser seekValueConstructor(JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken token = p.getCurrentToken();
+
+    if (token == JsonToken.VALUE_STRING && FieldNameFor.valueConstructor.equals(p.getCurrentName()))
+      return p;
+
+    if (token == JsonToken.START_OBJECT)
+      token = p.nextToken();
+    else if (token != JsonToken.FIELD_NAME)
+      throw new JsonParseException(p, "Current token is not the start of an object");
+
+    TokenBuffer fields = null;
+
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      final String fieldName = p.getCurrentName();
+      p.nextToken();
+
+      if (FieldNameFor.valueConstructor.equals(fieldName)) {
+        if (!p.hasToken(JsonToken.VALUE_STRING))
+          throw new RejectedInputException(p, "Value constructor is not a string");
+
+        if (fields == null)
+          return p;
+
+        final TokenBuffer tagged = new TokenBuffer(p, ctxt);
+        tagged.writeFieldName(fieldName);
+        tagged.copyCurrentEvent(p);
+        copyEvents(fields.asParser(p), tagged);
+
+        final JsonParser replay = JsonParserSequence.createFlattened(false, tagged.asParser(p), p);
+        replay.nextToken();
+        replay.nextToken();
+        return replay;
+      }
+
+      if (fields == null)
+        fields = new TokenBuffer(p, ctxt);
+
+      fields.writeFieldName(fieldName);
+      copyCurrentStructure(p, fields);
+    }
+
+    throw new RejectedInputException(p, "Missing value constructor");
+  }
+
+  // As TokenBuffer.copyCurrentStructure and TokenBuffer.append, but iterating rather
+  // than recursing over nested structures: their depth is not limited by the call stack.
+  private static void copyCurrentStructure(JsonParser p, TokenBuffer buffer) throws IOException {
+    int depth = 0;
+    JsonToken token = p.getCurrentToken();
+
+    do {
+      buffer.copyCurrentEvent(p);
+
+      if (token.isStructStart())
+        depth++;
+      else if (token.isStructEnd())
+        depth--;
+    } while (depth > 0 && (token = p.nextToken()) != null);
+  }
+
+  private static void copyEvents(JsonParser p, TokenBuffer buffer) throws IOException {
+    while (p.nextToken() != null)
+      buffer.copyCurrentEvent(p);
+  }
+
+  // Reads the value constructor of the current value, in either encoding, and skips the
+  // whole value without decoding (nor buffering) any of its fields.
+  public static int readValueConstructor(JsonParser p, ValueConstructorTable table) throws IOException {
+    if (p.isExpectedStartArrayToken()) {
+      final int index = positionalValueConstructor(p);
+
+      if (index < 0 || index >= table.size())
+        throw new RejectedInputException(p, "Unknown value constructor");
+
+      skipComponents(p);
+      return index;
+    }
+
+    JsonToken token = p.getCurrentToken();
+
+    if (token == JsonToken.START_OBJECT)
+      token = p.nextToken();
+    else if (token != JsonToken.FIELD_NAME)
+      throw new JsonParseException(p, "Current token is not the start of an object");
+
+    int index = -1;
+    boolean found = false;
+
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      final boolean isValueConstructor = FieldNameFor.valueConstructor.equals(p.getCurrentName());
+      p.nextToken();
+
+      if (isValueConstructor && !found) {
+        if (!p.hasToken(JsonToken.VALUE_STRING))
+          throw new RejectedInputException(p, "Value constructor is not a string");
+
+        index = table.indexOf(p);
+        found = true;
+
+        if (index < 0)
+          throw new RejectedInputException(p, "Unknown value constructor");
+      } else
+        p.skipChildren();
+    }
+
+    if (!found)
+      throw new RejectedInputException(p, "Missing value constructor");
+
+    return index;
+  }
+
+  // Puts back the constructor index just read by positionalValueConstructor: the returned
+  // parser is on the START_ARRAY of the value again.
+  public static JsonParser unreadPositionalValueConstructor(JsonParser p, DeserializationContext ctxt) throws IOException {
+    final TokenBuffer start = new TokenBuffer(p, ctxt);
+    start.writeStartArray();
+    start.copyCurrentEvent(p);
+
+    final JsonParser replay = JsonParserSequence.createFlattened(false, start.asParser(p), p);
+    replay.nextToken();
+    return replay;
+  }
+
+  // Moves to the next element of the current array, returning false once its end is reached.
+  public static boolean nextElement(JsonParser p) throws IOException {
+    final JsonToken token = p.nextToken();
+
+    if (token == null)
+      throw new JsonParseException(p, "Unexpected end of input inside an array");
+
+    return token != JsonToken.END_ARRAY;
+  }
+
+  // Reads the constructor index starting a positionally encoded value, whose START_ARRAY is the current token.
+  public static int positionalValueConstructor(JsonParser p) throws IOException {
+    if (p.nextToken() != JsonToken.VALUE_NUMBER_INT)
+      throw new RejectedInputException(p, "Value constructor index is not an integer");
+
+    return p.getIntValue();
+  }
+
+  // Moves to the next component of a positionally encoded value.
+  public static void nextComponent(JsonParser p) throws IOException {
+    if (!nextElement(p))
+      throw new JsonParseException(p, "Missing positional component");
+  }
+
+  // Skips the remaining components of a positionally encoded value, up to its END_ARRAY.
+  public static void skipComponents(JsonParser p) throws IOException {
+    while (nextElement(p))
+      p.skipChildren();
+  }
+
+  public static void skipFields(JsonParser p) throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      p.nextToken();
+      p.skipChildren();
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+// Opt-in compact encoding of derived values: `[constructorIndex, field1, field2, ...]`
+// instead of `{"_tag": "constructor", "field1": ..., "field2": ...}`.
+// Enabled for every value written by an ObjectMapper (or an ObjectWriter), or for a
+// single ADT by annotating it with @JsonFormat(shape = JsonFormat.Shape.ARRAY).
+// Deserializers read both encodings, whatever the configuration.
+public final class PositionalEncoding {
+  private PositionalEncoding() {}
+
+  public static final Object attribute = PositionalEncoding.class;
+
+  public static ObjectMapper enable(ObjectMapper mapper) {
+    return mapper.setConfig(mapper.getSerializationConfig().withAttribute(attribute, Boolean.TRUE));
+  }
+
+  public static ObjectWriter enable(ObjectWriter writer) {
+    return writer.withAttribute(attribute, Boolean.TRUE);
+  }
+
+  // A blueprint provider (ObjectMapper.getSerializerProvider()) has no config, nor attributes.
+  public static boolean isEnabled(SerializerProvider provider) {
+    return provider.getConfig() != null && provider.getAttribute(attribute) != null;
+  }
+}
@@ -0,0 +1,207 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Bounds on untrusted input, enforced token by token while it is read, before the codecs
+// get to see what exceeds them:
+// - the nesting depth of arrays and objects,
+// - the number of elements of an array, or fields of an object,
+// - the length of a string or field name,
+// - the total number of tokens.
+// eg. `mapper.readValue(ReadLimits.none.withMaxDepth(64).limit(parser), Expr.class)`.
+// Violations throw a RejectedInputException. Strings are checked once decoded: the parser
+// has then already read the whole of a string value (or field name) into its buffer, the
+// limit only keeping it from the codecs. Skipped string values are neither decoded nor
+// checked. Bound the size of the input itself to bound what the parser buffers.
+public final class ReadLimits {
+  public static final ReadLimits none =
+    new ReadLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+  private final int maxDepth;
+  private final int maxCollectionSize;
+  private final int maxStringLength;
+  private final long maxTokens;
+
+  private ReadLimits(int maxDepth, int maxCollectionSize, int maxStringLength, long maxTokens) {
+    if (maxDepth < 0 || maxCollectionSize < 0 || maxStringLength < 0 || maxTokens < 0)
+      throw new IllegalArgumentException("Negative read limit");
+
+    this.maxDepth = maxDepth;
+    this.maxCollectionSize = maxCollectionSize;
+    this.maxStringLength = maxStringLength;
+    this.maxTokens = maxTokens;
+  }
+
+  public ReadLimits withMaxDepth(int maxDepth) {
+    return new ReadLimits(maxDepth, maxCollectionSize, maxStringLength, maxTokens);
+  }
+
+  public ReadLimits withMaxCollectionSize(int maxCollectionSize) {
+    return new ReadLimits(maxDepth, maxCollectionSize, maxStringLength, maxTokens);
+  }
+
+  public ReadLimits withMaxStringLength(int maxStringLength) {
+    return new ReadLimits(maxDepth, maxCollectionSize, maxStringLength, maxTokens);
+  }
+
+  public ReadLimits withMaxTokens(long maxTokens) {
+    return new ReadLimits(maxDepth, maxCollectionSize, maxStringLength, maxTokens);
+  }
+
+  long maxTokens() {
+    return maxTokens;
+  }
+
+  // p, checked from its next token on: wrap it before reading from it.
+  // Without any limit, p itself.
+  public JsonParser limit(JsonParser p) {
+    return maxDepth == Integer.MAX_VALUE
+      && maxCollectionSize == Integer.MAX_VALUE
+      && maxStringLength == Integer.MAX_VALUE
+      && maxTokens == Long.MAX_VALUE
+      ? p
+      : new LimitedParser(p, this);
+  }
+
+  private static final class LimitedParser extends JsonParserDelegate {
+    private final ReadLimits limits;
+
+    private long tokens;
+    private int depth;
+
+    LimitedParser(JsonParser p, ReadLimits limits) {
+      super(p);
+      this.limits = limits;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+      final JsonToken token = delegate.nextToken();
+
+      if (token == null || token == JsonToken.NOT_AVAILABLE)
+        return token;
+
+      if (++tokens > limits.maxTokens)
+        throw new RejectedInputException(this, "Maximum number of tokens exceeded: " + limits.maxTokens);
+
+      if (token.isStructStart()) {
+        if (++depth > limits.maxDepth)
+          throw new RejectedInputException(this, "Maximum depth exceeded: " + limits.maxDepth);
+
+        // The current context is the one just started, the value is a member of its parent.
+        checkCollectionSize(delegate.getParsingContext().getParent());
+      } else if (token.isStructEnd())
+        depth--;
+      else {
+        if (token == JsonToken.FIELD_NAME)
+          checkStringLength(delegate.getCurrentName().length());
+
+        checkCollectionSize(delegate.getParsingContext());
+      }
+
+      return token;
+    }
+
+    // As JsonParser.nextValue and skipChildren, but through nextToken: the tokens are checked.
+    @Override
+    public JsonToken nextValue() throws IOException {
+      final JsonToken token = nextToken();
+
+      return token == JsonToken.FIELD_NAME ? nextToken() : token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+      final JsonToken current = getCurrentToken();
+
+      if (current == null || !current.isStructStart())
+        return this;
+
+      for (int open = 1; open > 0; ) {
+        final JsonToken token = nextToken();
+
+        if (token == null)
+          return this;
+
+        if (token.isStructStart())
+          open++;
+        else if (token.isStructEnd())
+          open--;
+      }
+
+      return this;
+    }
+
+    @Override
+    public String getText() throws IOException {
+      checkString();
+      return delegate.getText();
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+      checkString();
+      return delegate.getTextCharacters();
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+      checkString();
+      return delegate.getTextLength();
+    }
+
+    @Override
+    public int getText(Writer writer) throws IOException {
+      checkString();
+      return delegate.getText(writer);
+    }
+
+    @Override
+    public String getValueAsString() throws IOException {
+      checkString();
+      return delegate.getValueAsString();
+    }
+
+    @Override
+    public String getValueAsString(String defaultValue) throws IOException {
+      checkString();
+      return delegate.getValueAsString(defaultValue);
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant variant) throws IOException {
+      checkString();
+      return delegate.getBinaryValue(variant);
+    }
+
+    @Override
+    public int readBinaryValue(Base64Variant variant, OutputStream out) throws IOException {
+      checkString();
+      return delegate.readBinaryValue(variant, out);
+    }
+
+    // Decodes the string, if not yet, to get its length.
+    private void checkString() throws IOException {
+      if (delegate.hasToken(JsonToken.VALUE_STRING))
+        checkStringLength(delegate.getTextLength());
+    }
+
+    private void checkStringLength(int length) throws IOException {
+      if (length > limits.maxStringLength)
+        throw new RejectedInputException(this, "Maximum string length exceeded: " + limits.maxStringLength);
+    }
+
+    private void checkCollectionSize(JsonStreamContext context) throws IOException {
+      if (!context.inRoot() && context.getEntryCount() > limits.maxCollectionSize)
+        throw new RejectedInputException(this, "Maximum collection size exceeded: " + limits.maxCollectionSize);
+    }
+  }
+}
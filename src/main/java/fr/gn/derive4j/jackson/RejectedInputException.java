@@ -0,0 +1,20 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+// Thrown for input the codecs refuse outright: unknown or missing value constructors,
+// and input exceeding ReadLimits. Such input may well be hostile and come in floods,
+// so the exception has no stack trace: its location in the input says what went wrong,
+// and rejecting costs an allocation instead of a stack walk.
+@SuppressWarnings("serial")
+public final class RejectedInputException extends JsonParseException {
+  public RejectedInputException(JsonParser p, String message) {
+    super(p, message);
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+}
@@ -0,0 +1,120 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.json.DupDetector;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import com.fasterxml.jackson.core.json.UTF8StreamJsonParser;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+// A blocking UTF-8 parser reading bytes in place, that can be reset onto other bytes rather
+// than created for each: set up once as the mapper would set it up (features, codec), it
+// keeps its buffers and its table of field names from one input to the next.
+// Reset onto the elements of an array, it reads them as if positioned after its '[' (or
+// one of its commas), without the array itself.
+// Not thread-safe. Dropped by its user once its table of field names has grown past
+// maxSymbols (eg. by the keys of maps), the table never shrinking.
+final class ReusableJsonParser extends UTF8StreamJsonParser {
+  private static final int maxSymbols = 1 << 12;
+
+  private static final byte[] noBytes = new byte[0];
+
+  private ReusableJsonParser(IOContext ioContext, int features, ObjectMapper mapper, ByteQuadsCanonicalizer symbols) {
+    super(ioContext, features, null, mapper, symbols, noBytes, 0, 0, false);
+  }
+
+  static ReusableJsonParser of(ObjectMapper mapper) {
+    final JsonFactory factory = mapper.getFactory();
+
+    if (!JsonFactory.FORMAT_NAME_JSON.equals(factory.getFormatName()))
+      throw new IllegalArgumentException("Not a JSON mapper: " + factory.getFormatName());
+
+    int features = 0;
+    for (JsonParser.Feature feature : JsonParser.Feature.values())
+      if (factory.isEnabled(feature))
+        features |= feature.getMask();
+
+    int factoryFeatures = 0;
+    for (JsonFactory.Feature feature : JsonFactory.Feature.values())
+      if (factory.isEnabled(feature))
+        factoryFeatures |= feature.getMask();
+
+    final ReusableJsonParser parser = new ReusableJsonParser(new IOContext(factory._getBufferRecycler(), (Object) null, false)
+      , features
+      , mapper
+      , ByteQuadsCanonicalizer.createRoot().makeChild(factoryFeatures));
+
+    mapper.getDeserializationConfig().initialize(parser);
+    return parser;
+  }
+
+  // Onto a whole document.
+  ReusableJsonParser reset(byte[] bytes, int offset, int length) {
+    resetInput(bytes, offset, length);
+    _parsingContext = JsonReadContext.createRootContext(dupDetector());
+    return this;
+  }
+
+  // Onto elements of an array, up to its ']' or up to (and including) the comma after the last one.
+  ReusableJsonParser resetInArray(byte[] bytes, int offset, int length) {
+    resetInput(bytes, offset, length);
+    _parsingContext = JsonReadContext.createRootContext(dupDetector()).createChildArrayContext(1, 1);
+    return this;
+  }
+
+  // The offset of the first byte after the current token, a string being skipped if not read.
+  int tokenEnd() throws IOException {
+    if (_tokenIncomplete) {
+      _tokenIncomplete = false;
+      _skipString();
+    }
+
+    return _inputPtr;
+  }
+
+  boolean isWorn() {
+    return _symbols.size() > maxSymbols;
+  }
+
+  private void resetInput(byte[] bytes, int offset, int length) {
+    _inputBuffer = bytes;
+    _inputPtr = offset;
+    _inputEnd = offset + length;
+
+    // Locations are relative to the offset, as those of a parser created over the same bytes.
+    _currInputProcessed = -offset;
+    _currInputRow = 1;
+    _currInputRowStart = offset;
+    _tokenInputTotal = 0;
+    _tokenInputRow = 1;
+    _tokenInputCol = 0;
+    _nameStartOffset = 0;
+    _nameStartRow = 1;
+    _nameStartCol = 0;
+
+    _currToken = null;
+    _nextToken = null;
+    _lastClearedToken = null;
+    _tokenIncomplete = false;
+    _nameCopied = false;
+    _numTypesValid = NR_UNKNOWN;
+    _binaryValue = null;
+    _textBuffer.resetWithEmpty();
+    _closed = false;
+  }
+
+  private DupDetector dupDetector() {
+    return isEnabled(JsonParser.Feature.STRICT_DUPLICATE_DETECTION) ? DupDetector.rootDetector(this) : null;
+  }
+
+  // Only marks it closed (as the end of a document does): its buffers are kept for the next
+  // input, and collected with it.
+  @Override
+  public void close() {
+    _closed = true;
+  }
+}
@@ -0,0 +1,99 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Reads huge top-level sequences of values one value at a time, in constant memory:
+// either the elements of a top-level array (readElements) or root-level values separated
+// by whitespace, eg. newline-delimited JSON (readValues).
+// The returned iterators close their parser once exhausted, or when closed.
+public final class SequenceReader {
+  private SequenceReader() {}
+
+  public static <T> MappingIterator<T> readElements(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , InputStream in) throws IOException {
+    return readElements(mapper, deser, mapper.getFactory().createParser(in));
+  }
+
+  public static <T> MappingIterator<T> readElements(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , Reader in) throws IOException {
+    return readElements(mapper, deser, mapper.getFactory().createParser(in));
+  }
+
+  public static <T> MappingIterator<T> readElements(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , JsonParser p) throws IOException {
+    final DeserializationContext ctxt = Parsers.deserializationContext(mapper, p);
+
+    if (p.nextToken() != JsonToken.START_ARRAY) {
+      p.close();
+      throw new JsonParseException(p, "Current token is not the start of an array");
+    }
+
+    return new ValueIterator<>(mapper, deser, p, ctxt);
+  }
+
+  public static <T> MappingIterator<T> readValues(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , InputStream in) throws IOException {
+    return readValues(mapper, deser, mapper.getFactory().createParser(in));
+  }
+
+  public static <T> MappingIterator<T> readValues(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , Reader in) throws IOException {
+    return readValues(mapper, deser, mapper.getFactory().createParser(in));
+  }
+
+  public static <T> MappingIterator<T> readValues(ObjectMapper mapper
+    , JsonDeserializer<T> deser
+    , JsonParser p) {
+    return new ValueIterator<>(mapper, deser, p, Parsers.deserializationContext(mapper, p));
+  }
+
+  public static <T> Spliterator<T> spliterator(MappingIterator<T> values) {
+    return Spliterators.spliteratorUnknownSize(values, Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  // Closing the returned stream closes the underlying parser.
+  public static <T> Stream<T> stream(MappingIterator<T> values) {
+    return StreamSupport
+      .stream(spliterator(values), false)
+      .onClose(() -> {
+        try {
+          values.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+  }
+
+  // Memory stays constant as long as the head of the stream is not retained.
+  public static <T> fj.data.Stream<T> fjStream(MappingIterator<T> values) {
+    return fj.data.Stream.iteratorStream(values);
+  }
+
+  private static final class ValueIterator<T> extends MappingIterator<T> {
+    ValueIterator(ObjectMapper mapper, JsonDeserializer<T> deser, JsonParser p, DeserializationContext ctxt) {
+      super(mapper.constructType(deser.handledType() == null ? Object.class : deser.handledType())
+        , p
+        , ctxt
+        , deser
+        , true
+        , null);
+    }
+  }
+}
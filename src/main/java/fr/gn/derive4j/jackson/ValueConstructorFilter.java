@@ -0,0 +1,69 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import fj.data.Option;
+
+import java.io.IOException;
+
+// Decodes only the values of some value constructors of an ADT, reading the others as none:
+// those are skipped with skipChildren, without decoding any of their fields. Values of
+// unknown value constructors are skipped as well. Values whose `_tag` comes after other
+// fields still have those fields buffered, as when decoding them.
+@SuppressWarnings("serial")
+public final class ValueConstructorFilter<T> extends StdDeserializer<Option<T>> {
+  private final ValueConstructorTable table;
+  private final JsonDeserializer<T> deser;
+  private final boolean[] accepted;
+
+  private ValueConstructorFilter(ValueConstructorTable table, JsonDeserializer<T> deser, boolean[] accepted) {
+    super(Option.class);
+    this.table = table;
+    this.deser = deser;
+    this.accepted = accepted;
+  }
+
+  public static <T> JsonDeserializer<Option<T>> filter(ValueConstructorTable table
+    , JsonDeserializer<T> deser
+    , String... valueConstructors) {
+    final boolean[] accepted = new boolean[table.size()];
+
+    for (String valueConstructor : valueConstructors) {
+      final int index = table.indexOf(valueConstructor);
+
+      if (index < 0)
+        throw new IllegalArgumentException("Unknown value constructor: " + valueConstructor);
+
+      accepted[index] = true;
+    }
+
+    return new ValueConstructorFilter<>(table, deser, accepted);
+  }
+
+  @Override
+  public Option<T> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.isExpectedStartArrayToken()) {
+      if (!accepts(Parsers.positionalValueConstructor(p))) {
+        Parsers.skipComponents(p);
+        return Option.none();
+      }
+
+      return Option.some(deser.deserialize(Parsers.unreadPositionalValueConstructor(p, ctxt), ctxt));
+    }
+
+    final JsonParser parser = Parsers.seekValueConstructor(p, ctxt);
+
+    if (!accepts(table.indexOf(parser))) {
+      Parsers.skipFields(parser);
+      return Option.none();
+    }
+
+    return Option.some(deser.deserialize(parser, ctxt));
+  }
+
+  private boolean accepts(int index) {
+    return index >= 0 && index < accepted.length && accepted[index];
+  }
+}
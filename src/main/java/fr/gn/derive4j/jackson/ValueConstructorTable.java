@@ -0,0 +1,114 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+// Maps the text of the current token to the index of a value constructor,
+// reading the parser's character buffer instead of materializing a String.
+// The open addressing table is sized up until no two names share a slot
+// (a perfect hash), so that a lookup is one hash plus one comparison.
+public final class ValueConstructorTable {
+  private static final int maxSizeFactor = 16;
+
+  private final String[] valueConstructors;
+  private final char[][] names;
+  private final int[] indexes;
+  private final int mask;
+
+  // Names are given in constructor index order.
+  public ValueConstructorTable(String... names) {
+    final int minSize = Integer.highestOneBit(Math.max(1, names.length) * 2 - 1) << 1;
+
+    int size = minSize;
+    while (size < minSize * maxSizeFactor && !isPerfect(names, size - 1))
+      size <<= 1;
+
+    this.valueConstructors = names.clone();
+    this.names = new char[size][];
+    this.indexes = new int[size];
+    this.mask = size - 1;
+
+    for (int i = 0; i < names.length; i++) {
+      final char[] name = names[i].toCharArray();
+
+      int slot = slot(hash(name, 0, name.length));
+      while (this.names[slot] != null)
+        slot = (slot + 1) & mask;
+
+      this.names[slot] = name;
+      this.indexes[slot] = i;
+    }
+  }
+
+  // The index of the constructor named by the current token text, -1 if none is.
+  public int indexOf(JsonParser p) throws IOException {
+    return indexOf(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+  }
+
+  // The index of the constructor with the given name, -1 if none has it.
+  public int indexOf(String name) {
+    final char[] chars = name.toCharArray();
+    return indexOf(chars, 0, chars.length);
+  }
+
+  public String name(int index) {
+    return valueConstructors[index];
+  }
+
+  public int size() {
+    return valueConstructors.length;
+  }
+
+  private int indexOf(char[] text, int offset, int length) {
+    for (int slot = slot(hash(text, offset, length)); ; slot = (slot + 1) & mask) {
+      final char[] name = names[slot];
+
+      if (name == null)
+        return -1;
+
+      if (matches(name, text, offset, length))
+        return indexes[slot];
+    }
+  }
+
+  private int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private static boolean isPerfect(String[] names, int mask) {
+    final boolean[] taken = new boolean[mask + 1];
+
+    for (String name : names) {
+      final char[] chars = name.toCharArray();
+      final int hash = hash(chars, 0, chars.length);
+      final int slot = (hash ^ (hash >>> 16)) & mask;
+
+      if (taken[slot])
+        return false;
+
+      taken[slot] = true;
+    }
+
+    return true;
+  }
+
+  private static int hash(char[] chars, int offset, int length) {
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++)
+      hash = 31 * hash + chars[i];
+
+    return hash;
+  }
+
+  private static boolean matches(char[] name, char[] text, int offset, int length) {
+    if (name.length != length)
+      return false;
+
+    for (int i = 0; i < length; i++)
+      if (name[i] != text[offset + i])
+        return false;
+
+    return true;
+  }
+}
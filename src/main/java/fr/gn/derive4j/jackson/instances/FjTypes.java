@@ -3,18 +3,36 @@ package fr.gn.derive4j.jackson.instances;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import fj.Ord;
-import fj.Unit;
+import fj.P;
+import fj.P1;
+import fj.P2;
 import fj.data.*;
-import fj.function.TryEffect0;
+import fr.gn.derive4j.Constants.EncodedFieldNameFor;
+import fr.gn.derive4j.Constants.EncodedFieldValueFor;
 import fr.gn.derive4j.Constants.FieldNameFor;
 import fr.gn.derive4j.Constants.FieldValueFor;
+import fr.gn.derive4j.Constants.ValueConstructorIndexFor;
+import fr.gn.derive4j.jackson.Exceptions;
+import fr.gn.derive4j.jackson.JsonNodeDecoder;
+import fr.gn.derive4j.jackson.JsonNodeEncoder;
+import fr.gn.derive4j.jackson.JsonNodes;
+import fr.gn.derive4j.jackson.LazyValue;
+import fr.gn.derive4j.jackson.Parsers;
+import fr.gn.derive4j.jackson.PositionalEncoding;
+import fr.gn.derive4j.jackson.RejectedInputException;
+import fr.gn.derive4j.jackson.ValueConstructorTable;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.UncheckedIOException;
 
+import static fr.gn.derive4j.jackson.InstanceCache.memoize;
 import static fr.gn.derive4j.jackson.instances.Functions.stdDeserializer;
 import static fr.gn.derive4j.jackson.instances.Functions.stdSerialiser;
 
@@ -24,169 +42,760 @@ public final class FjTypes {
   // ## Serializers
 
   public static <T> JsonSerializer<Option<T>> optionStdSerializer(JsonSerializer<T> tSer) {
+    return memoize(Option.class, JsonSerializer.class, tSer, FjTypes::newOptionStdSerializer);
+  }
+
+  private static <T> JsonSerializer<Option<T>> newOptionStdSerializer(JsonSerializer<T> tSer) {
     return stdSerialiser(_class(Option.class), (value, gen, provider) -> {
+        if (PositionalEncoding.isEnabled(provider)) {
+          gen.writeStartArray();
+
+          if (value.isSome())
+            writeComponent(gen, provider, ValueConstructorIndexFor.Option.someValueConstructor, tSer, value.some());
+          else
+            gen.writeNumber(ValueConstructorIndexFor.Option.noneValueConstructor);
+
+          gen.writeEndArray();
+          return;
+        }
+
         gen.writeStartObject();
 
-        value
-          .<IO<Unit>>option(() -> writeValueConstructor(gen, FieldValueFor.Option.noneValueConstructor)
-            , t -> sequence(writeValueConstructor(gen, FieldValueFor.Option.someValueConstructor)
-              , writeValue(gen, provider, tSer, t)))
-          .run();
+        if (value.isSome())
+          writeValue(gen, provider, EncodedFieldValueFor.Option.someValueConstructor, tSer, value.some());
+        else
+          writeValueConstructor(gen, EncodedFieldValueFor.Option.noneValueConstructor);
 
         gen.writeEndObject();
     });
   }
 
   public static <T> JsonSerializer<List<T>> listStdSerializer(JsonSerializer<T> tSer) {
+    return memoize(List.class, JsonSerializer.class, tSer, FjTypes::newListStdSerializer);
+  }
+
+  private static <T> JsonSerializer<List<T>> newListStdSerializer(JsonSerializer<T> tSer) {
     return stdSerialiser(_class(List.class), (value, gen, provider) -> {
         gen.writeStartArray();
 
-        value.foreachDoEffect(t -> {
-          try {
-            tSer.serialize(t, gen, provider);
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        });
+        for (List<T> ts = value; ts.isNotEmpty(); ts = ts.tail())
+          tSer.serialize(ts.head(), gen, provider);
 
         gen.writeEndArray();
     });
   }
 
   public static <A, B> JsonSerializer<Either<A, B>> eitherStdSerializer(JsonSerializer<A> leftSer, JsonSerializer<B> rightSer) {
+    return memoize(Either.class, JsonSerializer.class, leftSer, rightSer, FjTypes::newEitherStdSerializer);
+  }
+
+  private static <A, B> JsonSerializer<Either<A, B>> newEitherStdSerializer(JsonSerializer<A> leftSer, JsonSerializer<B> rightSer) {
     return stdSerialiser(_class(Either.class), (value, gen, provider) -> {
+        if (PositionalEncoding.isEnabled(provider)) {
+          gen.writeStartArray();
+
+          if (value.isLeft())
+            writeComponent(gen, provider, ValueConstructorIndexFor.Either.leftValueConstructor, leftSer, value.either(FjTypes::same, FjTypes::absurd));
+          else
+            writeComponent(gen, provider, ValueConstructorIndexFor.Either.rightValueConstructor, rightSer, value.either(FjTypes::absurd, FjTypes::same));
+
+          gen.writeEndArray();
+          return;
+        }
+
         gen.writeStartObject();
 
-        value
-          .either(left ->
-              sequence(writeValueConstructor(gen, FieldValueFor.Either.leftValueConstructor)
-                , writeValue(gen, provider, leftSer, left))
-            , right ->
-              sequence(writeValueConstructor(gen, FieldValueFor.Either.rightValueConstructor)
-                , writeValue(gen, provider, rightSer, right)))
-          .run();
+        if (value.isLeft())
+          writeValue(gen, provider, EncodedFieldValueFor.Either.leftValueConstructor, leftSer, value.either(FjTypes::same, FjTypes::absurd));
+        else
+          writeValue(gen, provider, EncodedFieldValueFor.Either.rightValueConstructor, rightSer, value.either(FjTypes::absurd, FjTypes::same));
 
         gen.writeEndObject();
     });
   }
 
   public static <T> JsonSerializer<Set<T>> setStdSerializer(JsonSerializer<T> tSer) {
+    return memoize(Set.class, JsonSerializer.class, tSer, FjTypes::newSetStdSerializer);
+  }
+
+  private static <T> JsonSerializer<Set<T>> newSetStdSerializer(JsonSerializer<T> tSer) {
+    final JsonSerializer<List<T>> listSer = listStdSerializer(tSer);
+
     return stdSerialiser(_class(Set.class), (value, gen, provider) ->
-      listStdSerializer(tSer).serialize(value.toList(), gen, provider));
+      listSer.serialize(value.toList(), gen, provider));
+  }
+
+  public static <E, T> JsonSerializer<Validation<E, T>> validationStdSerializer(JsonSerializer<E> failSer, JsonSerializer<T> successSer) {
+    return memoize(Validation.class, JsonSerializer.class, failSer, successSer, FjTypes::newValidationStdSerializer);
+  }
+
+  private static <E, T> JsonSerializer<Validation<E, T>> newValidationStdSerializer(JsonSerializer<E> failSer, JsonSerializer<T> successSer) {
+    return stdSerialiser(_class(Validation.class), (value, gen, provider) -> {
+        if (PositionalEncoding.isEnabled(provider)) {
+          gen.writeStartArray();
+
+          if (value.isFail())
+            writeComponent(gen, provider, ValueConstructorIndexFor.Validation.failValueConstructor, failSer, value.fail());
+          else
+            writeComponent(gen, provider, ValueConstructorIndexFor.Validation.successValueConstructor, successSer, value.success());
+
+          gen.writeEndArray();
+          return;
+        }
+
+        gen.writeStartObject();
+
+        if (value.isFail())
+          writeValue(gen, provider, EncodedFieldValueFor.Validation.failValueConstructor, failSer, value.fail());
+        else
+          writeValue(gen, provider, EncodedFieldValueFor.Validation.successValueConstructor, successSer, value.success());
+
+        gen.writeEndObject();
+    });
+  }
+
+  public static <A, B> JsonSerializer<P2<A, B>> p2StdSerializer(JsonSerializer<A> aSer, JsonSerializer<B> bSer) {
+    return memoize(P2.class, JsonSerializer.class, aSer, bSer, FjTypes::newP2StdSerializer);
+  }
+
+  private static <A, B> JsonSerializer<P2<A, B>> newP2StdSerializer(JsonSerializer<A> aSer, JsonSerializer<B> bSer) {
+    return stdSerialiser(_class(P2.class), (value, gen, provider) -> {
+        if (PositionalEncoding.isEnabled(provider)) {
+          gen.writeStartArray();
+          aSer.serialize(value._1(), gen, provider);
+          bSer.serialize(value._2(), gen, provider);
+          gen.writeEndArray();
+          return;
+        }
+
+        gen.writeStartObject();
+
+        gen.writeFieldName(EncodedFieldNameFor._1);
+        aSer.serialize(value._1(), gen, provider);
+
+        gen.writeFieldName(EncodedFieldNameFor._2);
+        bSer.serialize(value._2(), gen, provider);
+
+        gen.writeEndObject();
+    });
+  }
+
+  // Lazy values are written as the value they stand for.
+  public static <T> JsonSerializer<P1<T>> p1StdSerializer(JsonSerializer<T> tSer) {
+    return memoize(P1.class, JsonSerializer.class, tSer, FjTypes::newP1StdSerializer);
+  }
+
+  private static <T> JsonSerializer<P1<T>> newP1StdSerializer(JsonSerializer<T> tSer) {
+    return stdSerialiser(_class(P1.class), (value, gen, provider) ->
+      tSer.serialize(value._1(), gen, provider));
+  }
+
+  public static <T> JsonSerializer<NonEmptyList<T>> nonEmptyListStdSerializer(JsonSerializer<T> tSer) {
+    return memoize(NonEmptyList.class, JsonSerializer.class, tSer, FjTypes::newNonEmptyListStdSerializer);
+  }
+
+  private static <T> JsonSerializer<NonEmptyList<T>> newNonEmptyListStdSerializer(JsonSerializer<T> tSer) {
+    return stdSerialiser(_class(NonEmptyList.class), (value, gen, provider) -> {
+        gen.writeStartArray();
+
+        tSer.serialize(value.head(), gen, provider);
+
+        for (List<T> ts = value.tail(); ts.isNotEmpty(); ts = ts.tail())
+          tSer.serialize(ts.head(), gen, provider);
+
+        gen.writeEndArray();
+    });
   }
 
   // ## Deserializers
 
+  // Indexed as in ValueConstructorIndexFor: both encodings share the same dispatch.
+  private static final ValueConstructorTable
+    optionValueConstructors = new ValueConstructorTable(FieldValueFor.Option.noneValueConstructor
+      , FieldValueFor.Option.someValueConstructor)
+
+    , eitherValueConstructors = new ValueConstructorTable(FieldValueFor.Either.leftValueConstructor
+      , FieldValueFor.Either.rightValueConstructor)
+
+    , validationValueConstructors = new ValueConstructorTable(FieldValueFor.Validation.failValueConstructor
+      , FieldValueFor.Validation.successValueConstructor);
+
   public static <T> JsonDeserializer<Option<T>> optionStdDeserializer(JsonDeserializer<T> tDeser) {
+    return memoize(Option.class, JsonDeserializer.class, tDeser, FjTypes::newOptionStdDeserializer);
+  }
+
+  private static <T> JsonDeserializer<Option<T>> newOptionStdDeserializer(JsonDeserializer<T> tDeser) {
     return stdDeserializer(_class(Option.class), (p, ctxt) -> {
-        if (!p.isExpectedStartObjectToken())
-          throw new JsonParseException(p, "Current token is not the start of an object");
+        if (p.isExpectedStartArrayToken())
+          switch (Parsers.positionalValueConstructor(p)) {
+
+            case ValueConstructorIndexFor.Option.someValueConstructor:
+              return Option.some(readComponent(p, ctxt, tDeser));
+
+            case ValueConstructorIndexFor.Option.noneValueConstructor:
+              Parsers.skipComponents(p);
+              return none();
 
-        final JsonNode jsonNode = p.readValueAsTree();
-        final ObjectCodec codec = p.getCodec();
-        final String valueConstructor =
-          jsonNode.findPath(FieldNameFor.valueConstructor).asText();
+            default: throw new RejectedInputException(p, "Unknown value constructor");
+          }
+
+        final JsonParser parser = Parsers.seekValueConstructor(p, ctxt);
 
-        switch (valueConstructor) {
+        switch (optionValueConstructors.indexOf(parser)) {
 
-          case FieldValueFor.Option.someValueConstructor:
-            return Option.some(readValue(ctxt, jsonNode, codec, tDeser));
+          case ValueConstructorIndexFor.Option.someValueConstructor:
+            return Option.some(readValue(parser, ctxt, tDeser));
 
-          case FieldValueFor.Option.noneValueConstructor:
-            return Option.none();
+          case ValueConstructorIndexFor.Option.noneValueConstructor:
+            Parsers.skipFields(parser);
+            return none();
 
-          default: throw new JsonParseException(p, "Unknown value constructor");
+          default: throw new RejectedInputException(parser, "Unknown value constructor");
         }
     });
   }
 
   public static <T> JsonDeserializer<List<T>> listStdDeserializer(JsonDeserializer<T> tDeser) {
+    return memoize(List.class, JsonDeserializer.class, tDeser, FjTypes::newListStdDeserializer);
+  }
+
+  private static <T> JsonDeserializer<List<T>> newListStdDeserializer(JsonDeserializer<T> tDeser) {
     return stdDeserializer(_class(List.class), (p, ctx) -> {
         if (!p.isExpectedStartArrayToken())
           throw new JsonParseException(p, "Current token is not the start of an array");
 
-        final JsonNode jsonNode = p.readValueAsTree();
         final List.Buffer<T> buffer = new List.Buffer<>();
 
-        jsonNode.elements().forEachRemaining(jsn -> {
-          final JsonParser eltParser = jsn.traverse(p.getCodec());
-          try {
-            eltParser.nextToken();
-            final T t = tDeser.deserialize(eltParser, ctx);
-            buffer.snoc(t);
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        });
+        while (Parsers.nextElement(p))
+          buffer.snoc(tDeser.deserialize(p, ctx));
 
         return buffer.toList();
     });
   }
 
   public static <A, B> JsonDeserializer<Either<A, B>> eitherStdDeserializer(JsonDeserializer<A> leftDeser, JsonDeserializer<B> rightDeser) {
+    return memoize(Either.class, JsonDeserializer.class, leftDeser, rightDeser, FjTypes::newEitherStdDeserializer);
+  }
+
+  private static <A, B> JsonDeserializer<Either<A, B>> newEitherStdDeserializer(JsonDeserializer<A> leftDeser, JsonDeserializer<B> rightDeser) {
     return stdDeserializer(_class(Either.class), (p, ctxt) -> {
-        if (!p.isExpectedStartObjectToken())
-          throw new JsonParseException(p, "Current token is not the start of an object");
+        if (p.isExpectedStartArrayToken())
+          switch (Parsers.positionalValueConstructor(p)) {
 
-        final JsonNode jsonNode = p.readValueAsTree();
-        final ObjectCodec codec = p.getCodec();
-        final String valueConstructor =
-          jsonNode.findPath(FieldNameFor.valueConstructor).asText();
+            case ValueConstructorIndexFor.Either.leftValueConstructor:
+              return Either.left(readComponent(p, ctxt, leftDeser));
 
-        switch (valueConstructor) {
+            case ValueConstructorIndexFor.Either.rightValueConstructor:
+              return Either.right(readComponent(p, ctxt, rightDeser));
 
-          case FieldValueFor.Either.leftValueConstructor:
-            return Either.left(readValue(ctxt, jsonNode, codec, leftDeser));
+            default: throw new RejectedInputException(p, "Unknown value constructor");
+          }
+
+        final JsonParser parser = Parsers.seekValueConstructor(p, ctxt);
+
+        switch (eitherValueConstructors.indexOf(parser)) {
+
+          case ValueConstructorIndexFor.Either.leftValueConstructor:
+            return Either.left(readValue(parser, ctxt, leftDeser));
 
-          case FieldValueFor.Either.rightValueConstructor:
-            return Either.right(readValue(ctxt, jsonNode, codec, rightDeser));
+          case ValueConstructorIndexFor.Either.rightValueConstructor:
+            return Either.right(readValue(parser, ctxt, rightDeser));
 
-          default: throw new JsonParseException(p, "Unknown value constructor");
+          default: throw new RejectedInputException(parser, "Unknown value constructor");
         }
     });
   }
 
   public static <T> JsonDeserializer<Set<T>> setStdDeserializer(Ord<T> tOrd, JsonDeserializer<T> tDeser) {
-    return stdDeserializer(_class(Set.class), (p, ctxt) ->
-      Set.iterableSet(tOrd, listStdDeserializer(tDeser).deserialize(p, ctxt)));
+    return memoize(Set.class, JsonDeserializer.class, tOrd, tDeser, FjTypes::newSetStdDeserializer);
+  }
+
+  private static <T> JsonDeserializer<Set<T>> newSetStdDeserializer(Ord<T> tOrd, JsonDeserializer<T> tDeser) {
+    return stdDeserializer(_class(Set.class), (p, ctxt) -> {
+        if (!p.isExpectedStartArrayToken())
+          throw new JsonParseException(p, "Current token is not the start of an array");
+
+        Set<T> set = Set.empty(tOrd);
+
+        while (Parsers.nextElement(p))
+          set = set.insert(tDeser.deserialize(p, ctxt));
+
+        return set;
+    });
+  }
+
+
+  public static <E, T> JsonDeserializer<Validation<E, T>> validationStdDeserializer(JsonDeserializer<E> failDeser, JsonDeserializer<T> successDeser) {
+    return memoize(Validation.class, JsonDeserializer.class, failDeser, successDeser, FjTypes::newValidationStdDeserializer);
+  }
+
+  private static <E, T> JsonDeserializer<Validation<E, T>> newValidationStdDeserializer(JsonDeserializer<E> failDeser, JsonDeserializer<T> successDeser) {
+    return stdDeserializer(_class(Validation.class), (p, ctxt) -> {
+        if (p.isExpectedStartArrayToken())
+          switch (Parsers.positionalValueConstructor(p)) {
+
+            case ValueConstructorIndexFor.Validation.failValueConstructor:
+              return Validation.fail(readComponent(p, ctxt, failDeser));
+
+            case ValueConstructorIndexFor.Validation.successValueConstructor:
+              return Validation.success(readComponent(p, ctxt, successDeser));
+
+            default: throw new RejectedInputException(p, "Unknown value constructor");
+          }
+
+        final JsonParser parser = Parsers.seekValueConstructor(p, ctxt);
+
+        switch (validationValueConstructors.indexOf(parser)) {
+
+          case ValueConstructorIndexFor.Validation.failValueConstructor:
+            return Validation.fail(readValue(parser, ctxt, failDeser));
+
+          case ValueConstructorIndexFor.Validation.successValueConstructor:
+            return Validation.success(readValue(parser, ctxt, successDeser));
+
+          default: throw new RejectedInputException(parser, "Unknown value constructor");
+        }
+    });
   }
 
+  public static <A, B> JsonDeserializer<P2<A, B>> p2StdDeserializer(JsonDeserializer<A> aDeser, JsonDeserializer<B> bDeser) {
+    return memoize(P2.class, JsonDeserializer.class, aDeser, bDeser, FjTypes::newP2StdDeserializer);
+  }
+
+  private static <A, B> JsonDeserializer<P2<A, B>> newP2StdDeserializer(JsonDeserializer<A> aDeser, JsonDeserializer<B> bDeser) {
+    return stdDeserializer(_class(P2.class), (p, ctxt) -> {
+        if (p.isExpectedStartArrayToken()) {
+          Parsers.nextComponent(p);
+          final A a = aDeser.deserialize(p, ctxt);
+
+          Parsers.nextComponent(p);
+          final B b = bDeser.deserialize(p, ctxt);
+
+          Parsers.skipComponents(p);
+          return P.p(a, b);
+        }
 
-  private static <T> IO<Unit> writeValueConstructor(JsonGenerator gen, String valueConstructor) {
-    return fromTryEffect(() -> {
-      gen.writeStringField(FieldNameFor.valueConstructor, valueConstructor);
+        if (!p.isExpectedStartObjectToken())
+          throw new JsonParseException(p, "Current token is not the start of an object");
+
+        A a = null;
+        B b = null;
+        boolean foundA = false, foundB = false;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+          final String fieldName = p.getCurrentName();
+          p.nextToken();
+
+          if (!foundA && FieldNameFor._1.equals(fieldName)) {
+            a = aDeser.deserialize(p, ctxt);
+            foundA = true;
+          } else if (!foundB && FieldNameFor._2.equals(fieldName)) {
+            b = bDeser.deserialize(p, ctxt);
+            foundB = true;
+          } else
+            p.skipChildren();
+        }
+
+        if (!(foundA && foundB))
+          throw new JsonParseException(p, "Missing product component");
+
+        return P.p(a, b);
     });
   }
 
-  private static <T> IO<Unit> writeValue(JsonGenerator gen
+  // Opt-in lazy decoding: a field typed P1<T> is decoded on first access.
+  public static <T> JsonDeserializer<P1<T>> p1StdDeserializer(JsonDeserializer<T> tDeser) {
+    return memoize(P1.class, JsonDeserializer.class, tDeser, FjTypes::newP1StdDeserializer);
+  }
+
+  private static <T> JsonDeserializer<P1<T>> newP1StdDeserializer(JsonDeserializer<T> tDeser) {
+    return stdDeserializer(_class(P1.class), (p, ctxt) ->
+      LazyValue.capture(p, ctxt, tDeser));
+  }
+
+  public static <T> JsonDeserializer<NonEmptyList<T>> nonEmptyListStdDeserializer(JsonDeserializer<T> tDeser) {
+    return memoize(NonEmptyList.class, JsonDeserializer.class, tDeser, FjTypes::newNonEmptyListStdDeserializer);
+  }
+
+  private static <T> JsonDeserializer<NonEmptyList<T>> newNonEmptyListStdDeserializer(JsonDeserializer<T> tDeser) {
+    return stdDeserializer(_class(NonEmptyList.class), (p, ctx) -> {
+        if (!p.isExpectedStartArrayToken())
+          throw new JsonParseException(p, "Current token is not the start of an array");
+
+        if (!Parsers.nextElement(p))
+          throw new JsonParseException(p, "Empty array for a non empty list");
+
+        final T head = tDeser.deserialize(p, ctx);
+        final List.Buffer<T> tail = new List.Buffer<>();
+
+        while (Parsers.nextElement(p))
+          tail.snoc(tDeser.deserialize(p, ctx));
+
+        return NonEmptyList.nel(head, tail.toList());
+    });
+  }
+
+  // ## JsonNode encoders
+
+  public static <T> JsonNodeEncoder<Option<T>> optionNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return memoize(Option.class, JsonNodeEncoder.class, tEnc, FjTypes::newOptionNodeEncoder);
+  }
+
+  private static <T> JsonNodeEncoder<Option<T>> newOptionNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return (value, nodes) ->
+      value.isSome()
+        ? valueNode(nodes, FieldValueFor.Option.someValueConstructor, tEnc.encode(value.some(), nodes))
+        : valueConstructorNode(nodes, FieldValueFor.Option.noneValueConstructor);
+  }
+
+  public static <T> JsonNodeEncoder<List<T>> listNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return memoize(List.class, JsonNodeEncoder.class, tEnc, FjTypes::newListNodeEncoder);
+  }
+
+  private static <T> JsonNodeEncoder<List<T>> newListNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return (value, nodes) -> {
+      final ArrayNode array = nodes.arrayNode();
+
+      for (List<T> ts = value; ts.isNotEmpty(); ts = ts.tail())
+        array.add(tEnc.encode(ts.head(), nodes));
+
+      return array;
+    };
+  }
+
+  public static <A, B> JsonNodeEncoder<Either<A, B>> eitherNodeEncoder(JsonNodeEncoder<A> leftEnc, JsonNodeEncoder<B> rightEnc) {
+    return memoize(Either.class, JsonNodeEncoder.class, leftEnc, rightEnc, FjTypes::newEitherNodeEncoder);
+  }
+
+  private static <A, B> JsonNodeEncoder<Either<A, B>> newEitherNodeEncoder(JsonNodeEncoder<A> leftEnc, JsonNodeEncoder<B> rightEnc) {
+    return (value, nodes) ->
+      value.isLeft()
+        ? valueNode(nodes, FieldValueFor.Either.leftValueConstructor, leftEnc.encode(value.either(FjTypes::same, FjTypes::absurd), nodes))
+        : valueNode(nodes, FieldValueFor.Either.rightValueConstructor, rightEnc.encode(value.either(FjTypes::absurd, FjTypes::same), nodes));
+  }
+
+  public static <T> JsonNodeEncoder<Set<T>> setNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return memoize(Set.class, JsonNodeEncoder.class, tEnc, FjTypes::newSetNodeEncoder);
+  }
+
+  private static <T> JsonNodeEncoder<Set<T>> newSetNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    final JsonNodeEncoder<List<T>> listEnc = listNodeEncoder(tEnc);
+
+    return (value, nodes) -> listEnc.encode(value.toList(), nodes);
+  }
+
+  public static <E, T> JsonNodeEncoder<Validation<E, T>> validationNodeEncoder(JsonNodeEncoder<E> failEnc, JsonNodeEncoder<T> successEnc) {
+    return memoize(Validation.class, JsonNodeEncoder.class, failEnc, successEnc, FjTypes::newValidationNodeEncoder);
+  }
+
+  private static <E, T> JsonNodeEncoder<Validation<E, T>> newValidationNodeEncoder(JsonNodeEncoder<E> failEnc, JsonNodeEncoder<T> successEnc) {
+    return (value, nodes) ->
+      value.isFail()
+        ? valueNode(nodes, FieldValueFor.Validation.failValueConstructor, failEnc.encode(value.fail(), nodes))
+        : valueNode(nodes, FieldValueFor.Validation.successValueConstructor, successEnc.encode(value.success(), nodes));
+  }
+
+  public static <A, B> JsonNodeEncoder<P2<A, B>> p2NodeEncoder(JsonNodeEncoder<A> aEnc, JsonNodeEncoder<B> bEnc) {
+    return memoize(P2.class, JsonNodeEncoder.class, aEnc, bEnc, FjTypes::newP2NodeEncoder);
+  }
+
+  private static <A, B> JsonNodeEncoder<P2<A, B>> newP2NodeEncoder(JsonNodeEncoder<A> aEnc, JsonNodeEncoder<B> bEnc) {
+    return (value, nodes) -> {
+      final ObjectNode object = nodes.objectNode();
+
+      object.set(FieldNameFor._1, aEnc.encode(value._1(), nodes));
+      object.set(FieldNameFor._2, bEnc.encode(value._2(), nodes));
+
+      return object;
+    };
+  }
+
+  public static <T> JsonNodeEncoder<P1<T>> p1NodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return memoize(P1.class, JsonNodeEncoder.class, tEnc, FjTypes::newP1NodeEncoder);
+  }
+
+  private static <T> JsonNodeEncoder<P1<T>> newP1NodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return (value, nodes) -> tEnc.encode(value._1(), nodes);
+  }
+
+  public static <T> JsonNodeEncoder<NonEmptyList<T>> nonEmptyListNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    return memoize(NonEmptyList.class, JsonNodeEncoder.class, tEnc, FjTypes::newNonEmptyListNodeEncoder);
+  }
+
+  private static <T> JsonNodeEncoder<NonEmptyList<T>> newNonEmptyListNodeEncoder(JsonNodeEncoder<T> tEnc) {
+    final JsonNodeEncoder<List<T>> listEnc = listNodeEncoder(tEnc);
+
+    return (value, nodes) -> listEnc.encode(value.toList(), nodes);
+  }
+
+  // ## JsonNode decoders
+
+  public static <T> JsonNodeDecoder<Option<T>> optionNodeDecoder(JsonNodeDecoder<T> tDec) {
+    return memoize(Option.class, JsonNodeDecoder.class, tDec, FjTypes::newOptionNodeDecoder);
+  }
+
+  private static <T> JsonNodeDecoder<Option<T>> newOptionNodeDecoder(JsonNodeDecoder<T> tDec) {
+    return node -> {
+      if (node.isArray())
+        switch (JsonNodes.positionalValueConstructor(node)) {
+
+          case ValueConstructorIndexFor.Option.someValueConstructor:
+            return Option.some(tDec.decode(JsonNodes.component(node, 1)));
+
+          case ValueConstructorIndexFor.Option.noneValueConstructor:
+            return none();
+
+          default: throw JsonNodes.error("Unknown value constructor");
+        }
+
+      switch (JsonNodes.valueConstructor(node)) {
+
+        case FieldValueFor.Option.someValueConstructor:
+          return Option.some(decodeValue(node, tDec));
+
+        case FieldValueFor.Option.noneValueConstructor:
+          return none();
+
+        default: throw JsonNodes.error("Unknown value constructor");
+      }
+    };
+  }
+
+  public static <T> JsonNodeDecoder<List<T>> listNodeDecoder(JsonNodeDecoder<T> tDec) {
+    return memoize(List.class, JsonNodeDecoder.class, tDec, FjTypes::newListNodeDecoder);
+  }
+
+  private static <T> JsonNodeDecoder<List<T>> newListNodeDecoder(JsonNodeDecoder<T> tDec) {
+    return node -> {
+      final List.Buffer<T> buffer = new List.Buffer<>();
+
+      for (JsonNode element : JsonNodes.array(node))
+        buffer.snoc(tDec.decode(element));
+
+      return buffer.toList();
+    };
+  }
+
+  public static <A, B> JsonNodeDecoder<Either<A, B>> eitherNodeDecoder(JsonNodeDecoder<A> leftDec, JsonNodeDecoder<B> rightDec) {
+    return memoize(Either.class, JsonNodeDecoder.class, leftDec, rightDec, FjTypes::newEitherNodeDecoder);
+  }
+
+  private static <A, B> JsonNodeDecoder<Either<A, B>> newEitherNodeDecoder(JsonNodeDecoder<A> leftDec, JsonNodeDecoder<B> rightDec) {
+    return node -> {
+      if (node.isArray())
+        switch (JsonNodes.positionalValueConstructor(node)) {
+
+          case ValueConstructorIndexFor.Either.leftValueConstructor:
+            return Either.left(leftDec.decode(JsonNodes.component(node, 1)));
+
+          case ValueConstructorIndexFor.Either.rightValueConstructor:
+            return Either.right(rightDec.decode(JsonNodes.component(node, 1)));
+
+          default: throw JsonNodes.error("Unknown value constructor");
+        }
+
+      switch (JsonNodes.valueConstructor(node)) {
+
+        case FieldValueFor.Either.leftValueConstructor:
+          return Either.left(decodeValue(node, leftDec));
+
+        case FieldValueFor.Either.rightValueConstructor:
+          return Either.right(decodeValue(node, rightDec));
+
+        default: throw JsonNodes.error("Unknown value constructor");
+      }
+    };
+  }
+
+  public static <T> JsonNodeDecoder<Set<T>> setNodeDecoder(Ord<T> tOrd, JsonNodeDecoder<T> tDec) {
+    return memoize(Set.class, JsonNodeDecoder.class, tOrd, tDec, FjTypes::newSetNodeDecoder);
+  }
+
+  private static <T> JsonNodeDecoder<Set<T>> newSetNodeDecoder(Ord<T> tOrd, JsonNodeDecoder<T> tDec) {
+    return node -> {
+      Set<T> set = Set.empty(tOrd);
+
+      for (JsonNode element : JsonNodes.array(node))
+        set = set.insert(tDec.decode(element));
+
+      return set;
+    };
+  }
+
+  public static <E, T> JsonNodeDecoder<Validation<E, T>> validationNodeDecoder(JsonNodeDecoder<E> failDec, JsonNodeDecoder<T> successDec) {
+    return memoize(Validation.class, JsonNodeDecoder.class, failDec, successDec, FjTypes::newValidationNodeDecoder);
+  }
+
+  private static <E, T> JsonNodeDecoder<Validation<E, T>> newValidationNodeDecoder(JsonNodeDecoder<E> failDec, JsonNodeDecoder<T> successDec) {
+    return node -> {
+      if (node.isArray())
+        switch (JsonNodes.positionalValueConstructor(node)) {
+
+          case ValueConstructorIndexFor.Validation.failValueConstructor:
+            return Validation.fail(failDec.decode(JsonNodes.component(node, 1)));
+
+          case ValueConstructorIndexFor.Validation.successValueConstructor:
+            return Validation.success(successDec.decode(JsonNodes.component(node, 1)));
+
+          default: throw JsonNodes.error("Unknown value constructor");
+        }
+
+      switch (JsonNodes.valueConstructor(node)) {
+
+        case FieldValueFor.Validation.failValueConstructor:
+          return Validation.fail(decodeValue(node, failDec));
+
+        case FieldValueFor.Validation.successValueConstructor:
+          return Validation.success(decodeValue(node, successDec));
+
+        default: throw JsonNodes.error("Unknown value constructor");
+      }
+    };
+  }
+
+  public static <A, B> JsonNodeDecoder<P2<A, B>> p2NodeDecoder(JsonNodeDecoder<A> aDec, JsonNodeDecoder<B> bDec) {
+    return memoize(P2.class, JsonNodeDecoder.class, aDec, bDec, FjTypes::newP2NodeDecoder);
+  }
+
+  private static <A, B> JsonNodeDecoder<P2<A, B>> newP2NodeDecoder(JsonNodeDecoder<A> aDec, JsonNodeDecoder<B> bDec) {
+    return node -> {
+      if (node.isArray())
+        return P.p(aDec.decode(JsonNodes.component(node, 0)), bDec.decode(JsonNodes.component(node, 1)));
+
+      final JsonNode a = node.get(FieldNameFor._1), b = node.get(FieldNameFor._2);
+
+      if (a == null || b == null)
+        throw JsonNodes.error("Missing product component");
+
+      return P.p(aDec.decode(a), bDec.decode(b));
+    };
+  }
+
+  // As for streams, a P1 is decoded on first access; the tree is its compact copy.
+  public static <T> JsonNodeDecoder<P1<T>> p1NodeDecoder(JsonNodeDecoder<T> tDec) {
+    return memoize(P1.class, JsonNodeDecoder.class, tDec, FjTypes::newP1NodeDecoder);
+  }
+
+  private static <T> JsonNodeDecoder<P1<T>> newP1NodeDecoder(JsonNodeDecoder<T> tDec) {
+    return node ->
+      P.hardMemo(() -> {
+        try {
+          return tDec.decode(node);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+  }
+
+  public static <T> JsonNodeDecoder<NonEmptyList<T>> nonEmptyListNodeDecoder(JsonNodeDecoder<T> tDec) {
+    return memoize(NonEmptyList.class, JsonNodeDecoder.class, tDec, FjTypes::newNonEmptyListNodeDecoder);
+  }
+
+  private static <T> JsonNodeDecoder<NonEmptyList<T>> newNonEmptyListNodeDecoder(JsonNodeDecoder<T> tDec) {
+    final JsonNodeDecoder<List<T>> listDec = listNodeDecoder(tDec);
+
+    return node -> NonEmptyList
+      .fromList(listDec.decode(node))
+      .orSome(() -> {
+        throw Exceptions.sneakyThrow(JsonNodes.error("Empty array for a non empty list"));
+      });
+  }
+
+  private static ObjectNode valueConstructorNode(JsonNodeFactory nodes, String valueConstructor) {
+    final ObjectNode object = nodes.objectNode();
+    object.put(FieldNameFor.valueConstructor, valueConstructor);
+
+    return object;
+  }
+
+  private static ObjectNode valueNode(JsonNodeFactory nodes, String valueConstructor, JsonNode value) {
+    final ObjectNode object = valueConstructorNode(nodes, valueConstructor);
+    object.set(FieldNameFor.value, value);
+
+    return object;
+  }
+
+  private static <T> T decodeValue(JsonNode node, JsonNodeDecoder<T> dec) throws IOException {
+    final JsonNode value = node.get(FieldNameFor.value);
+
+    if (value == null)
+      throw JsonNodes.error("Missing value");
+
+    return dec.decode(value);
+  }
+
+  private static void writeValueConstructor(JsonGenerator gen, SerializableString valueConstructor) throws IOException {
+    gen.writeFieldName(EncodedFieldNameFor.valueConstructor);
+    gen.writeString(valueConstructor);
+  }
+
+  private static <T> void writeValue(JsonGenerator gen
     , SerializerProvider provider
+    , SerializableString valueConstructor
     , JsonSerializer<T> ser
-    , T left) {
-    return fromTryEffect(() -> {
-      gen.writeFieldName(FieldNameFor.value);
-      ser.serialize(left, gen, provider);
-    });
+    , T value) throws IOException {
+    writeValueConstructor(gen, valueConstructor);
+    gen.writeFieldName(EncodedFieldNameFor.value);
+    ser.serialize(value, gen, provider);
   }
 
-  private static <T> T readValue(DeserializationContext ctxt
-    , JsonNode jsonNode
-    , ObjectCodec codec
+  private static <T> void writeComponent(JsonGenerator gen
+    , SerializerProvider provider
+    , int valueConstructor
+    , JsonSerializer<T> ser
+    , T value) throws IOException {
+    gen.writeNumber(valueConstructor);
+    ser.serialize(value, gen, provider);
+  }
+
+  private static <T> T readComponent(JsonParser parser
+    , DeserializationContext ctxt
+    , JsonDeserializer<T> deser) throws IOException {
+    Parsers.nextComponent(parser);
+    final T value = deser.deserialize(parser, ctxt);
+
+    Parsers.skipComponents(parser);
+    return value;
+  }
+
+  private static <T> T readValue(JsonParser parser
+    , DeserializationContext ctxt
     , JsonDeserializer<T> deser) throws IOException {
-    final JsonParser valueParser = jsonNode.findPath(FieldNameFor.value).traverse(codec);
-    valueParser.nextToken();
-    return deser.deserialize(valueParser, ctxt);
+    T value = null;
+    boolean found = false;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String fieldName = parser.getCurrentName();
+      parser.nextToken();
+
+      if (!found && FieldNameFor.value.equals(fieldName)) {
+        value = deser.deserialize(parser, ctxt);
+        found = true;
+      } else
+        parser.skipChildren();
+    }
+
+    if (!found)
+      throw new JsonParseException(parser, "Missing value");
+
+    return value;
   }
 
-  private static IO<Unit> sequence(IO<?>... ios) {
-    return IOFunctions
-      .map(Arrays
-          .stream(ios)
-          .reduce(IOFunctions.unit(Unit.unit()), (io1, io2) -> IOFunctions.bind(io1, __ -> io2))
-        , __ -> Unit.unit());
+  // Non-capturing, hence allocation-free, projections of an Either.
+  private static <T> T same(T t) {
+    return t;
   }
 
-  private static IO<Unit> fromTryEffect(TryEffect0<? extends IOException> t) {
-    return () -> { t.f(); return Unit.unit(); };
+  private static <T, U> U absurd(T t) {
+    throw new IllegalStateException("Unexpected either side");
+  }
+
+  // Read once for all: every none is the same.
+  private static final Option<?> none = Option.none();
+
+  @SuppressWarnings("unchecked")
+  private static <T> Option<T> none() {
+    return (Option<T>) none;
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,463 @@
+package fr.gn.derive4j.jackson.instances;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.*;
+import java.util.Collections;
+import java.util.function.Function;
+
+// ISO-8601 texts of java.time values, written to and read from char arrays (the generator's
+// and the parser's buffers), in the forms the ISO formatters of DateTimeFormatter print.
+// Anything else (years beyond 9999, lenient spellings, offsets with seconds...) is left to the
+// formatters: the instances of JavaTypes accept and produce exactly what they did with them.
+final class Iso8601 {
+  private Iso8601() {}
+
+  // Longer than any text written here: longer ones are left to the formatters.
+  private static final int maxLength = 64;
+
+  // Written into, then copied by the generator (or into a String) before the next value.
+  private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[maxLength]);
+
+  // The length of the text of the value, or -1 to leave it to the formatter.
+  interface Writer<T> {
+    int write(T value, char[] buf);
+  }
+
+  // The value of the text, or null to leave it to the formatter.
+  interface Reader<T> {
+    T read(char[] cs, int off, int len);
+  }
+
+  static <T> void write(JsonGenerator gen, T value, Writer<T> writer, Function<T, String> format) throws IOException {
+    final char[] buf = buffers.get();
+    final int len = writer.write(value, buf);
+
+    if (len < 0)
+      gen.writeString(format.apply(value));
+    else
+      gen.writeString(buf, 0, len);
+  }
+
+  static <T> String text(T value, Writer<T> writer, Function<T, String> format) {
+    final char[] buf = buffers.get();
+    final int len = writer.write(value, buf);
+
+    return len < 0 ? format.apply(value) : new String(buf, 0, len);
+  }
+
+  static <T> T read(JsonParser p, Reader<T> reader, Function<String, T> parse) throws IOException {
+    if (p.hasToken(JsonToken.VALUE_STRING)) {
+      final int len = p.getTextLength();
+      final T value = len > maxLength ? null : reader.read(p.getTextCharacters(), p.getTextOffset(), len);
+
+      if (value != null)
+        return value;
+    }
+
+    return parse.apply(p.getValueAsString());
+  }
+
+  static <T> T parse(String text, Reader<T> reader, Function<String, T> parse) {
+    final T value = text == null || text.length() > maxLength ? null : reader.read(text.toCharArray(), 0, text.length());
+
+    return value != null ? value : parse.apply(text);
+  }
+
+  // ## Writers
+
+  // As DateTimeFormatter.ISO_DATE
+  static int localDate(LocalDate value, char[] buf) {
+    return date(value.getYear(), value.getMonthValue(), value.getDayOfMonth(), buf, 0);
+  }
+
+  // As DateTimeFormatter.ISO_DATE_TIME (and ISO_LOCAL_DATE_TIME)
+  static int localDateTime(LocalDateTime value, char[] buf) {
+    final int pos = date(value.getYear(), value.getMonthValue(), value.getDayOfMonth(), buf, 0);
+
+    return pos < 0 ? -1 : time(value.getHour(), value.getMinute(), value.getSecond(), value.getNano(), false, buf, pos);
+  }
+
+  // As DateTimeFormatter.ISO_OFFSET_DATE_TIME
+  static int offsetDateTime(OffsetDateTime value, char[] buf) {
+    final int pos = localDateTime(value.toLocalDateTime(), buf);
+
+    return pos < 0 ? -1 : id(value.getOffset().getId(), buf, pos);
+  }
+
+  // As DateTimeFormatter.ISO_ZONED_DATE_TIME: the region of the zone, if any, follows the offset.
+  static int zonedDateTime(ZonedDateTime value, char[] buf) {
+    final int pos = localDateTime(value.toLocalDateTime(), buf);
+    final int end = pos < 0 ? -1 : id(value.getOffset().getId(), buf, pos);
+
+    if (end < 0 || value.getZone() instanceof ZoneOffset)
+      return end;
+
+    final String region = value.getZone().getId();
+
+    if (end + region.length() + 2 > buf.length)
+      return -1;
+
+    buf[end] = '[';
+    region.getChars(0, region.length(), buf, end + 1);
+    buf[end + region.length() + 1] = ']';
+
+    return end + region.length() + 2;
+  }
+
+  // As DateTimeFormatter.ISO_INSTANT: the fraction of second, if any, by groups of three digits.
+  static int instant(Instant value, char[] buf) {
+    final long seconds = value.getEpochSecond();
+
+    if (seconds < minEpochSecond || seconds >= maxEpochSecond)
+      return -1;
+
+    final LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(seconds, secondsPerDay));
+    final int secondOfDay = (int) Math.floorMod(seconds, secondsPerDay);
+    final int pos = time(secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60, value.getNano(), true, buf
+      , date(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), buf, 0));
+
+    buf[pos] = 'Z';
+
+    return pos + 1;
+  }
+
+  // As Duration.toString, but for negative durations with a fraction of second, that it
+  // spells differently from Java 9 on.
+  static int duration(Duration value, char[] buf) {
+    final long seconds = value.getSeconds();
+    final int nanos = value.getNano();
+
+    if (seconds < 0 && nanos > 0)
+      return -1;
+
+    final long hours = seconds / 3600;
+    final int minutes = (int) (seconds % 3600 / 60);
+    final int secs = (int) (seconds % 60);
+
+    buf[0] = 'P';
+    buf[1] = 'T';
+    int pos = 2;
+
+    if (hours != 0) {
+      pos = number(hours, buf, pos);
+      buf[pos++] = 'H';
+    }
+
+    if (minutes != 0) {
+      pos = number(minutes, buf, pos);
+      buf[pos++] = 'M';
+    }
+
+    if (secs != 0 || nanos != 0 || pos == 2) {
+      pos = number(secs, buf, pos);
+
+      if (nanos != 0)
+        pos = fraction(nanos, false, buf, pos);
+
+      buf[pos++] = 'S';
+    }
+
+    return pos;
+  }
+
+  private static final long secondsPerDay = 86400;
+  private static final long minEpochSecond = -62167219200L; // 0000-01-01T00:00:00Z
+  private static final long maxEpochSecond = 253402300800L; // 10000-01-01T00:00:00Z
+
+  private static int date(int year, int month, int day, char[] buf, int pos) {
+    if (year < 0 || year > 9999)
+      return -1;
+
+    digits(year, 4, buf, pos);
+    buf[pos + 4] = '-';
+    digits(month, 2, buf, pos + 5);
+    buf[pos + 7] = '-';
+    digits(day, 2, buf, pos + 8);
+
+    return pos + 10;
+  }
+
+  // THH:mm:ss, then the fraction of second if any, by groups of three digits or as short as possible.
+  private static int time(int hour, int minute, int second, int nano, boolean groups, char[] buf, int pos) {
+    buf[pos] = 'T';
+    digits(hour, 2, buf, pos + 1);
+    buf[pos + 3] = ':';
+    digits(minute, 2, buf, pos + 4);
+    buf[pos + 6] = ':';
+    digits(second, 2, buf, pos + 7);
+
+    return nano == 0 ? pos + 9 : fraction(nano, groups, buf, pos + 9);
+  }
+
+  private static int fraction(int nano, boolean groups, char[] buf, int pos) {
+    buf[pos] = '.';
+    digits(nano, 9, buf, pos + 1);
+
+    int end = pos + 10;
+
+    if (groups)
+      return nano % 1000000 == 0 ? end - 6 : nano % 1000 == 0 ? end - 3 : end;
+
+    while (buf[end - 1] == '0')
+      end--;
+
+    return end;
+  }
+
+  private static int id(String id, char[] buf, int pos) {
+    id.getChars(0, id.length(), buf, pos);
+
+    return pos + id.length();
+  }
+
+  private static void digits(int value, int width, char[] buf, int pos) {
+    for (int i = pos + width - 1; i >= pos; i--) {
+      buf[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  private static int number(long value, char[] buf, int pos) {
+    if (value < 0) {
+      buf[pos++] = '-';
+      value = -value;
+    }
+
+    int width = 1;
+
+    for (long rest = value / 10; rest != 0; rest /= 10)
+      width++;
+
+    for (int i = pos + width - 1; i >= pos; i--) {
+      buf[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+
+    return pos + width;
+  }
+
+  // ## Readers
+
+  // yyyy-MM-dd
+  static LocalDate localDate(char[] cs, int off, int len) {
+    return len == 10 ? date(cs, off) : null;
+  }
+
+  // yyyy-MM-ddTHH:mm[:ss[.fffffffff]]
+  static LocalDateTime localDateTime(char[] cs, int off, int len) {
+    final LocalDate date = len > 10 && cs[off + 10] == 'T' ? date(cs, off) : null;
+    final long nanoOfDay = date == null ? -1 : time(cs, off + 11, off + len, false);
+
+    return nanoOfDay < 0 ? null : LocalDateTime.of(date, LocalTime.ofNanoOfDay(nanoOfDay));
+  }
+
+  // yyyy-MM-ddTHH:mm[:ss[.fffffffff]] then Z or +HH:mm
+  static OffsetDateTime offsetDateTime(char[] cs, int off, int len) {
+    final int offsetLen = offsetLength(cs, off, len);
+    final ZoneOffset offset = offsetLen < 0 ? null : offset(cs, off + len - offsetLen, offsetLen);
+    final LocalDateTime dateTime = offset == null ? null : localDateTime(cs, off, len - offsetLen);
+
+    return dateTime == null ? null : OffsetDateTime.of(dateTime, offset);
+  }
+
+  // An offset date time, then possibly the region of the zone, between brackets. As the ISO
+  // formatter's parsing resolves the date time differently with Java 8 and later versions if
+  // the offset is not the only one valid in the region then, such texts are left to it.
+  static ZonedDateTime zonedDateTime(char[] cs, int off, int len) {
+    int regionOff = len;
+
+    if (len > 0 && cs[off + len - 1] == ']')
+      while (--regionOff > 0 && cs[off + regionOff] != '[')
+        ;
+
+    final OffsetDateTime dateTime = regionOff <= 0 ? null : offsetDateTime(cs, off, regionOff);
+
+    if (dateTime == null || regionOff == len)
+      return dateTime == null ? null : dateTime.toZonedDateTime();
+
+    final ZoneId region = region(new String(cs, off + regionOff + 1, len - regionOff - 2));
+
+    return region == null || !region
+      .getRules()
+      .getValidOffsets(dateTime.toLocalDateTime())
+      .equals(Collections.singletonList(dateTime.getOffset()))
+      ? null
+      : ZonedDateTime.ofStrict(dateTime.toLocalDateTime(), dateTime.getOffset(), region);
+  }
+
+  // yyyy-MM-ddTHH:mm:ss[.fffffffff]Z
+  static Instant instant(char[] cs, int off, int len) {
+    final LocalDate date = len > 11 && cs[off + 10] == 'T' && cs[off + len - 1] == 'Z' ? date(cs, off) : null;
+    final long nanoOfDay = date == null ? -1 : time(cs, off + 11, off + len - 1, true);
+
+    return nanoOfDay < 0
+      ? null
+      : Instant.ofEpochSecond(date.toEpochDay() * secondsPerDay + nanoOfDay / nanosPerSecond, nanoOfDay % nanosPerSecond);
+  }
+
+  // PT[nH][nM][n[.fffffffff]S], each number possibly negative: the form Duration.toString prints.
+  static Duration duration(char[] cs, int off, int len) {
+    final int end = off + len;
+
+    if (len < 4 || cs[off] != 'P' || cs[off + 1] != 'T')
+      return null;
+
+    long seconds = 0;
+    int nanos = 0;
+    int pos = off + 2;
+    int units = 0;
+
+    while (pos < end) {
+      final boolean negative = cs[pos] == '-';
+      final int start = negative ? pos + 1 : pos;
+
+      pos = start;
+
+      while (pos < end && cs[pos] >= '0' && cs[pos] <= '9')
+        pos++;
+
+      // At most fifteen digits: no overflow, even as hours.
+      if (pos == start || pos - start > 15 || pos == end)
+        return null;
+
+      final long number = negative ? -longDigits(cs, start, pos - start) : longDigits(cs, start, pos - start);
+
+      if (cs[pos] == '.') {
+        final int fractionStart = ++pos;
+
+        while (pos < end && cs[pos] >= '0' && cs[pos] <= '9')
+          pos++;
+
+        if (pos == fractionStart || pos - fractionStart > 9 || pos == end || cs[pos] != 'S')
+          return null;
+
+        // Java 8 reads the fraction of -0 as positive, later versions as negative.
+        if (negative && number == 0)
+          return null;
+
+        nanos = digits(cs, fractionStart, pos - fractionStart) * powersOf10[9 - (pos - fractionStart)];
+
+        if (negative)
+          nanos = -nanos;
+      }
+
+      final int unit = cs[pos] == 'H' ? 1 : cs[pos] == 'M' ? 2 : cs[pos] == 'S' ? 3 : 0;
+
+      if (unit <= units)
+        return null;
+
+      seconds += unit == 1 ? number * 3600 : unit == 2 ? number * 60 : number;
+      units = unit;
+      pos++;
+    }
+
+    return Duration.ofSeconds(seconds, nanos);
+  }
+
+  private static final long nanosPerSecond = 1000000000L;
+
+  private static final int[] powersOf10 = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000};
+
+  private static LocalDate date(char[] cs, int off) {
+    final int year = digits(cs, off, 4);
+    final int month = digits(cs, off + 5, 2);
+    final int day = digits(cs, off + 8, 2);
+
+    return year < 0 || cs[off + 4] != '-' || month < 1 || month > 12 || cs[off + 7] != '-'
+      || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+      ? null
+      : LocalDate.of(year, month, day);
+  }
+
+  // The nano of day of HH:mm[:ss[.fffffffff]], or -1.
+  private static long time(char[] cs, int off, int end, boolean secondsRequired) {
+    if (end - off < 5)
+      return -1;
+
+    final int hour = digits(cs, off, 2);
+    final int minute = digits(cs, off + 3, 2);
+
+    if (hour < 0 || hour > 23 || cs[off + 2] != ':' || minute < 0 || minute > 59)
+      return -1;
+
+    final long seconds = hour * 3600 + minute * 60;
+
+    if (end - off == 5)
+      return secondsRequired ? -1 : seconds * nanosPerSecond;
+
+    final int second = end - off < 8 || cs[off + 5] != ':' ? -1 : digits(cs, off + 6, 2);
+
+    if (second < 0 || second > 59)
+      return -1;
+
+    if (end - off == 8)
+      return (seconds + second) * nanosPerSecond;
+
+    final int fractionDigits = end - off - 9;
+    final int fraction = cs[off + 8] != '.' || fractionDigits < 1 || fractionDigits > 9
+      ? -1
+      : digits(cs, off + 9, fractionDigits);
+
+    return fraction < 0 ? -1 : (seconds + second) * nanosPerSecond + fraction * powersOf10[9 - fractionDigits];
+  }
+
+  // The length of the offset ending the text: Z or +HH:mm, -1 if none of them.
+  private static int offsetLength(char[] cs, int off, int len) {
+    return len > 0 && cs[off + len - 1] == 'Z'
+      ? 1
+      : len > 6 && (cs[off + len - 6] == '+' || cs[off + len - 6] == '-') ? 6 : -1;
+  }
+
+  private static ZoneOffset offset(char[] cs, int off, int len) {
+    if (len == 1)
+      return ZoneOffset.UTC;
+
+    final int hours = digits(cs, off + 1, 2);
+    final int minutes = digits(cs, off + 4, 2);
+    final int seconds = hours * 3600 + minutes * 60;
+
+    return hours < 0 || cs[off + 3] != ':' || minutes < 0 || minutes > 59 || seconds > 18 * 3600
+      ? null
+      : ZoneOffset.ofTotalSeconds(cs[off] == '-' ? -seconds : seconds);
+  }
+
+  // Region ids only: the formatter reads the ids based on offsets (UTC+01:00...) its own way.
+  private static ZoneId region(String id) {
+    if (id.isEmpty() || !Character.isLetter(id.charAt(0)) || id.startsWith("UT") || id.startsWith("GMT"))
+      return null;
+
+    try {
+      return ZoneId.of(id);
+    } catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  private static int digits(char[] cs, int off, int n) {
+    int value = 0;
+
+    for (int i = off; i < off + n; i++) {
+      final int digit = cs[i] - '0';
+
+      if (digit < 0 || digit > 9)
+        return -1;
+
+      value = value * 10 + digit;
+    }
+
+    return value;
+  }
+
+  private static long longDigits(char[] cs, int off, int n) {
+    long value = 0;
+
+    for (int i = off; i < off + n; i++)
+      value = value * 10 + (cs[i] - '0');
+
+    return value;
+  }
+}
@@ -1,12 +1,25 @@
 package fr.gn.derive4j.jackson.instances;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializer;
+import fr.gn.derive4j.jackson.Deduplication;
+import fr.gn.derive4j.jackson.JsonNodeDecoder;
+import fr.gn.derive4j.jackson.JsonNodeEncoder;
+import fr.gn.derive4j.jackson.JsonNodes;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 
+import static fr.gn.derive4j.jackson.instances.Functions.stdDeserializer;
 import static fr.gn.derive4j.jackson.instances.Functions.stdDeserializer_;
 import static fr.gn.derive4j.jackson.instances.Functions.stdSerializer_;
 
@@ -24,14 +37,55 @@ public final class JavaTypes {
   public static final JsonSerializer<Boolean> booleanSerializer =
     stdSerializer_(Boolean.class, (value, gen) -> gen.writeBoolean(value));
 
+  public static final JsonSerializer<Long> longSerializer =
+    stdSerializer_(Long.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<Double> doubleSerializer =
+    stdSerializer_(Double.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<Float> floatSerializer =
+    stdSerializer_(Float.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<Short> shortSerializer =
+    stdSerializer_(Short.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<Byte> byteSerializer =
+    stdSerializer_(Byte.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<Character> characterSerializer =
+    stdSerializer_(Character.class, (value, gen) -> writeChar(value, gen));
+
+  public static final JsonSerializer<BigDecimal> bigDecimalSerializer =
+    stdSerializer_(BigDecimal.class, (value, gen) -> gen.writeNumber(value));
+
+  public static final JsonSerializer<BigInteger> bigIntegerSerializer =
+    stdSerializer_(BigInteger.class, (value, gen) -> gen.writeNumber(value));
+
+  // The java.time values are written as the ISO formatters of DateTimeFormatter print them,
+  // straight into the generator's buffer (see Iso8601).
+
   public static final JsonSerializer<LocalDate> localDateSerializer =
-    stdSerializer_(LocalDate.class, (value, gen) -> gen.writeString(DateTimeFormatter.ISO_DATE.format(value)));
+    stdSerializer_(LocalDate.class, (value, gen) ->
+      Iso8601.write(gen, value, Iso8601::localDate, DateTimeFormatter.ISO_DATE::format));
 
   public static final JsonSerializer<LocalDateTime> localDateTimeSerializer =
-    stdSerializer_(LocalDateTime.class, (value, gen) -> gen.writeString(DateTimeFormatter.ISO_DATE_TIME.format(value)));
+    stdSerializer_(LocalDateTime.class, (value, gen) ->
+      Iso8601.write(gen, value, Iso8601::localDateTime, DateTimeFormatter.ISO_DATE_TIME::format));
+
+  public static final JsonSerializer<OffsetDateTime> offsetDateTimeSerializer =
+    stdSerializer_(OffsetDateTime.class, (value, gen) ->
+      Iso8601.write(gen, value, Iso8601::offsetDateTime, DateTimeFormatter.ISO_OFFSET_DATE_TIME::format));
+
+  public static final JsonSerializer<ZonedDateTime> zonedDateTimeSerializer =
+    stdSerializer_(ZonedDateTime.class, (value, gen) ->
+      Iso8601.write(gen, value, Iso8601::zonedDateTime, DateTimeFormatter.ISO_ZONED_DATE_TIME::format));
 
   public static final JsonSerializer<Instant> instantSerializer =
-    stdSerializer_(Instant.class, (value, gen) -> gen.writeString(DateTimeFormatter.ISO_INSTANT.format(value)));
+    stdSerializer_(Instant.class, (value, gen) ->
+      Iso8601.write(gen, value, Iso8601::instant, DateTimeFormatter.ISO_INSTANT::format));
+
+  public static final JsonSerializer<Duration> durationSerializer =
+    stdSerializer_(Duration.class, (value, gen) -> Iso8601.write(gen, value, Iso8601::duration, Duration::toString));
 
   public static final JsonSerializer<Period> periodSerializer =
     stdSerializer_(Period.class, (value, gen) -> gen.writeString(value.toString()));
@@ -41,8 +95,10 @@ public final class JavaTypes {
 
   // ## Deserializers
 
+  // Interned when reading with Deduplication enabled: only used by the derived codecs, and for
+  // type arguments by InstancesModule, not registered for the mapper.
   public static final JsonDeserializer<String> stringDeserializer =
-    stdDeserializer_(String.class, JsonParser::getValueAsString);
+    stdDeserializer(String.class, Deduplication::string);
 
   public static final JsonDeserializer<Integer> integerDeserializer =
     stdDeserializer_(Integer.class, JsonParser::getValueAsInt);
@@ -50,18 +106,305 @@ public final class JavaTypes {
   public static final JsonDeserializer<Boolean> booleanDeserializer =
     stdDeserializer_(Boolean.class, JsonParser::getValueAsBoolean);
 
+  public static final JsonDeserializer<Long> longDeserializer =
+    stdDeserializer_(Long.class, JsonParser::getValueAsLong);
+
+  public static final JsonDeserializer<Double> doubleDeserializer =
+    stdDeserializer_(Double.class, JsonParser::getValueAsDouble);
+
+  public static final JsonDeserializer<Float> floatDeserializer =
+    stdDeserializer_(Float.class, p -> (float) p.getValueAsDouble());
+
+  public static final JsonDeserializer<Short> shortDeserializer =
+    stdDeserializer_(Short.class, JavaTypes::readShort);
+
+  public static final JsonDeserializer<Byte> byteDeserializer =
+    stdDeserializer_(Byte.class, JavaTypes::readByte);
+
+  public static final JsonDeserializer<Character> characterDeserializer =
+    stdDeserializer_(Character.class, JavaTypes::readChar);
+
+  public static final JsonDeserializer<BigDecimal> bigDecimalDeserializer =
+    stdDeserializer_(BigDecimal.class, p -> p.hasToken(JsonToken.VALUE_STRING)
+      ? new BigDecimal(p.getText())
+      : p.getDecimalValue());
+
+  public static final JsonDeserializer<BigInteger> bigIntegerDeserializer =
+    stdDeserializer_(BigInteger.class, p -> p.hasToken(JsonToken.VALUE_STRING)
+      ? new BigInteger(p.getText())
+      : p.getBigIntegerValue());
+
+  // The java.time values are read from the parser's buffer when in the forms the ISO formatters
+  // print, and by the formatters otherwise.
+
   public static final JsonDeserializer<LocalDate> localDateDeserializer =
-    stdDeserializer_(LocalDate.class, p -> DateTimeFormatter.ISO_DATE.parse(p.getValueAsString(), LocalDate::from));
+    stdDeserializer_(LocalDate.class, p ->
+      Iso8601.read(p, Iso8601::localDate, text -> DateTimeFormatter.ISO_DATE.parse(text, LocalDate::from)));
 
   public static final JsonDeserializer<LocalDateTime> localDateTimeDeserializer =
-    stdDeserializer_(LocalDateTime.class, p -> DateTimeFormatter.ISO_DATE_TIME.parse(p.getValueAsString(), LocalDateTime::from));
+    stdDeserializer_(LocalDateTime.class, p ->
+      Iso8601.read(p, Iso8601::localDateTime, text -> DateTimeFormatter.ISO_DATE_TIME.parse(text, LocalDateTime::from)));
+
+  public static final JsonDeserializer<OffsetDateTime> offsetDateTimeDeserializer =
+    stdDeserializer_(OffsetDateTime.class, p ->
+      Iso8601.read(p, Iso8601::offsetDateTime, text -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(text, OffsetDateTime::from)));
+
+  public static final JsonDeserializer<ZonedDateTime> zonedDateTimeDeserializer =
+    stdDeserializer_(ZonedDateTime.class, p ->
+      Iso8601.read(p, Iso8601::zonedDateTime, text -> DateTimeFormatter.ISO_ZONED_DATE_TIME.parse(text, ZonedDateTime::from)));
 
   public static final JsonDeserializer<Instant> instantDeserializer =
-    stdDeserializer_(Instant.class, p -> DateTimeFormatter.ISO_INSTANT.parse(p.getValueAsString(), Instant::from));
+    stdDeserializer_(Instant.class, p ->
+      Iso8601.read(p, Iso8601::instant, text -> DateTimeFormatter.ISO_INSTANT.parse(text, Instant::from)));
+
+  public static final JsonDeserializer<Duration> durationDeserializer =
+    stdDeserializer_(Duration.class, p -> Iso8601.read(p, Iso8601::duration, Duration::parse));
 
   public static final JsonDeserializer<Period> periodDeserializer =
     stdDeserializer_(Period.class, p -> Period.parse(p.getValueAsString()));
 
   public static final JsonDeserializer<Year> yearDeserializer =
     stdDeserializer_(Year.class, p -> Year.parse(p.getValueAsString()));
+
+  // ## JsonNode encoders
+
+  public static final JsonNodeEncoder<String> stringNodeEncoder = (value, nodes) -> nodes.textNode(value);
+
+  public static final JsonNodeEncoder<Integer> integerNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<Boolean> booleanNodeEncoder = (value, nodes) -> nodes.booleanNode(value);
+
+  public static final JsonNodeEncoder<Long> longNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<Double> doubleNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<Float> floatNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<Short> shortNodeEncoder = (value, nodes) -> nodes.numberNode(value.intValue());
+
+  public static final JsonNodeEncoder<Byte> byteNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<Character> characterNodeEncoder =
+    (value, nodes) -> nodes.textNode(String.valueOf(value.charValue()));
+
+  public static final JsonNodeEncoder<BigDecimal> bigDecimalNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<BigInteger> bigIntegerNodeEncoder = (value, nodes) -> nodes.numberNode(value);
+
+  public static final JsonNodeEncoder<LocalDate> localDateNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::localDate, DateTimeFormatter.ISO_DATE::format));
+
+  public static final JsonNodeEncoder<LocalDateTime> localDateTimeNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::localDateTime, DateTimeFormatter.ISO_DATE_TIME::format));
+
+  public static final JsonNodeEncoder<OffsetDateTime> offsetDateTimeNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::offsetDateTime, DateTimeFormatter.ISO_OFFSET_DATE_TIME::format));
+
+  public static final JsonNodeEncoder<ZonedDateTime> zonedDateTimeNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::zonedDateTime, DateTimeFormatter.ISO_ZONED_DATE_TIME::format));
+
+  public static final JsonNodeEncoder<Instant> instantNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::instant, DateTimeFormatter.ISO_INSTANT::format));
+
+  public static final JsonNodeEncoder<Duration> durationNodeEncoder =
+    (value, nodes) -> nodes.textNode(Iso8601.text(value, Iso8601::duration, Duration::toString));
+
+  public static final JsonNodeEncoder<Period> periodNodeEncoder = (value, nodes) -> nodes.textNode(value.toString());
+
+  public static final JsonNodeEncoder<Year> yearNodeEncoder = (value, nodes) -> nodes.textNode(value.toString());
+
+  // ## JsonNode decoders
+  // Coercing as leniently as the deserializers above, the primitive ones reading a missing node as zero.
+
+  public static final JsonNodeDecoder<String> stringNodeDecoder = JavaTypes::textOf;
+
+  public static final JsonNodeDecoder<Integer> integerNodeDecoder = JsonNode::asInt;
+
+  public static final JsonNodeDecoder<Boolean> booleanNodeDecoder = JsonNode::asBoolean;
+
+  public static final JsonNodeDecoder<Long> longNodeDecoder = JsonNode::asLong;
+
+  public static final JsonNodeDecoder<Double> doubleNodeDecoder = JsonNode::asDouble;
+
+  public static final JsonNodeDecoder<Float> floatNodeDecoder = node -> (float) node.asDouble();
+
+  public static final JsonNodeDecoder<Short> shortNodeDecoder = JavaTypes::shortOf;
+
+  public static final JsonNodeDecoder<Byte> byteNodeDecoder = JavaTypes::byteOf;
+
+  public static final JsonNodeDecoder<Character> characterNodeDecoder = JavaTypes::charOf;
+
+  public static final JsonNodeDecoder<BigDecimal> bigDecimalNodeDecoder = node -> node.isTextual()
+    ? new BigDecimal(node.textValue())
+    : node.decimalValue();
+
+  public static final JsonNodeDecoder<BigInteger> bigIntegerNodeDecoder = node -> node.isTextual()
+    ? new BigInteger(node.textValue())
+    : node.bigIntegerValue();
+
+  public static final JsonNodeDecoder<LocalDate> localDateNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::localDate, text -> DateTimeFormatter.ISO_DATE.parse(text, LocalDate::from));
+
+  public static final JsonNodeDecoder<LocalDateTime> localDateTimeNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::localDateTime
+      , text -> DateTimeFormatter.ISO_DATE_TIME.parse(text, LocalDateTime::from));
+
+  public static final JsonNodeDecoder<OffsetDateTime> offsetDateTimeNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::offsetDateTime
+      , text -> DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(text, OffsetDateTime::from));
+
+  public static final JsonNodeDecoder<ZonedDateTime> zonedDateTimeNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::zonedDateTime
+      , text -> DateTimeFormatter.ISO_ZONED_DATE_TIME.parse(text, ZonedDateTime::from));
+
+  public static final JsonNodeDecoder<Instant> instantNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::instant, text -> DateTimeFormatter.ISO_INSTANT.parse(text, Instant::from));
+
+  public static final JsonNodeDecoder<Duration> durationNodeDecoder =
+    node -> Iso8601.parse(textOf(node), Iso8601::duration, Duration::parse);
+
+  public static final JsonNodeDecoder<Period> periodNodeDecoder = node -> Period.parse(textOf(node));
+
+  public static final JsonNodeDecoder<Year> yearNodeDecoder = node -> Year.parse(textOf(node));
+
+  // ## Primitive writers
+
+  public static final Primitives.BooleanWriter booleanWriter = (value, gen) -> gen.writeBoolean(value);
+
+  public static final Primitives.ByteWriter byteWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.ShortWriter shortWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.IntWriter intWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.LongWriter longWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.FloatWriter floatWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.DoubleWriter doubleWriter = (value, gen) -> gen.writeNumber(value);
+
+  public static final Primitives.CharWriter charWriter = JavaTypes::writeChar;
+
+  // ## Primitive readers
+
+  public static final Primitives.BooleanReader booleanReader = JsonParser::getValueAsBoolean;
+
+  public static final Primitives.ByteReader byteReader = JavaTypes::readByte;
+
+  public static final Primitives.ShortReader shortReader = JavaTypes::readShort;
+
+  public static final Primitives.IntReader intReader = JsonParser::getValueAsInt;
+
+  public static final Primitives.LongReader longReader = JsonParser::getValueAsLong;
+
+  public static final Primitives.FloatReader floatReader = p -> (float) p.getValueAsDouble();
+
+  public static final Primitives.DoubleReader doubleReader = JsonParser::getValueAsDouble;
+
+  public static final Primitives.CharReader charReader = JavaTypes::readChar;
+
+  // Instants as numbers of milliseconds since the epoch (the precision beyond is lost), to be
+  // registered or referenced explicitly: derivations keep using the ISO-8601 instances above.
+  public static final class EpochMillis {
+    private EpochMillis() {}
+
+    public static final JsonSerializer<Instant> instantSerializer =
+      stdSerializer_(Instant.class, (value, gen) -> gen.writeNumber(value.toEpochMilli()));
+
+    public static final JsonDeserializer<Instant> instantDeserializer =
+      stdDeserializer_(Instant.class, p -> Instant.ofEpochMilli(p.getValueAsLong()));
+
+    public static final JsonNodeEncoder<Instant> instantNodeEncoder =
+      (value, nodes) -> nodes.numberNode(value.toEpochMilli());
+
+    public static final JsonNodeDecoder<Instant> instantNodeDecoder = node -> Instant.ofEpochMilli(node.asLong());
+  }
+
+
+  // As JsonParser.getValueAsString: the text of scalars, null for anything else.
+  // ASCII chars are written from a table of their encoded strings, others from a per-thread
+  // buffer: neither allocates.
+  private static final SerializedString[] asciiChars = new SerializedString[128];
+
+  static {
+    for (char c = 0; c < asciiChars.length; c++)
+      asciiChars[c] = new SerializedString(String.valueOf(c));
+  }
+
+  private static final ThreadLocal<char[]> charBuffers = ThreadLocal.withInitial(() -> new char[1]);
+
+  private static void writeChar(char value, JsonGenerator gen) throws IOException {
+    if (value < asciiChars.length)
+      gen.writeString(asciiChars[value]);
+    else {
+      final char[] buffer = charBuffers.get();
+      buffer[0] = value;
+      gen.writeString(buffer, 0, 1);
+    }
+  }
+
+  private static String textOf(JsonNode node) {
+    return node.isValueNode() && !node.isNull() ? node.asText() : null;
+  }
+
+  private static char charOf(JsonNode node) throws IOException {
+    if (node.isMissingNode())
+      return '\0';
+
+    final String text = textOf(node);
+
+    if (text == null || text.length() != 1)
+      throw JsonNodes.error("Expected a single character");
+
+    return text.charAt(0);
+  }
+
+  private static char readChar(JsonParser p) throws IOException {
+    if (p.getTextLength() != 1)
+      throw new JsonParseException(p, "Expected a single character");
+
+    return p.getTextCharacters()[p.getTextOffset()];
+  }
+
+  // Integers only (not strings, floats nor booleans), within the range of the type.
+  private static short readShort(JsonParser p) throws IOException {
+    checkInteger(p);
+
+    return p.getShortValue();
+  }
+
+  // Not JsonParser.getByteValue, that also takes 128 to 255 (as unsigned bytes).
+  private static byte readByte(JsonParser p) throws IOException {
+    checkInteger(p);
+
+    final int value = p.getIntValue();
+
+    if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE)
+      throw new JsonParseException(p, "Numeric value (" + value + ") out of range of Java byte");
+
+    return (byte) value;
+  }
+
+  private static void checkInteger(JsonParser p) throws IOException {
+    if (!p.hasToken(JsonToken.VALUE_NUMBER_INT))
+      throw new JsonParseException(p, "Expected an integer");
+  }
+
+  private static short shortOf(JsonNode node) throws IOException {
+    return (short) integerOf(node, Short.MIN_VALUE, Short.MAX_VALUE);
+  }
+
+  private static byte byteOf(JsonNode node) throws IOException {
+    return (byte) integerOf(node, Byte.MIN_VALUE, Byte.MAX_VALUE);
+  }
+
+  private static int integerOf(JsonNode node, int min, int max) throws IOException {
+    if (node.isMissingNode())
+      return 0;
+
+    if (!node.isIntegralNumber() || !node.canConvertToInt() || node.intValue() < min || node.intValue() > max)
+      throw JsonNodes.error("Expected an integer from " + min + " to " + max);
+
+    return node.intValue();
+  }
 }
@@ -0,0 +1,78 @@
+package fr.gn.derive4j.jackson.instances;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+public final class Primitives {
+  private Primitives() {}
+
+  // ## Writers
+
+  public interface BooleanWriter {
+    void write(boolean value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface ByteWriter {
+    void write(byte value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface ShortWriter {
+    void write(short value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface IntWriter {
+    void write(int value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface LongWriter {
+    void write(long value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface FloatWriter {
+    void write(float value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface DoubleWriter {
+    void write(double value, JsonGenerator gen) throws IOException;
+  }
+
+  public interface CharWriter {
+    void write(char value, JsonGenerator gen) throws IOException;
+  }
+
+  // ## Readers
+
+  public interface BooleanReader {
+    boolean read(JsonParser p) throws IOException;
+  }
+
+  public interface ByteReader {
+    byte read(JsonParser p) throws IOException;
+  }
+
+  public interface ShortReader {
+    short read(JsonParser p) throws IOException;
+  }
+
+  public interface IntReader {
+    int read(JsonParser p) throws IOException;
+  }
+
+  public interface LongReader {
+    long read(JsonParser p) throws IOException;
+  }
+
+  public interface FloatReader {
+    float read(JsonParser p) throws IOException;
+  }
+
+  public interface DoubleReader {
+    double read(JsonParser p) throws IOException;
+  }
+
+  public interface CharReader {
+    char read(JsonParser p) throws IOException;
+  }
+}
@@ -1,25 +1,68 @@
 package fr.gn.derive4j.processor.jackson;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.google.auto.service.AutoService;
 import com.squareup.javapoet.*;
+import fr.gn.derive4j.Constants.EncodedFieldNameFor;
 import fr.gn.derive4j.Constants.FieldNameFor;
+import fr.gn.derive4j.jackson.Deduplication;
+import fr.gn.derive4j.jackson.EncodedValueCache;
+import fr.gn.derive4j.jackson.Exceptions;
+import fr.gn.derive4j.jackson.ExplicitStack;
+import fr.gn.derive4j.jackson.InstanceCache;
+import fr.gn.derive4j.jackson.Instrumentation;
+import fr.gn.derive4j.jackson.JsonCodec;
+import fr.gn.derive4j.jackson.JsonNodeDecoder;
+import fr.gn.derive4j.jackson.JsonNodeEncoder;
+import fr.gn.derive4j.jackson.JsonNodes;
+import fr.gn.derive4j.jackson.Parsers;
+import fr.gn.derive4j.jackson.PositionalEncoding;
+import fr.gn.derive4j.jackson.RejectedInputException;
+import fr.gn.derive4j.jackson.ValueConstructorFilter;
+import fr.gn.derive4j.jackson.ValueConstructorTable;
 import fr.gn.derive4j.jackson.instances.FjTypes;
 import fr.gn.derive4j.jackson.instances.JavaTypes;
+import org.derive4j.Make;
 import org.derive4j.processor.api.*;
 import org.derive4j.processor.api.model.AlgebraicDataType;
 import org.derive4j.processor.api.model.DataArgument;
+import org.derive4j.processor.api.model.DataConstructor;
+import org.derive4j.processor.api.model.DerivedInstanceConfig;
 
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
 import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 import static org.derive4j.processor.api.DerivatorSelections.selection;
 
 @AutoService(DerivatorFactory.class)
 public class JacksonDerivations implements DerivatorFactory {
+  // Set (eg. with -J-Dfr.gn.derive4j.jackson.timing=true on the javac command line) to
+  // report the time spent deriving each instance, as a note of the compiler.
+  private static final boolean timing = Boolean.getBoolean("fr.gn.derive4j.jackson.timing");
+
+  // Set (eg. with -J-Dfr.gn.derive4j.jackson.instrumented=true) to generate serializers and
+  // deserializers reporting their values to Instrumentation, when enabled at run time.
+  private static final boolean instrumented = Boolean.getBoolean("fr.gn.derive4j.jackson.instrumented");
+
   @Override
   public List<DerivatorSelection> derivators(DeriveUtils deriveUtils) {
     final ClassName
@@ -44,8 +87,19 @@ public class JacksonDerivations implements DerivatorFactory {
       asList(getTypeElement(deriveUtils, ClassName.get(JavaTypes.class))
         , getTypeElement(deriveUtils, ClassName.get(FjTypes.class)));
 
+    // Converters between values and trees, skipping the token stream
+    final ClassName
+      nodeEncoderClassName = ClassName.get(JsonNodeEncoder.class),
+
+      nodeDecoderClassName = ClassName.get(JsonNodeDecoder.class);
+
+    final TypeElement
+      nodeEncoderType = getTypeElement(deriveUtils, nodeEncoderClassName),
+
+      nodeDecoderType = getTypeElement(deriveUtils, nodeDecoderClassName);
+
     return
-      asList(selection(jsonSerClassName, adt -> genInstance(deriveUtils
+      asList(selection(jsonSerClassName, timed(deriveUtils, jsonSerClassName, registered(deriveUtils, jsonSerClassName, true, adt -> genInstance(deriveUtils
         , jsonSerClassName
         , stdSerClassName
         , stdSerType
@@ -58,9 +112,14 @@ public class JacksonDerivations implements DerivatorFactory {
             , true)
         , typesProvider
         , adt
-        , JacksonDerivations::genSerializerCode))
+        , (drvUtils, instUtils, mspec) ->
+          genSerializerCode(drvUtils, instUtils, adt, jsonSerClassName, mspec))
+        .map(codeSpec -> codeSpec.append(DerivedCodeSpec
+          .codeSpec(genSerializedNames(adt), Collections.emptyList())))
+        .map(codeSpec -> !instrumented ? codeSpec : codeSpec.append(DerivedCodeSpec
+          .codeSpec(genInstrumentationSites(adt, serializerSitesClassName(adt)), Collections.emptyList()))))))
 
-        , selection(jsonDeserClassName, adt -> genInstance(deriveUtils
+        , selection(jsonDeserClassName, timed(deriveUtils, jsonDeserClassName, registered(deriveUtils, jsonDeserClassName, false, adt -> genInstance(deriveUtils
           , jsonDeserClassName
           , stdDeserClassName
           , stdDeserType
@@ -75,7 +134,80 @@ public class JacksonDerivations implements DerivatorFactory {
           , typesProvider
           , adt
           , (drvUtils, instUtils, mspec) ->
-            genDeserializerCode(drvUtils, instUtils, adt, mspec))));
+            genDeserializerCode(drvUtils, instUtils, adt, mspec))
+          .map(codeSpec -> codeSpec.append(DerivedCodeSpec
+            .codeSpec(genValueConstructorTable(adt)
+              , Stream
+                .concat(Stream.of(genValueConstructorReader(deriveUtils, adt)
+                  , genFilteredDeserializer(deriveUtils, adt, jsonDeserClassName))
+                  , adt.deriveConfig().derivedInstances().containsKey(jsonSerClassName)
+                    ? Stream.of(genCodecFactory(deriveUtils, adt, jsonSerClassName, jsonDeserClassName))
+                    : Stream.empty())
+                .collect(Collectors.toList()))))
+          .map(codeSpec -> !instrumented ? codeSpec : codeSpec.append(DerivedCodeSpec
+            .codeSpec(genInstrumentationSites(adt, deserializerSitesClassName(adt)), Collections.emptyList()))))))
+
+        , selection(nodeEncoderClassName, timed(deriveUtils, nodeEncoderClassName, adt -> genInstance(deriveUtils
+          , nodeEncoderClassName
+          , nodeEncoderClassName
+          , nodeEncoderType
+          , deriveUtils
+            .types()
+            .getDeclaredType(nodeEncoderType, adt.typeConstructor().declaredType())
+          , TypeSpec.anonymousClassBuilder("")
+          , typesProvider
+          , adt
+          , (drvUtils, instUtils, mspec) ->
+            Collections.singletonList(genNodeEncoderCode(drvUtils, instUtils, adt, nodeEncoderClassName, mspec)))))
+
+        , selection(nodeDecoderClassName, timed(deriveUtils, nodeDecoderClassName, adt -> genInstance(deriveUtils
+          , nodeDecoderClassName
+          , nodeDecoderClassName
+          , nodeDecoderType
+          , deriveUtils
+            .types()
+            .getDeclaredType(nodeDecoderType, adt.typeConstructor().declaredType())
+          , TypeSpec.anonymousClassBuilder("")
+          , typesProvider
+          , adt
+          , (drvUtils, instUtils, mspec) ->
+            Collections.singletonList(genNodeDecoderCode(drvUtils, instUtils, adt, mspec))))));
+  }
+
+  // Passed on to JacksonModuleProcessor, that holds the compiler's Messager.
+  private static Derivator timed(DeriveUtils deriveUtils, ClassName instanceClassName, Derivator derivator) {
+    return !timing ? derivator : adt -> {
+      final long start = System.nanoTime();
+      final DeriveResult<DerivedCodeSpec> result = derivator.derive(adt);
+      final List<DataConstructor> constructors = adt.dataConstruction().constructors();
+
+      JacksonModuleProcessor.note(deriveUtils.elements(), String.format(Locale.ROOT
+        , "%s of %s (%d constructors, %d fields): %.1f ms"
+        , instanceClassName.simpleName()
+        , adt.typeConstructor().typeElement().getQualifiedName()
+        , constructors.size()
+        , constructors.stream().mapToInt(dataConstructor -> dataConstructor.arguments().size()).sum()
+        , (System.nanoTime() - start) / 1e6));
+
+      return result;
+    };
+  }
+
+  // Reports the derived instance, to be registered in the package's DerivedJacksonModule.
+  private static Derivator registered(DeriveUtils deriveUtils
+    , ClassName instanceClassName
+    , boolean serializer
+    , Derivator derivator) {
+    return adt -> derivator.derive(adt).map(codeSpec -> {
+      JacksonModuleProcessor.derived(deriveUtils.elements(), new JacksonModuleProcessor.Instance(
+        ClassName.get(adt.typeConstructor().typeElement())
+        , instanceTargetClassName(adt, instanceClassName)
+        , deriveUtils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName()) + instanceClassName.simpleName()
+        , adt.typeConstructor().typeVariables().size()
+        , serializer));
+
+      return codeSpec;
+    });
   }
 
   private static DeriveResult<DerivedCodeSpec> genInstance(DeriveUtils deriveUtils
@@ -86,50 +218,540 @@ public class JacksonDerivations implements DerivatorFactory {
     , TypeSpec.Builder instanceBuilder
     , List<TypeElement> typesProvider
     , AlgebraicDataType adt
-    , F3<DeriveUtils, InstanceUtils, MethodSpec, MethodSpec> genMethodCode) {
+    , F3<DeriveUtils, InstanceUtils, MethodSpec, List<MethodSpec>> genMethodCode) {
     return deriveUtils.generateInstance(adt
       , instanceClassName
       , typesProvider
-      , instanceUtils -> instanceUtils.generateInstanceFactory(CodeBlock
-        .of("($L)\n", instanceImplType.getSimpleName())
-        .toBuilder()
-        .indent()
-        .add("$L", instanceBuilder
+      , instanceUtils -> {
+        final CodeBlock instance = CodeBlock
+          .of("($L)\n", instanceImplType.getSimpleName())
+          .toBuilder()
+          .indent()
+          .add("$L", (instanceImplType.getKind() == ElementKind.INTERFACE
+            ? instanceBuilder.addSuperinterface(TypeName.get(instanceImplDeclType))
+            : instanceBuilder.superclass(TypeName.get(instanceImplDeclType)))
 
-          .superclass(TypeName.get(instanceImplDeclType))
+            .addMethods(deriveUtils
+              .allAbstractMethods(instanceImplType)
+              .stream()
+              .flatMap(m -> {
+                final MethodSpec methodSpec = deriveUtils
+                  .overrideMethodBuilder(m, instanceImplDeclType)
+                  .build();
 
-          .addMethods(deriveUtils
-            .allAbstractMethods(instanceImplType)
-            .stream()
-            .map(m -> {
-              final MethodSpec methodSpec = deriveUtils
-                .overrideMethodBuilder(m, instanceImplDeclType)
-                .build();
+                return genMethodCode.f(deriveUtils, instanceUtils, methodSpec).stream();
+              })
+              .collect(Collectors.toList()))
 
-              return genMethodCode.f(deriveUtils, instanceUtils, methodSpec);
-            })
-            .collect(Collectors.toList()))
+            .build())
+          .build();
+
+        if (adt.typeConstructor().typeVariables().isEmpty())
+          return instanceUtils.generateInstanceFactory(instance);
+
+        final DerivedCodeSpec factory =
+          instanceUtils.generateInstanceFactory(memoizedInstance(deriveUtils, instanceClassName, adt));
+
+        return factory.append(DerivedCodeSpec.methodSpec(genNewInstance(deriveUtils, instanceClassName, adt, instance)));
+      });
+  }
+
+  // Instances of parameterized ADTs are built by a factory taking one instance
+  // per type variable (named after derive4j's convention, eg. aJsonSerializer):
+  // the built instance is shared between calls with the same arguments. With one or two
+  // type variables, the instance is built by a method reference, so that a cached one is
+  // found without allocating.
+  private static CodeBlock memoizedInstance(DeriveUtils deriveUtils
+    , ClassName instanceClassName
+    , AlgebraicDataType adt) {
+    final List<TypeVariable> typeVariables = adt.typeConstructor().typeVariables();
+
+    final String instanceArgs = typeVariables
+      .stream()
+      .map(tv -> deriveUtils.uncapitalize(tv.asElement().getSimpleName()) + instanceClassName.simpleName())
+      .collect(Collectors.joining(", "));
+
+    return typeVariables.size() <= 2
+      ? CodeBlock.of("$T.memoize($T.class, $T.class, $L, $T::$N)"
+        , InstanceCache.class
+        , deriveUtils.types().erasure(adt.typeConstructor().declaredType())
+        , instanceClassName
+        , instanceArgs
+        , instanceTargetClassName(adt, instanceClassName)
+        , newInstanceName(deriveUtils, instanceClassName, adt))
+      : CodeBlock.of("$T.memoize($T.class, $T.class, () -> $N($L), $L)"
+        , InstanceCache.class
+        , deriveUtils.types().erasure(adt.typeConstructor().declaredType())
+        , instanceClassName
+        , newInstanceName(deriveUtils, instanceClassName, adt)
+        , instanceArgs
+        , instanceArgs);
+  }
+
+  // Builds the instance memoized by the factory, from the same parameters.
+  private static MethodSpec genNewInstance(DeriveUtils deriveUtils
+    , ClassName instanceClassName
+    , AlgebraicDataType adt
+    , CodeBlock instance) {
+    return MethodSpec
+      .methodBuilder(newInstanceName(deriveUtils, instanceClassName, adt))
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+      .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+      .addTypeVariables(adt
+        .typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList()))
+      .returns(ParameterizedTypeName.get(instanceClassName, TypeName.get(adt.typeConstructor().declaredType())))
+      .addParameters(adt
+        .typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(tv -> ParameterSpec
+          .builder(ParameterizedTypeName.get(instanceClassName, TypeVariableName.get(tv))
+            , deriveUtils.uncapitalize(tv.asElement().getSimpleName()) + instanceClassName.simpleName())
+          .build())
+        .collect(Collectors.toList()))
+      .addStatement("return $L", instance)
+      .build();
+  }
+
+  // eg. newTreeJsonSerializer
+  private static String newInstanceName(DeriveUtils deriveUtils, ClassName instanceClassName, AlgebraicDataType adt) {
+    return "new" + adt.typeConstructor().typeElement().getSimpleName() + instanceClassName.simpleName();
+  }
+
+  private static TypeSpec genSerializedNames(AlgebraicDataType adt) {
+    final ClassName serializedStringClassName =
+      ClassName.get("com.fasterxml.jackson.core.io", "SerializedString");
 
+    return TypeSpec
+      .classBuilder(serializedNamesClassName(adt))
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+      .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+      .addFields(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .flatMap(dataConstructor -> Stream.concat(Stream.of(dataConstructor.name())
+          , dataConstructor.arguments().stream().map(DataArgument::fieldName)))
+        .distinct()
+        .map(name -> FieldSpec
+          .builder(serializedStringClassName, name, Modifier.STATIC, Modifier.FINAL)
+          .initializer("new $T($S)", serializedStringClassName, name)
           .build())
-        .build()));
+        .collect(Collectors.toList()))
+      .addFields(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .filter(dataConstructor -> dataConstructor.arguments().isEmpty())
+        .flatMap(dataConstructor -> (isPositional(adt) ? Stream.of(true) : Stream.of(false, true))
+          .map(positionalText -> FieldSpec
+            .builder(serializedStringClassName, encodedValue(dataConstructor, positionalText), Modifier.STATIC, Modifier.FINAL)
+            .initializer("new $T($S)"
+              , serializedStringClassName
+              , positionalText
+                ? "[" + dataConstructor.index() + "]"
+                : "{\"" + FieldNameFor.valueConstructor + "\":\"" + dataConstructor.name() + "\"}")
+            .build()))
+        .collect(Collectors.toList()))
+      .build();
+  }
+
+  // Field of the serialized names holding the whole text of a nullary constructor.
+  private static String encodedValue(DataConstructor dataConstructor, boolean positional) {
+    return "_" + dataConstructor.name() + (positional ? "Positional" : "");
+  }
+
+  // The classes where derive4j writes the instances, along with the classes nested
+  // for them (eg. the serialized names).
+  private static ClassName serializerClassName(AlgebraicDataType adt) {
+    return instanceTargetClassName(adt, ClassName.get("com.fasterxml.jackson.databind", "JsonSerializer"));
+  }
+
+  private static ClassName deserializerClassName(AlgebraicDataType adt) {
+    return instanceTargetClassName(adt, ClassName.get("com.fasterxml.jackson.databind", "JsonDeserializer"));
+  }
+
+  // The class given to @Instances (inClass), or else the target class.
+  private static ClassName instanceTargetClassName(AlgebraicDataType adt, ClassName instanceClassName) {
+    return Optional
+      .ofNullable(adt.deriveConfig().derivedInstances().get(instanceClassName))
+      .flatMap(DerivedInstanceConfig::targetClass)
+      .orElseGet(() -> adt.deriveConfig().targetClass().className());
+  }
+
+  private static ClassName serializedNamesClassName(AlgebraicDataType adt) {
+    return serializerClassName(adt).nestedClass(adt.typeConstructor().typeElement().getSimpleName() + "JsonSerializedNames");
+  }
+
+  private static TypeSpec genValueConstructorTable(AlgebraicDataType adt) {
+    return TypeSpec
+      .classBuilder(valueConstructorTableClassName(adt))
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+      .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+      .addField(FieldSpec
+        .builder(ValueConstructorTable.class, valueConstructorTable, Modifier.STATIC, Modifier.FINAL)
+        .initializer("new $T($L)"
+          , ValueConstructorTable.class
+          , adt
+            .dataConstruction()
+            .constructors()
+            .stream()
+            .map(dataConstructor -> CodeBlock.of("$S", dataConstructor.name()))
+            .collect(Collectors.collectingAndThen(Collectors.toList(), names -> CodeBlock.join(names, ", "))))
+        .build())
+      .build();
+  }
+
+  private static final String valueConstructorTable = "table";
+
+  // Reads only the name of the value constructor of a value, skipping the value.
+  private static MethodSpec genValueConstructorReader(DeriveUtils deriveUtils, AlgebraicDataType adt) {
+    final ParameterSpec jacksonParser =
+      ParameterSpec.builder(ClassName.get("com.fasterxml.jackson.core", "JsonParser"), "p").build();
+
+    return MethodSpec
+      .methodBuilder(deriveUtils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName()) + "JsonValueConstructor")
+      .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+      .returns(String.class)
+      .addParameter(jacksonParser)
+      .addException(IOException.class)
+      .addStatement("return $T.$N.name($T.readValueConstructor($N, $T.$N))"
+        , valueConstructorTableClassName(adt)
+        , valueConstructorTable
+        , ClassName.get(Parsers.class)
+        , jacksonParser
+        , valueConstructorTableClassName(adt)
+        , valueConstructorTable)
+      .build();
+  }
+
+  // Decodes the values of the given value constructors only, as options.
+  private static MethodSpec genFilteredDeserializer(DeriveUtils deriveUtils
+    , AlgebraicDataType adt
+    , ClassName jsonDeserClassName) {
+    final String adtName = deriveUtils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName());
+
+    final List<ParameterSpec> instanceParams = adt
+      .typeConstructor()
+      .typeVariables()
+      .stream()
+      .map(tv -> ParameterSpec
+        .builder(ParameterizedTypeName.get(jsonDeserClassName, TypeVariableName.get(tv))
+          , deriveUtils.uncapitalize(tv.asElement().getSimpleName()) + jsonDeserClassName.simpleName())
+        .build())
+      .collect(Collectors.toList());
+
+    final ParameterSpec valueConstructors =
+      ParameterSpec.builder(ArrayTypeName.of(String.class), "valueConstructors").build();
+
+    return MethodSpec
+      .methodBuilder(adtName + "JsonFilteredDeserializer")
+      .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+      .addTypeVariables(adt
+        .typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList()))
+      .returns(ParameterizedTypeName.get(jsonDeserClassName
+        , ParameterizedTypeName.get(ClassName.get("fj.data", "Option")
+          , TypeName.get(adt.typeConstructor().declaredType()))))
+      .addParameters(instanceParams)
+      .addParameter(valueConstructors)
+      .varargs(true)
+      .addStatement("return $T.filter($T.$N, $N($L), $N)"
+        , ValueConstructorFilter.class
+        , valueConstructorTableClassName(adt)
+        , valueConstructorTable
+        , adtName + jsonDeserClassName.simpleName()
+        , instanceParams
+          .stream()
+          .map(param -> param.name)
+          .collect(Collectors.joining(", "))
+        , valueConstructors)
+      .build();
+  }
+
+  // Builds the JsonCodec of the ADT, from its serializer and deserializer.
+  private static MethodSpec genCodecFactory(DeriveUtils deriveUtils
+    , AlgebraicDataType adt
+    , ClassName jsonSerClassName
+    , ClassName jsonDeserClassName) {
+    final String adtName = deriveUtils.uncapitalize(adt.typeConstructor().typeElement().getSimpleName());
+
+    final ParameterSpec mapper =
+      ParameterSpec.builder(ClassName.get("com.fasterxml.jackson.databind", "ObjectMapper"), "mapper").build();
+
+    final BiFunction<TypeVariable, ClassName, String> instanceParamName = (tv, instanceClassName) ->
+      deriveUtils.uncapitalize(tv.asElement().getSimpleName()) + instanceClassName.simpleName();
+
+    // The serializer and deserializer of each type variable, eg. aJsonSerializer, aJsonDeserializer
+    final List<ParameterSpec> instanceParams = adt
+      .typeConstructor()
+      .typeVariables()
+      .stream()
+      .flatMap(tv -> Stream.of(jsonSerClassName, jsonDeserClassName).map(instanceClassName -> ParameterSpec
+        .builder(ParameterizedTypeName.get(instanceClassName, TypeVariableName.get(tv))
+          , instanceParamName.apply(tv, instanceClassName))
+        .build()))
+      .collect(Collectors.toList());
+
+    final Function<ClassName, String> instanceArgs = instanceClassName -> adt
+      .typeConstructor()
+      .typeVariables()
+      .stream()
+      .map(tv -> instanceParamName.apply(tv, instanceClassName))
+      .collect(Collectors.joining(", "));
+
+    return MethodSpec
+      .methodBuilder(adtName + "JsonCodec")
+      .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+      .addTypeVariables(adt
+        .typeConstructor()
+        .typeVariables()
+        .stream()
+        .map(TypeVariableName::get)
+        .collect(Collectors.toList()))
+      .returns(ParameterizedTypeName.get(ClassName.get(JsonCodec.class), TypeName.get(adt.typeConstructor().declaredType())))
+      .addParameter(mapper)
+      .addParameters(instanceParams)
+      .addStatement("return $T.of($N, $N($L), $N($L))"
+        , JsonCodec.class
+        , mapper
+        , adtName + jsonSerClassName.simpleName()
+        , instanceArgs.apply(jsonSerClassName)
+        , adtName + jsonDeserClassName.simpleName()
+        , instanceArgs.apply(jsonDeserClassName))
+      .build();
+  }
+
+  private static ClassName valueConstructorTableClassName(AlgebraicDataType adt) {
+    return deserializerClassName(adt).nestedClass(adt.typeConstructor().typeElement().getSimpleName() + "JsonValueConstructors");
   }
 
-  private static MethodSpec genSerializerCode(DeriveUtils deriveUtils
+  private static List<MethodSpec> genSerializerCode(DeriveUtils deriveUtils
     , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , ClassName instanceClassName
     , MethodSpec methodSpec) {
+    final boolean caseClasses = hasReachableCaseClasses(adt, instanceClassName);
+
+    if (isSelfRecursive(deriveUtils, adt))
+      return genStackSafeSerializerCode(deriveUtils, instanceUtils, adt, methodSpec, caseClasses);
+
+    final MethodSpec encodingChecked = checkEncoding(adt, methodSpec);
+
+    return Collections.singletonList(caseClasses
+      ? genDirectSerializerCode(deriveUtils, instanceUtils, adt, encodingChecked, Optional.empty())
+      : genMatchSerializerCode(deriveUtils, instanceUtils, adt, encodingChecked, Optional.empty()));
+  }
+
+  private static MethodSpec checkEncoding(AlgebraicDataType adt, MethodSpec methodSpec) {
+    return isPositional(adt)
+      ? methodSpec
+      : methodSpec
+      .toBuilder()
+      .addCode("final boolean $N = $T.isEnabled($N);\n\n"
+        , positional
+        , PositionalEncoding.class
+        , methodSpec.parameters.get(2))
+      .build();
+  }
+
+  // Local of the generated serializers telling whether the positional encoding
+  // is enabled, unless the ADT always uses it.
+  private static final String positional = "_positional";
+
+  private static boolean isPositional(AlgebraicDataType adt) {
+    final JsonFormat format = adt.typeConstructor().typeElement().getAnnotation(JsonFormat.class);
+
+    return format != null && format.shape() == JsonFormat.Shape.ARRAY;
+  }
+
+  // The derive4j case classes are private to the target class, so they can
+  // only be dispatched on when the instance is generated there.
+  private static boolean hasReachableCaseClasses(AlgebraicDataType adt, ClassName instanceClassName) {
+    final boolean inTargetClass = instanceTargetClassName(adt, instanceClassName)
+      .equals(adt.deriveConfig().targetClass().className());
+
+    final List<String> adtTypeVariables = typeVariableNames(adt.typeConstructor().typeVariables());
+
+    return inTargetClass
+      && adt.deriveConfig().makes().contains(Make.constructors)
+      && adt
+      .dataConstruction()
+      .constructors()
+      .stream()
+      .allMatch(dc -> dc.typeRestrictions().isEmpty() && adtTypeVariables.containsAll(typeVariableNames(dc.typeVariables())));
+  }
+
+  private static List<String> typeVariableNames(List<TypeVariable> typeVariables) {
+    return typeVariables
+      .stream()
+      .map(tv -> tv.asElement().getSimpleName().toString())
+      .collect(Collectors.toList());
+  }
+
+  private static MethodSpec genDirectSerializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec
+    , Optional<String> depth) {
+    final ParameterSpec adtParam = methodSpec.parameters.get(0);
+    final ParameterSpec jacksonGen = methodSpec.parameters.get(1);
+    final ParameterSpec serProvider = methodSpec.parameters.get(2);
+
+    return startInstrumentation(methodSpec, Optional.empty())
+      .toBuilder()
+      .addCode(genCaseClassDispatch(deriveUtils
+        , instanceUtils
+        , adt
+        , adtParam
+        , (dataConstructor, fieldAccess) -> CodeBlock
+          .builder()
+          .add(genConstructorWrites(adt
+            , dataConstructor
+            , 0
+            , dataConstructor.arguments().size()
+            , jacksonGen
+            , darg -> depth.isPresent() && isSelf(deriveUtils, adt, darg)
+              ? genNestedWrite(fieldAccess.apply(darg), jacksonGen, serProvider, depth.get())
+              : genFieldWrite(deriveUtils, instanceUtils, darg, jacksonGen, serProvider, fieldAccess)))
+          .add(genSerializedHook(adt, dataConstructor, CodeBlock.of("$N", startNanos)))
+          .build()
+        , value -> depth
+          .map(d -> CodeBlock.of("serialize($L, $N, $N, $N);\n", value, jacksonGen, serProvider, d))
+          .orElseGet(() -> CodeBlock.of("serialize($L, $N, $N);\n", value, jacksonGen, serProvider))))
+      .build();
+  }
+
+  // Dispatches on the case class of the value, reading its fields directly rather
+  // than through a match, which would allocate the cases at each call. Values of
+  // other classes (eg. lazy ones) are rebuilt as case class instances first.
+  private static CodeBlock genCaseClassDispatch(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , ParameterSpec adtParam
+    , BiFunction<DataConstructor, Function<DataArgument, CodeBlock>, CodeBlock> genCaseCode
+    , Function<CodeBlock, CodeBlock> genRebuiltCode) {
+    final ClassName targetClassName = adt.deriveConfig().targetClass().className();
+
+    final CodeBlock.Builder dispatch = CodeBlock.builder();
+
+    for (DataConstructor dataConstructor : adt.dataConstruction().constructors()) {
+      // Qualified through the target class: the simple name could be shadowed
+      // by a member type inherited by the anonymous instance (eg. JsonSerializer.None).
+      final CodeBlock caseClass = caseClass(deriveUtils, adt, dataConstructor);
+      final CodeBlock caseType = caseType(deriveUtils, adt, dataConstructor);
+      final String caseValue = caseValue(dataConstructor);
+
+      final String controlFlow = "if ($N instanceof $L)";
+      if (dataConstructor.index() == 0)
+        dispatch.beginControlFlow(controlFlow, adtParam, caseClass);
+      else
+        dispatch.nextControlFlow("else " + controlFlow, adtParam, caseClass);
+
+      if (!dataConstructor.arguments().isEmpty())
+        dispatch.add("final $L $N = ($L) $N;\n\n", caseType, caseValue, caseType, adtParam);
+
+      dispatch.add(genCaseCode.apply(dataConstructor
+        , darg -> CodeBlock.of("$N.$N", caseValue, darg.fieldName())));
+    }
+
+    return dispatch
+      .nextControlFlow("else")
+      .add(genRebuiltCode.apply(CodeBlock
+        .builder()
+        .add("$N.", adtParam)
+        .add(genMatch(adt, dataConstructor -> deriveUtils
+          .lambdaImpl(dataConstructor
+            , CodeBlock.of("$T.$N$L"
+              , targetClassName
+              , dataConstructor.name()
+              , deriveUtils.parameterList(dataConstructor)))))
+        .build()))
+      .endControlFlow()
+      .build();
+  }
+
+  // As InstanceUtils.matchImpl, but calling the factory of lambda visitors (eg. cases) through
+  // the target class, for instances written in other classes.
+  private static CodeBlock genMatch(AlgebraicDataType adt, Function<DataConstructor, CodeBlock> genLambda) {
+    final ExecutableElement matchMethod = adt.matchMethod().element();
+    final boolean lambdaVisitor =
+      adt.dataConstruction().isVisitorDispatch() && adt.dataConstruction().constructors().size() > 1;
+
+    return CodeBlock
+      .builder()
+      .add(lambdaVisitor
+        ? CodeBlock.of("$N($T.$N(\n"
+          , matchMethod.getSimpleName()
+          , adt.deriveConfig().targetClass().className()
+          , matchMethod.getParameters().get(0).getSimpleName())
+        : CodeBlock.of("$N(\n", matchMethod.getSimpleName()))
+      .indent()
+      .add(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .map(genLambda)
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ",\n"))))
+      .add("\n")
+      .unindent()
+      .add(lambdaVisitor ? "))" : ")")
+      .build();
+  }
+
+  private static CodeBlock caseClass(DeriveUtils deriveUtils, AlgebraicDataType adt, DataConstructor dataConstructor) {
+    return CodeBlock.of("$T.$N"
+      , adt.deriveConfig().targetClass().className()
+      , caseClassName(deriveUtils, adt, dataConstructor));
+  }
+
+  private static CodeBlock caseType(DeriveUtils deriveUtils, AlgebraicDataType adt, DataConstructor dataConstructor) {
+    final String typeArguments = typeVariableNames(adt.typeConstructor().typeVariables())
+      .stream()
+      .collect(Collectors.joining(", "));
+
+    return typeArguments.isEmpty()
+      ? caseClass(deriveUtils, adt, dataConstructor)
+      : CodeBlock.of("$L<$L>", caseClass(deriveUtils, adt, dataConstructor), typeArguments);
+  }
+
+  // Local holding the value cast to its case class.
+  private static String caseValue(DataConstructor dataConstructor) {
+    return "_" + dataConstructor.name();
+  }
+
+  // Mirrors derive4j's naming of case classes, which avoids clashing with the ADT itself.
+  private static String caseClassName(DeriveUtils deriveUtils, AlgebraicDataType adt, DataConstructor dataConstructor) {
+    final String caseClassName = deriveUtils.capitalize(dataConstructor.name());
+
+    return adt.typeConstructor().typeElement().getSimpleName().contentEquals(caseClassName)
+      ? caseClassName + "_"
+      : caseClassName;
+  }
+
+  private static MethodSpec genMatchSerializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec
+    , Optional<String> depth) {
     final ParameterSpec adtParam = methodSpec.parameters.get(0);
     final ParameterSpec jacksonGen = methodSpec.parameters.get(1);
     final ParameterSpec serProvider = methodSpec.parameters.get(2);
 
     final ClassName unitClassName = ClassName.get("fj", "Unit");
 
-    return methodSpec
+    return startInstrumentation(methodSpec, Optional.empty())
       .toBuilder()
-      .addStatement("$N.writeStartObject()", jacksonGen)
-
       .addCode(CodeBlock.builder()
         .add("$N.", adtParam)
-        .add(instanceUtils.matchImpl(dataConstructor -> deriveUtils
+        .add(genMatch(adt, dataConstructor -> deriveUtils
           .lambdaImpl(dataConstructor
             , CodeBlock
               .builder()
@@ -137,39 +759,24 @@ public class JacksonDerivations implements DerivatorFactory {
               .indent()
               .beginControlFlow("try")
 
-              .add("$N.writeStringField($S, $S);\n"
+              .add(genConstructorWrites(adt
+                , dataConstructor
+                , 0
+                , dataConstructor.arguments().size()
                 , jacksonGen
-                , FieldNameFor.valueConstructor
-                , dataConstructor.name())
-
-              .add(dataConstructor
-                .arguments()
-                .stream()
-                .reduce(CodeBlock.of("\n")
-                  , (cb, darg) -> {
-                    final String fieldName = darg.fieldName();
-
-                    final CodeBlock.Builder prepBuilder = cb.toBuilder()
-                      .add("$N.writeFieldName($S);\n", jacksonGen, fieldName);
-
-                    final CodeBlock fieldRef = deriveUtils.isWildcarded(darg.type())
-                      ? CodeBlock.of("($T) $N"
-                      , deriveUtils.types().erasure(darg.type())
-                      , fieldName)
-
-                      : CodeBlock.of("$N", fieldName);
-
-                    return prepBuilder
-                      .add("$L.serialize(", instanceUtils.instanceFor(darg))
-                      .add(fieldRef)
-                      .add(", $N, $N);\n\n", jacksonGen, serProvider)
-                      .build();
-                  }
-                  , (cb1, cb2) -> cb1.toBuilder().add(cb2).build()))
+                , darg -> depth.isPresent() && isSelf(deriveUtils, adt, darg)
+                  ? genNestedWrite(CodeBlock.of("$N", darg.fieldName()), jacksonGen, serProvider, depth.get())
+                  : genFieldWrite(deriveUtils
+                  , instanceUtils
+                  , darg
+                  , jacksonGen
+                  , serProvider
+                  , darg_ -> CodeBlock.of("$N", darg_.fieldName()))))
+              .add(genSerializedHook(adt, dataConstructor, CodeBlock.of("$N", startNanos)))
 
               .endControlFlow()
-              .beginControlFlow("catch (IOException e)")
-              .add("throw new $T(e);\n", RuntimeException.class)
+              .beginControlFlow("catch (IOException _e)")
+              .add("throw $T.sneakyThrow(_e);\n", Exceptions.class)
               .endControlFlow()
               .add("return $T.unit();\n", unitClassName)
               .unindent()
@@ -178,117 +785,1268 @@ public class JacksonDerivations implements DerivatorFactory {
         .add(";\n")
         .build())
 
-      .addStatement("$N.writeEndObject()", jacksonGen)
+      .build();
+  }
+
+  // Writes the fields of the value in [from, to), starting the value when from is 0
+  // and ending it when to is past the last field. Otherwise the field at `to` is
+  // written next, by the caller.
+  private static CodeBlock genConstructorWrites(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , int from
+    , int to
+    , ParameterSpec jacksonGen
+    , Function<DataArgument, CodeBlock> fieldWrite) {
+    final CodeBlock positionalWrites = genPositionalWrites(dataConstructor, from, to, jacksonGen, fieldWrite);
+
+    final CodeBlock writes = isPositional(adt)
+      ? positionalWrites
+      : CodeBlock
+      .builder()
+      .beginControlFlow("if ($N)", positional)
+      .add(positionalWrites)
+      .nextControlFlow("else")
+      .add(genNamedWrites(adt, dataConstructor, from, to, jacksonGen, fieldWrite))
+      .endControlFlow()
+      .build();
+
+    return dataConstructor.arguments().isEmpty()
+      ? genRawValueWrite(adt, dataConstructor, jacksonGen, writes)
+      : writes;
+  }
+
+  // Nullary constructors always encode the same: their whole text is written at once,
+  // to the generators taking it as is.
+  private static CodeBlock genRawValueWrite(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , ParameterSpec jacksonGen
+    , CodeBlock writes) {
+    final ClassName serializedNames = serializedNamesClassName(adt);
 
+    return CodeBlock
+      .builder()
+      .beginControlFlow("if ($T.canWriteRaw($N))", EncodedValueCache.class, jacksonGen)
+      .add(isPositional(adt)
+        ? CodeBlock.of("$N.writeRawValue($T.$N);\n", jacksonGen, serializedNames, encodedValue(dataConstructor, true))
+        : CodeBlock.of("$N.writeRawValue($N ? $T.$N : $T.$N);\n"
+          , jacksonGen
+          , positional
+          , serializedNames
+          , encodedValue(dataConstructor, true)
+          , serializedNames
+          , encodedValue(dataConstructor, false)))
+      .nextControlFlow("else")
+      .add(writes)
+      .endControlFlow()
       .build();
   }
 
-  private static MethodSpec genDeserializerCode(DeriveUtils deriveUtils
+  private static CodeBlock genNamedWrites(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , int from
+    , int to
+    , ParameterSpec jacksonGen
+    , Function<DataArgument, CodeBlock> fieldWrite) {
+    final ClassName serializedNames = serializedNamesClassName(adt);
+    final List<DataArgument> arguments = dataConstructor.arguments();
+
+    final CodeBlock.Builder writes = CodeBlock.builder();
+
+    if (from == 0)
+      writes
+        .addStatement("$N.writeStartObject()", jacksonGen)
+
+        .add("$N.writeFieldName($T.valueConstructor);\n"
+          , jacksonGen
+          , EncodedFieldNameFor.class)
+        .add("$N.writeString($T.$N);\n"
+          , jacksonGen
+          , serializedNames
+          , dataConstructor.name())
+        .add("\n");
+
+    arguments
+      .subList(from, to)
+      .forEach(darg -> writes
+        .add("$N.writeFieldName($T.$N);\n", jacksonGen, serializedNames, darg.fieldName())
+        .add(fieldWrite.apply(darg))
+        .add("\n"));
+
+    return to < arguments.size()
+      ? writes.add("$N.writeFieldName($T.$N);\n", jacksonGen, serializedNames, arguments.get(to).fieldName()).build()
+      : writes.addStatement("$N.writeEndObject()", jacksonGen).build();
+  }
+
+  private static CodeBlock genPositionalWrites(DataConstructor dataConstructor
+    , int from
+    , int to
+    , ParameterSpec jacksonGen
+    , Function<DataArgument, CodeBlock> fieldWrite) {
+    final CodeBlock.Builder writes = CodeBlock.builder();
+
+    if (from == 0)
+      writes
+        .addStatement("$N.writeStartArray()", jacksonGen)
+        .addStatement("$N.writeNumber($L)", jacksonGen, dataConstructor.index());
+
+    dataConstructor
+      .arguments()
+      .subList(from, to)
+      .forEach(darg -> writes.add(fieldWrite.apply(darg)));
+
+    return to < dataConstructor.arguments().size()
+      ? writes.build()
+      : writes.addStatement("$N.writeEndArray()", jacksonGen).build();
+  }
+
+  private static CodeBlock genFieldWrite(DeriveUtils deriveUtils
     , InstanceUtils instanceUtils
-    , AlgebraicDataType adt
-    , MethodSpec methodSpec) {
-    final ClassName
-      jsonNodeClassName =
-      ClassName.get("com.fasterxml.jackson.databind", "JsonNode"),
-      codecClassName =
-        ClassName.get("com.fasterxml.jackson.core", "ObjectCodec"),
-      jsonParseExceptionClassName =
-        ClassName.get("com.fasterxml.jackson.core", "JsonParseException");
+    , DataArgument darg
+    , ParameterSpec jacksonGen
+    , ParameterSpec serProvider
+    , Function<DataArgument, CodeBlock> fieldAccess) {
+    if (darg.type().getKind().isPrimitive())
+      return CodeBlock.of("$T.$NWriter.write($L, $N);\n"
+        , JavaTypes.class
+        , darg.type().toString()
+        , fieldAccess.apply(darg)
+        , jacksonGen);
 
-    final ParameterSpec jacksonParser = methodSpec.parameters.get(0);
-    final ParameterSpec deserCtx = methodSpec.parameters.get(1);
+    final CodeBlock fieldRef = deriveUtils.isWildcarded(darg.type())
+      ? CodeBlock.of("($T) $L"
+      , deriveUtils.types().erasure(darg.type())
+      , fieldAccess.apply(darg))
 
-    final String jsonNode = "jsonNode", codec = "codec";
+      : fieldAccess.apply(darg);
 
-    return methodSpec
-      .toBuilder()
+    return CodeBlock
+      .builder()
+      .add("$L.serialize(", instanceUtils.instanceFor(darg))
+      .add(fieldRef)
+      .add(", $N, $N);\n", jacksonGen, serProvider)
+      .build();
+  }
 
-      .addCode("final $T $N = $N.readValueAsTree();\n"
-        , jsonNodeClassName
-        , jsonNode
-        , jacksonParser)
+  // ## Instrumentation
+  // Instrumented codecs time each value, from its start to its end, and report it to the
+  // site of its value constructor; deserializers report the input offsets as well. Their
+  // checks of Instrumentation.enabled are folded away by the JIT when it is not set.
 
-      .addCode("final String $N = $N.path($S).asText();\n"
-        , FieldNameFor.valueConstructor
-        , jsonNode
-        , FieldNameFor.valueConstructor)
+  private static final String startNanos = "_startNanos", startOffset = "_startOffset", value = "_value";
 
-      .addCode("final $T $N = $N.getCodec();\n"
-        , codecClassName
-        , codec
-        , jacksonParser)
+  private static TypeSpec genInstrumentationSites(AlgebraicDataType adt, ClassName sitesClassName) {
+    return TypeSpec
+      .classBuilder(sitesClassName)
+      .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+      .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+      .addField(FieldSpec
+        .builder(Instrumentation.Site[].class, instrumentationSites, Modifier.STATIC, Modifier.FINAL)
+        .initializer("$T.sites($T.class, $L)"
+          , Instrumentation.class
+          , ClassName.get(adt.typeConstructor().typeElement())
+          , adt
+            .dataConstruction()
+            .constructors()
+            .stream()
+            .map(dataConstructor -> CodeBlock.of("$S", dataConstructor.name()))
+            .collect(Collectors.collectingAndThen(Collectors.toList(), names -> CodeBlock.join(names, ", "))))
+        .build())
+      .build();
+  }
 
-      .beginControlFlow("\nswitch($N)", FieldNameFor.valueConstructor)
+  private static final String instrumentationSites = "sites";
 
-      .addCode(adt
-        .dataConstruction()
-        .constructors()
-        .stream()
-        .reduce(CodeBlock.of("")
+  private static ClassName serializerSitesClassName(AlgebraicDataType adt) {
+    return serializerClassName(adt).nestedClass(adt.typeConstructor().typeElement().getSimpleName() + "JsonSerializerSites");
+  }
 
-          , (cb, dataConstructor) -> cb.toBuilder()
-            .beginControlFlow("case $S: ", dataConstructor.name())
+  private static ClassName deserializerSitesClassName(AlgebraicDataType adt) {
+    return deserializerClassName(adt).nestedClass(adt.typeConstructor().typeElement().getSimpleName() + "JsonDeserializerSites");
+  }
 
-            .add(dataConstructor
-              .arguments()
-              .stream()
-              .reduce(CodeBlock.of("")
-                , (cb_, darg) -> {
-                  final String dargParser = darg.fieldName() + "Parser";
-
-                  final CodeBlock.Builder prepBuilder = cb_.toBuilder()
-                    .add("final $T $N = $N.path($S).traverse($N);\n"
-                      , jacksonParser.type
-                      , dargParser
-                      , jsonNode
-                      , darg.fieldName()
-                      , codec)
-                    .add("$N.nextToken();\n", dargParser);
-
-                  final CodeBlock.Builder assignBuilder = deriveUtils.isWildcarded(darg.type())
-                    ? prepBuilder.add("final $T $N = ($T)\n"
-                    , darg.type()
-                    , darg.fieldName()
-                    , deriveUtils.types().erasure(darg.type()))
-
-                    : prepBuilder.add("final $T $N =\n", darg.type(), darg.fieldName());
-
-                  return assignBuilder
-                    .indent()
-                    .add("$L.deserialize($N, $N);\n\n"
-                      , instanceUtils.instanceFor(darg)
-                      , dargParser
-                      , deserCtx)
-                    .unindent()
-                    .build();
-                }
-                , (cb1, cb2) -> cb1.toBuilder().add(cb2).build()))
-
-            .add("return $T.$N($L);\n"
-              , adt.deriveConfig().targetClass().className()
-              , dataConstructor.name()
-              , CodeBlock.of(dataConstructor
-                .arguments()
-                .stream()
-                .map(DataArgument::fieldName)
-                .collect(Collectors.joining(", "))))
+  // Where the value starts: the time, and the given offset in the input if any.
+  private static MethodSpec startInstrumentation(MethodSpec methodSpec, Optional<CodeBlock> offset) {
+    if (!instrumented)
+      return methodSpec;
 
-            .endControlFlow()
-            .build()
+    final MethodSpec.Builder builder = methodSpec
+      .toBuilder()
+      .addStatement("final long $N = $T.enabled ? System.nanoTime() : 0L", startNanos, Instrumentation.class);
 
-          , (cb1, cb2) -> cb1.toBuilder().add(cb2).build()))
+    offset.ifPresent(o -> builder.addStatement("final long $N = $T.enabled ? $L : 0L", startOffset, Instrumentation.class, o));
 
-      .beginControlFlow("default:")
-      .addCode("throw new $T($N, $S);\n"
-        , jsonParseExceptionClassName
-        , jacksonParser
-        , "Unknown value constructor")
-      .endControlFlow()
+    return builder
+      .addCode("\n")
+      .build();
+  }
 
+  // Where the value started, as startInstrumentation or a frame of the explicit stack
+  // recorded it, then the parser for the hooks of deserializers.
+  private static CodeBlock genInstrumentationHook(ClassName sitesClassName
+    , DataConstructor dataConstructor
+    , String hook
+    , CodeBlock arguments) {
+    return !instrumented
+      ? CodeBlock.of("")
+      : CodeBlock
+      .builder()
+      .beginControlFlow("if ($T.enabled)", Instrumentation.class)
+      .addStatement("$T.$N[$L].$N($L)"
+        , sitesClassName
+        , instrumentationSites
+        , dataConstructor.index()
+        , hook
+        , arguments)
       .endControlFlow()
       .build();
   }
 
+  private static CodeBlock genSerializedHook(AlgebraicDataType adt, DataConstructor dataConstructor, CodeBlock startNanos) {
+    return genInstrumentationHook(serializerSitesClassName(adt), dataConstructor, "serialized", startNanos);
+  }
+
+  private static CodeBlock genValueReturn(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , TypeName valueType
+    , ParameterSpec jacksonParser
+    , ParameterSpec deserCtx) {
+    final CodeBlock construction = isInternable(adt, dataConstructor)
+      ? CodeBlock.of("$T.value($N, $L)", Deduplication.class, deserCtx, genConstruction(adt, dataConstructor))
+      : genConstruction(adt, dataConstructor);
+
+    return !instrumented
+      ? CodeBlock.of("return $L;\n", construction)
+      : CodeBlock
+      .builder()
+      .addStatement("final $T $N = $L", valueType, value, construction)
+      .add(genInstrumentationHook(deserializerSitesClassName(adt)
+        , dataConstructor
+        , "deserialized"
+        , CodeBlock.of("$N, $N, $N", startNanos, startOffset, jacksonParser)))
+      .addStatement("return $N", value)
+      .build();
+  }
+
+  // Small values that Deduplication may share: those of ADTs with a structural equals,
+  // made of a few fields cheap to hash and compare.
+  private static boolean isInternable(AlgebraicDataType adt, DataConstructor dataConstructor) {
+    final List<DataArgument> arguments = dataConstructor.arguments();
+
+    return !arguments.isEmpty()
+      && arguments.size() <= 4
+      && arguments.stream().map(darg -> TypeName.get(darg.type())).allMatch(type ->
+        type.isPrimitive() || type.isBoxedPrimitive() || type.equals(ClassName.get(String.class)))
+      && ElementFilter
+      .methodsIn(adt.typeConstructor().typeElement().getEnclosedElements())
+      .stream()
+      .anyMatch(method -> method.getSimpleName().contentEquals("equals")
+        && method.getParameters().size() == 1
+        && method.getModifiers().contains(Modifier.ABSTRACT));
+  }
+
+  // ## Stack-safe codecs
+  // The codecs of ADTs with fields of the ADT itself recurse as usual up to
+  // ExplicitStack.recursionLimit, then go on with an explicit stack: a loop opening
+  // nested values, and resuming the enclosing ones once they are done.
+  // Values nested through other types (eg. a list of the ADT) still recurse.
+
+  private static boolean isSelfRecursive(DeriveUtils deriveUtils, AlgebraicDataType adt) {
+    return adt
+      .dataConstruction()
+      .constructors()
+      .stream()
+      .flatMap(dataConstructor -> dataConstructor.arguments().stream())
+      .anyMatch(darg -> isSelf(deriveUtils, adt, darg));
+  }
+
+  private static boolean isSelf(DeriveUtils deriveUtils, AlgebraicDataType adt, DataArgument darg) {
+    return deriveUtils.types().isSameType(darg.type(), adt.typeConstructor().declaredType());
+  }
+
+  private static List<Integer> selfPositions(DeriveUtils deriveUtils, AlgebraicDataType adt, DataConstructor dataConstructor) {
+    final List<DataArgument> arguments = dataConstructor.arguments();
+
+    return IntStream
+      .range(0, arguments.size())
+      .filter(i -> isSelf(deriveUtils, adt, arguments.get(i)))
+      .boxed()
+      .collect(Collectors.toList());
+  }
+
+  // Parameter of the recursive methods counting the enclosing values.
+  private static final String depth = "_depth";
+
+  private static final String serializeDeep = "serializeDeep", deserializeDeep = "deserializeDeep";
+
+  private static final String stack = "_stack", next = "_next", result = "_result";
+
+  private static List<MethodSpec> genStackSafeSerializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec
+    , boolean caseClasses) {
+    final MethodSpec recursive = MethodSpec
+      .methodBuilder(methodSpec.name)
+      .addModifiers(Modifier.PRIVATE)
+      .addParameters(methodSpec.parameters)
+      .addParameter(TypeName.INT, depth)
+      .addExceptions(methodSpec.exceptions)
+      .build();
+
+    return asList(methodSpec
+        .toBuilder()
+        .addStatement("$N($L, 0)"
+          , methodSpec.name
+          , methodSpec.parameters.stream().map(param -> param.name).collect(Collectors.joining(", ")))
+        .build()
+
+      , caseClasses
+        ? genDirectSerializerCode(deriveUtils, instanceUtils, adt, checkEncoding(adt, recursive), Optional.of(depth))
+        : genMatchSerializerCode(deriveUtils, instanceUtils, adt, checkEncoding(adt, recursive), Optional.of(depth))
+
+      , genDeepSerializerCode(deriveUtils, instanceUtils, adt, methodSpec, caseClasses));
+  }
+
+  private static CodeBlock genNestedWrite(CodeBlock value
+    , ParameterSpec jacksonGen
+    , ParameterSpec serProvider
+    , String depth) {
+    return CodeBlock
+      .builder()
+      .beginControlFlow("if ($N < $T.recursionLimit)", depth, ExplicitStack.class)
+      .addStatement("serialize($L, $N, $N, $N + 1)", value, jacksonGen, serProvider, depth)
+      .nextControlFlow("else")
+      .addStatement("$N($L, $N, $N)", serializeDeep, value, jacksonGen, serProvider)
+      .endControlFlow()
+      .build();
+  }
+
+  // Writes the fields of a value up to its first field of the ADT, which is opened
+  // next; the frame of the value then resumes after each such field in turn.
+  // Without case classes to dispatch on, values are opened by a match returning the
+  // field to open next (null once written), and the frames hold their fields.
+  private static MethodSpec genDeepSerializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec
+    , boolean caseClasses) {
+    final ParameterSpec adtParam = methodSpec.parameters.get(0);
+    final ParameterSpec jacksonGen = methodSpec.parameters.get(1);
+    final ParameterSpec serProvider = methodSpec.parameters.get(2);
+
+    final TypeName adtType = TypeName.get(adt.typeConstructor().declaredType());
+
+    final BiFunction<DataArgument, Function<DataArgument, CodeBlock>, CodeBlock> fieldWrite =
+      (darg, fieldAccess) -> genFieldWrite(deriveUtils, instanceUtils, darg, jacksonGen, serProvider, fieldAccess);
+
+    final Function<CodeBlock, CodeBlock> assignNext = value -> CodeBlock.of("$N = $L;\n", next, value);
+
+    final CodeBlock resumes = adt
+      .dataConstruction()
+      .constructors()
+      .stream()
+      .filter(dataConstructor -> !selfPositions(deriveUtils, adt, dataConstructor).isEmpty())
+      .map(dataConstructor -> {
+        final List<DataArgument> arguments = dataConstructor.arguments();
+        final List<Integer> selfPositions = selfPositions(deriveUtils, adt, dataConstructor);
+        final CodeBlock caseType = caseType(deriveUtils, adt, dataConstructor);
+        final String caseValue = caseValue(dataConstructor);
+        final Function<DataArgument, CodeBlock> fieldAccess = caseClasses
+          ? darg -> CodeBlock.of("$N.$N", caseValue, darg.fieldName())
+          : darg -> CodeBlock.of("(($T) $N[$L])", TypeName.get(darg.type()).box(), caseValue, arguments.indexOf(darg));
+
+        return CodeBlock
+          .builder()
+          .beginControlFlow("case $L:", dataConstructor.index())
+          .add(caseClasses
+            ? CodeBlock.of("final $L $N = ($L) $N.value();\n\n", caseType, caseValue, caseType, stack)
+            : CodeBlock.of("final Object[] $N = (Object[]) $N.value();\n\n", caseValue, stack))
+          .beginControlFlow("switch ($N.position())", stack)
+          .add(IntStream
+            .rangeClosed(1, selfPositions.size())
+            .mapToObj(position -> CodeBlock
+              .builder()
+              .beginControlFlow("case $L:", position)
+              .add(genResumedWrites(adt
+                , dataConstructor
+                , selfPositions
+                , selfPositions.get(position - 1) + 1
+                , position
+                , jacksonGen
+                , fieldAccess
+                , darg -> fieldWrite.apply(darg, fieldAccess)
+                , CodeBlock.of("$N", caseValue)
+                , assignNext))
+              .add("break;\n")
+              .endControlFlow()
+              .build())
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+          .endControlFlow()
+          .add("break;\n")
+          .endControlFlow()
+          .build();
+      })
+      .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, "")));
+
+    final MethodSpec.Builder deep = MethodSpec
+      .methodBuilder(serializeDeep)
+      .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+      .addModifiers(Modifier.PRIVATE)
+      .addParameters(methodSpec.parameters)
+      .addExceptions(methodSpec.exceptions);
+
+    if (!isPositional(adt))
+      deep.addStatement("final boolean $N = $T.isEnabled($N)", positional, PositionalEncoding.class, serProvider);
+
+    deep
+      .addStatement("final $T $N = new $T()", ExplicitStack.class, stack, ExplicitStack.class)
+      .addStatement("$T $N = $N", adtType, next, adtParam)
+
+      .beginControlFlow("\ndo")
+      .beginControlFlow("if ($N != null)", next);
+
+    if (instrumented)
+      deep.addStatement("final long $N = $T.enabled ? System.nanoTime() : 0L", startNanos, Instrumentation.class);
+
+    return deep
+      .addCode(caseClasses
+        ? genCaseClassDispatch(deriveUtils
+        , instanceUtils
+        , adt
+        , ParameterSpec.builder(adtType, next).build()
+        , (dataConstructor, fieldAccess) -> genResumedWrites(adt
+          , dataConstructor
+          , selfPositions(deriveUtils, adt, dataConstructor)
+          , 0
+          , 0
+          , jacksonGen
+          , fieldAccess
+          , darg -> fieldWrite.apply(darg, fieldAccess)
+          , CodeBlock.of("$N", caseValue(dataConstructor))
+          , assignNext)
+        , assignNext)
+        : CodeBlock
+        .builder()
+        .add("$N = $N.", next, next)
+        .add(genMatch(adt, dataConstructor -> deriveUtils
+          .lambdaImpl(dataConstructor
+            , CodeBlock
+              .builder()
+              .add("{\n")
+              .indent()
+              .beginControlFlow("try")
+              .add(genResumedWrites(adt
+                , dataConstructor
+                , selfPositions(deriveUtils, adt, dataConstructor)
+                , 0
+                , 0
+                , jacksonGen
+                , darg -> CodeBlock.of("$N", darg.fieldName())
+                , darg -> fieldWrite.apply(darg, darg_ -> CodeBlock.of("$N", darg_.fieldName()))
+                , genFieldsFrame(dataConstructor)
+                , value -> CodeBlock.of("return $L;\n", value)))
+              .endControlFlow()
+              .beginControlFlow("catch (IOException _e)")
+              .add("throw $T.sneakyThrow(_e);\n", Exceptions.class)
+              .endControlFlow()
+              .unindent()
+              .add("}")
+              .build())))
+        .add(";\n")
+        .build())
+      .nextControlFlow("else")
+      .beginControlFlow("switch ($N.valueConstructor())", stack)
+      .addCode(resumes)
+      .endControlFlow()
+      .endControlFlow()
+      .endControlFlow("while ($N != null || !$N.isEmpty())", next, stack)
+      .build();
+  }
+
+  private static CodeBlock genFieldsFrame(DataConstructor dataConstructor) {
+    final CodeBlock fields = dataConstructor
+      .arguments()
+      .stream()
+      .map(darg -> CodeBlock.of("$N", darg.fieldName()))
+      .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ", ")));
+
+    return CodeBlock.of("new Object[] {$L}", fields);
+  }
+
+  // Writes the fields from `from` up to the next field of the ADT, then pushes the
+  // frame of the value and opens that field (through genNext), or ends the value.
+  private static CodeBlock genResumedWrites(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , List<Integer> selfPositions
+    , int from
+    , int position
+    , ParameterSpec jacksonGen
+    , Function<DataArgument, CodeBlock> fieldAccess
+    , Function<DataArgument, CodeBlock> fieldWrite
+    , CodeBlock frame
+    , Function<CodeBlock, CodeBlock> genNext) {
+    final int to = position < selfPositions.size()
+      ? selfPositions.get(position)
+      : dataConstructor.arguments().size();
+
+    final CodeBlock.Builder writes = CodeBlock
+      .builder()
+      .add(genConstructorWrites(adt, dataConstructor, from, to, jacksonGen, fieldWrite));
+
+    if (position == selfPositions.size())
+      return position == 0
+        ? writes
+        .add(genSerializedHook(adt, dataConstructor, CodeBlock.of("$N", startNanos)))
+        .add(genNext.apply(CodeBlock.of("null")))
+        .build()
+        : writes
+        .add(genSerializedHook(adt, dataConstructor, CodeBlock.of("$N.startNanos()", stack)))
+        .addStatement("$N.pop()", stack)
+        .build();
+
+    if (position > 0)
+      writes.addStatement("$N.setPosition($L)", stack, position + 1);
+    else {
+      writes.addStatement("$N.push($L, $L, 1)", stack, frame, dataConstructor.index());
+
+      if (instrumented)
+        writes.addStatement("$N.setStart($N, 0L)", stack, startNanos);
+    }
+
+    return writes
+      .add(genNext.apply(fieldAccess.apply(dataConstructor.arguments().get(to))))
+      .build();
+  }
+
+  private static final ClassName
+    jsonTokenClassName =
+      ClassName.get("com.fasterxml.jackson.core", "JsonToken"),
+    rejectedInputExceptionClassName =
+      ClassName.get(RejectedInputException.class);
+
+  private static List<MethodSpec> genDeserializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec) {
+    if (!isSelfRecursive(deriveUtils, adt))
+      return Collections.singletonList(genRecursiveDeserializerCode(deriveUtils
+        , instanceUtils
+        , adt
+        , methodSpec
+        , (darg, parser) -> genFieldRead(deriveUtils, instanceUtils, darg, parser, methodSpec.parameters.get(1))));
+
+    final MethodSpec recursive = MethodSpec
+      .methodBuilder(methodSpec.name)
+      .addModifiers(Modifier.PRIVATE)
+      .returns(TypeName.get(adt.typeConstructor().declaredType()))
+      .addParameters(methodSpec.parameters)
+      .addParameter(TypeName.INT, depth)
+      .addExceptions(methodSpec.exceptions)
+      .build();
+
+    final ParameterSpec deserCtx = methodSpec.parameters.get(1);
+
+    return asList(methodSpec
+        .toBuilder()
+        .addStatement("return $N($N, $N, 0)", methodSpec.name, methodSpec.parameters.get(0), deserCtx)
+        .build()
+
+      , genRecursiveDeserializerCode(deriveUtils
+        , instanceUtils
+        , adt
+        , recursive
+        , (darg, parser) -> isSelf(deriveUtils, adt, darg)
+          ? CodeBlock.of("$N < $T.recursionLimit ? $N($N, $N, $N + 1) : $N($N, $N)"
+          , depth
+          , ExplicitStack.class
+          , methodSpec.name
+          , parser
+          , deserCtx
+          , depth
+          , deserializeDeep
+          , parser
+          , deserCtx)
+          : genFieldRead(deriveUtils, instanceUtils, darg, parser, deserCtx))
+
+      , genDeepDeserializerCode(deriveUtils, instanceUtils, adt, methodSpec));
+  }
+
+  private static MethodSpec genRecursiveDeserializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec
+    , BiFunction<DataArgument, String, CodeBlock> fieldRead) {
+    final ParameterSpec jacksonParser = methodSpec.parameters.get(0);
+    final ParameterSpec deserCtx = methodSpec.parameters.get(1);
+
+    final String parser = "_parser", fieldName = "_fieldName";
+
+    final Function<DataConstructor, CodeBlock> valueReturn =
+      dataConstructor -> genValueReturn(adt, dataConstructor, methodSpec.returnType, jacksonParser, deserCtx);
+
+    return startInstrumentation(methodSpec, Optional.of(CodeBlock.of("$T.inputOffset($N)", Instrumentation.class, jacksonParser)))
+      .toBuilder()
+
+      .beginControlFlow("if ($N.isExpectedStartArrayToken())", jacksonParser)
+      .addCode(genPositionalDeserializerCode(adt, jacksonParser, fieldRead, valueReturn))
+      .endControlFlow()
+
+      .addCode("\nfinal $T $N = $T.seekValueConstructor($N, $N);\n"
+        , jacksonParser.type
+        , parser
+        , ClassName.get(Parsers.class)
+        , jacksonParser
+        , deserCtx)
+
+      .beginControlFlow("\nswitch($T.$N.indexOf($N))"
+        , valueConstructorTableClassName(adt)
+        , valueConstructorTable
+        , parser)
+
+      .addCode(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .map(dataConstructor -> CodeBlock
+          .builder()
+          .beginControlFlow("case $L: ", dataConstructor.index())
+
+          .add(dataConstructor.arguments().isEmpty()
+            ? CodeBlock.of("$T.skipFields($N);\n", ClassName.get(Parsers.class), parser)
+
+            : CodeBlock
+              .builder()
+              .add(dataConstructor
+                .arguments()
+                .stream()
+                .map(darg -> CodeBlock.of("$T $N = $L;\n", darg.type(), darg.fieldName(), defaultValue(darg.type())))
+                .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+
+              .beginControlFlow("\nwhile ($N.nextToken() == $T.FIELD_NAME)", parser, jsonTokenClassName)
+              .add("final String $N = $N.getCurrentName();\n", fieldName, parser)
+              .add("$N.nextToken();\n", parser)
+
+              .beginControlFlow("\nswitch($N)", fieldName)
+              .add(dataConstructor
+                .arguments()
+                .stream()
+                .map(darg -> CodeBlock
+                  .builder()
+                  .add("case $S:\n", darg.fieldName())
+                  .indent()
+                  .add("$N = $L;\n"
+                    , darg.fieldName()
+                    , fieldRead.apply(darg, parser))
+                  .add("break;\n")
+                  .unindent()
+                  .build())
+                .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+              .add("default:\n")
+              .indent()
+              .add("$N.skipChildren();\n", parser)
+              .unindent()
+              .endControlFlow()
+
+              .endControlFlow()
+              .build())
+
+          .add("\n")
+          .add(valueReturn.apply(dataConstructor))
+
+          .endControlFlow()
+          .build())
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+
+      .beginControlFlow("default:")
+      .addCode("throw new $T($N, $S);\n"
+        , rejectedInputExceptionClassName
+        , parser
+        , "Unknown value constructor")
+      .endControlFlow()
+
+      .endControlFlow()
+      .build();
+  }
+
+  // `[constructorIndex, field1, field2, ...]`: components are read in order,
+  // trailing ones are skipped.
+  private static CodeBlock genPositionalDeserializerCode(AlgebraicDataType adt
+    , ParameterSpec jacksonParser
+    , BiFunction<DataArgument, String, CodeBlock> fieldRead
+    , Function<DataConstructor, CodeBlock> valueReturn) {
+    final ClassName parsersClassName = ClassName.get(Parsers.class);
+
+    return CodeBlock
+      .builder()
+      .beginControlFlow("switch($T.positionalValueConstructor($N))", parsersClassName, jacksonParser)
+
+      .add(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .map(dataConstructor -> CodeBlock
+          .builder()
+          .beginControlFlow("case $L: ", dataConstructor.index())
+
+          .add(dataConstructor
+            .arguments()
+            .stream()
+            .map(darg -> CodeBlock
+              .builder()
+              .add("$T.nextComponent($N);\n", parsersClassName, jacksonParser)
+              .add("final $T $N = $L;\n\n"
+                , darg.type()
+                , darg.fieldName()
+                , fieldRead.apply(darg, jacksonParser.name))
+              .build())
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+
+          .add("$T.skipComponents($N);\n", parsersClassName, jacksonParser)
+          .add(valueReturn.apply(dataConstructor))
+
+          .endControlFlow()
+          .build())
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+
+      .beginControlFlow("default:")
+      .add("throw new $T($N, $S);\n"
+        , rejectedInputExceptionClassName
+        , jacksonParser
+        , "Unknown value constructor")
+      .endControlFlow()
+
+      .endControlFlow()
+      .build();
+  }
+
+  // Reads the fields of a value into an array, in a frame pushed once its value
+  // constructor is known. A frame reading a field of the ADT opens it and resumes
+  // with its value, as in the recursive deserializer but for the positional encoding,
+  // whose frames resume after each such field in turn.
+  private static MethodSpec genDeepDeserializerCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec) {
+    final ParameterSpec jacksonParser = methodSpec.parameters.get(0);
+    final ParameterSpec deserCtx = methodSpec.parameters.get(1);
+
+    final ClassName parsersClassName = ClassName.get(Parsers.class);
+    final String parser = "_parser", isPositional = "_isPositional", valueConstructor = "_valueConstructor"
+      , fields = "_fields", fieldName = "_fieldName";
+
+    final CodeBlock frames = adt
+      .dataConstruction()
+      .constructors()
+      .stream()
+      .map(dataConstructor -> CodeBlock
+        .builder()
+        .add("case $L:\n", dataConstructor.index())
+        .indent()
+        .addStatement("$N.push(new Object[] {$L}, $L, $N ? 0 : -1, $N, $N)"
+          , stack
+          , dataConstructor
+            .arguments()
+            .stream()
+            .map(darg -> boxedDefaultValue(darg.type()))
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ", ")))
+          , dataConstructor.index()
+          , isPositional
+          , parser
+          , isPositional)
+        .add(instrumented
+          ? CodeBlock.of("$N.setStart($N, $N);\n", stack, startNanos, startOffset)
+          : CodeBlock.of(""))
+        .add("break;\n")
+        .unindent()
+        .build())
+      .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, "")));
+
+    final CodeBlock resumes = adt
+      .dataConstruction()
+      .constructors()
+      .stream()
+      .map(dataConstructor -> {
+        final List<DataArgument> arguments = dataConstructor.arguments();
+        final List<Integer> selfPositions = selfPositions(deriveUtils, adt, dataConstructor);
+
+        final Function<Integer, CodeBlock> fieldReads = position -> {
+          final int from = position == 0 ? 0 : selfPositions.get(position - 1) + 1;
+          final int to = position < selfPositions.size() ? selfPositions.get(position) : arguments.size();
+
+          final CodeBlock.Builder reads = CodeBlock.builder();
+
+          if (position > 0)
+            reads.addStatement("$N[$L] = $N", fields, selfPositions.get(position - 1), result);
+
+          IntStream.range(from, to).forEach(i -> reads
+            .addStatement("$T.nextComponent($N)", parsersClassName, parser)
+            .addStatement("$N[$L] = $L", fields, i, genFieldRead(deriveUtils, instanceUtils, arguments.get(i), parser, deserCtx)));
+
+          return position < selfPositions.size()
+            ? reads
+              .addStatement("$T.nextComponent($N)", parsersClassName, parser)
+              .addStatement("$N.setPosition($L)", stack, position + 1)
+              .addStatement("$N = $N", next, parser)
+              .build()
+            : reads
+              .addStatement("$T.skipComponents($N)", parsersClassName, parser)
+              .add(genDeepValueEnd(adt, dataConstructor, fields, parser, deserCtx))
+              .build();
+        };
+
+        return CodeBlock
+          .builder()
+          .beginControlFlow("case $L:", dataConstructor.index())
+          .addStatement("final Object[] $N = (Object[]) $N.value()", fields, stack)
+          .addStatement("final $T $N = $N.parser()", jacksonParser.type, parser, stack)
+
+          .beginControlFlow("\nif ($N.isPositional())", stack)
+          .beginControlFlow("switch ($N.position())", stack)
+          .add(IntStream
+            .rangeClosed(0, selfPositions.size())
+            .mapToObj(position -> CodeBlock
+              .builder()
+              .beginControlFlow("case $L:", position)
+              .add(fieldReads.apply(position))
+              .add("break;\n")
+              .endControlFlow()
+              .build())
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+          .endControlFlow()
+
+          .nextControlFlow("else")
+          .beginControlFlow("if ($N.position() >= 0)", stack)
+          .addStatement("$N[$N.position()] = $N", fields, stack, result)
+          .endControlFlow()
+
+          .beginControlFlow("\nwhile ($N == null && $N.nextToken() == $T.FIELD_NAME)", next, parser, jsonTokenClassName)
+          .addStatement("final String $N = $N.getCurrentName()", fieldName, parser)
+          .addStatement("$N.nextToken()", parser)
+
+          .beginControlFlow("\nswitch ($N)", fieldName)
+          .add(IntStream
+            .range(0, arguments.size())
+            .mapToObj(i -> CodeBlock
+              .builder()
+              .add("case $S:\n", arguments.get(i).fieldName())
+              .indent()
+              .add(isSelf(deriveUtils, adt, arguments.get(i))
+                ? CodeBlock
+                .builder()
+                .addStatement("$N.setPosition($L)", stack, i)
+                .addStatement("$N = $N", next, parser)
+                .build()
+                : CodeBlock.of("$N[$L] = $L;\n"
+                , fields
+                , i
+                , genFieldRead(deriveUtils, instanceUtils, arguments.get(i), parser, deserCtx)))
+              .add("break;\n")
+              .unindent()
+              .build())
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+          .add("default:\n")
+          .indent()
+          .addStatement("$N.skipChildren()", parser)
+          .unindent()
+          .endControlFlow()
+          .endControlFlow()
+
+          .beginControlFlow("\nif ($N == null)", next)
+          .add(genDeepValueEnd(adt, dataConstructor, fields, parser, deserCtx))
+          .endControlFlow()
+          .endControlFlow()
+          .add("break;\n")
+          .endControlFlow()
+          .build();
+      })
+      .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, "")));
+
+    final MethodSpec.Builder deep = MethodSpec
+      .methodBuilder(deserializeDeep)
+      .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+      .addModifiers(Modifier.PRIVATE)
+      .returns(TypeName.get(adt.typeConstructor().declaredType()))
+      .addParameters(methodSpec.parameters)
+      .addExceptions(methodSpec.exceptions)
+
+      .addStatement("final $T $N = new $T()", ExplicitStack.class, stack, ExplicitStack.class)
+      .addStatement("$T $N = $N", jacksonParser.type, next, jacksonParser)
+      .addStatement("Object $N = null", result)
+
+      .beginControlFlow("\nwhile (true)")
+      .beginControlFlow("if ($N != null)", next);
+
+    if (instrumented)
+      deep
+        .addStatement("final long $N = $T.enabled ? System.nanoTime() : 0L", startNanos, Instrumentation.class)
+        .addStatement("final long $N = $T.enabled ? $T.inputOffset($N) : 0L"
+          , startOffset
+          , Instrumentation.class
+          , Instrumentation.class
+          , next);
+
+    return deep
+      .addStatement("final boolean $N = $N.isExpectedStartArrayToken()", isPositional, next)
+      .addStatement("final $T $N = $N ? $N : $T.seekValueConstructor($N, $N)"
+        , jacksonParser.type
+        , parser
+        , isPositional
+        , next
+        , parsersClassName
+        , next
+        , deserCtx)
+      .addStatement("final int $N = $N ? $T.positionalValueConstructor($N) : $T.$N.indexOf($N)"
+        , valueConstructor
+        , isPositional
+        , parsersClassName
+        , parser
+        , valueConstructorTableClassName(adt)
+        , valueConstructorTable
+        , parser)
+
+      .beginControlFlow("\nswitch ($N)", valueConstructor)
+      .addCode(frames)
+      .addCode(CodeBlock
+        .builder()
+        .add("default:\n")
+        .indent()
+        .addStatement("throw new $T($N, $S)", rejectedInputExceptionClassName, parser, "Unknown value constructor")
+        .unindent()
+        .build())
+      .endControlFlow()
+
+      .addStatement("$N = null", next)
+      .nextControlFlow("else if ($N.isEmpty())", stack)
+      .addStatement("return ($T) $N", TypeName.get(adt.typeConstructor().declaredType()), result)
+      .endControlFlow()
+
+      .beginControlFlow("\nswitch ($N.valueConstructor())", stack)
+      .addCode(resumes)
+      .endControlFlow()
+      .endControlFlow()
+      .build();
+  }
+
+  // Builds the value of the frame, as genValueReturn does, then drops the frame.
+  private static CodeBlock genDeepValueEnd(AlgebraicDataType adt
+    , DataConstructor dataConstructor
+    , String fields
+    , String parser
+    , ParameterSpec deserCtx) {
+    return CodeBlock
+      .builder()
+      .addStatement("$N = $L", result, isInternable(adt, dataConstructor)
+        ? CodeBlock.of("$T.value($N, $L)", Deduplication.class, deserCtx, genDeepConstruction(adt, dataConstructor, fields))
+        : genDeepConstruction(adt, dataConstructor, fields))
+      .add(genInstrumentationHook(deserializerSitesClassName(adt)
+        , dataConstructor
+        , "deserialized"
+        , CodeBlock.of("$N.startNanos(), $N.startOffset(), $N", stack, stack, parser)))
+      .addStatement("$N.pop()", stack)
+      .build();
+  }
+
+  private static CodeBlock genDeepConstruction(AlgebraicDataType adt, DataConstructor dataConstructor, String fields) {
+    final List<DataArgument> arguments = dataConstructor.arguments();
+
+    return CodeBlock.of("$T.$N($L)"
+      , adt.deriveConfig().targetClass().className()
+      , dataConstructor.name()
+      , IntStream
+        .range(0, arguments.size())
+        .mapToObj(i -> CodeBlock.of("($T) $N[$L]", TypeName.get(arguments.get(i).type()).box(), fields, i))
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ", "))));
+  }
+
+  private static CodeBlock genFieldRead(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataArgument darg
+    , String parser
+    , ParameterSpec deserCtx) {
+    if (darg.type().getKind().isPrimitive())
+      return CodeBlock.of("$T.$NReader.read($N)"
+        , JavaTypes.class
+        , darg.type().toString()
+        , parser);
+
+    final CodeBlock deserialization = CodeBlock.of("$L.deserialize($N, $N)"
+      , instanceUtils.instanceFor(darg)
+      , parser
+      , deserCtx);
+
+    return deriveUtils.isWildcarded(darg.type())
+      ? CodeBlock.of("($T) $L", deriveUtils.types().erasure(darg.type()), deserialization)
+      : deserialization;
+  }
+
+  // Builds the tree the serializer would give, in the named encoding unless the ADT
+  // always uses the positional one: there is no provider to enable it from.
+  private static MethodSpec genNodeEncoderCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , ClassName instanceClassName
+    , MethodSpec methodSpec) {
+    final ParameterSpec adtParam = methodSpec.parameters.get(0);
+    final ParameterSpec nodes = methodSpec.parameters.get(1);
+
+    final BiFunction<DataConstructor, Function<DataArgument, CodeBlock>, CodeBlock> genNodeCode =
+      (dataConstructor, fieldAccess) -> CodeBlock
+        .builder()
+        .add(isPositional(adt)
+          ? genPositionalNode(deriveUtils, instanceUtils, dataConstructor, nodes, fieldAccess)
+          : genNamedNode(deriveUtils, instanceUtils, dataConstructor, nodes, fieldAccess))
+        .add("return $N;\n", node)
+        .build();
+
+    if (hasReachableCaseClasses(adt, instanceClassName))
+      return methodSpec
+        .toBuilder()
+        .addCode(genCaseClassDispatch(deriveUtils
+          , instanceUtils
+          , adt
+          , adtParam
+          , genNodeCode
+          , value -> CodeBlock.of("return encode($L, $N);\n", value, nodes)))
+        .build();
+
+    return methodSpec
+      .toBuilder()
+      .addCode(CodeBlock.builder()
+        .add("return $N.", adtParam)
+        .add(genMatch(adt, dataConstructor -> deriveUtils
+          .lambdaImpl(dataConstructor
+            , CodeBlock
+              .builder()
+              .add("{\n")
+              .indent()
+              .add(genNodeCode.apply(dataConstructor, darg -> CodeBlock.of("$N", darg.fieldName())))
+              .unindent()
+              .add("}")
+              .build())))
+        .add(";\n")
+        .build())
+      .build();
+  }
+
+  // Local of the generated node encoders holding the node being built.
+  private static final String node = "_node";
+
+  private static CodeBlock genNamedNode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataConstructor dataConstructor
+    , ParameterSpec nodes
+    , Function<DataArgument, CodeBlock> fieldAccess) {
+    return CodeBlock
+      .builder()
+      .add("final $T $N = $N.objectNode();\n"
+        , ClassName.get("com.fasterxml.jackson.databind.node", "ObjectNode")
+        , node
+        , nodes)
+      .add("$N.put($T.valueConstructor, $S);\n", node, FieldNameFor.class, dataConstructor.name())
+
+      .add(dataConstructor
+        .arguments()
+        .stream()
+        .map(darg -> CodeBlock.of("$N.set($S, $L);\n"
+          , node
+          , darg.fieldName()
+          , genFieldEncode(deriveUtils, instanceUtils, darg, nodes, fieldAccess)))
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+      .build();
+  }
+
+  private static CodeBlock genPositionalNode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataConstructor dataConstructor
+    , ParameterSpec nodes
+    , Function<DataArgument, CodeBlock> fieldAccess) {
+    return CodeBlock
+      .builder()
+      .add("final $T $N = $N.arrayNode();\n"
+        , ClassName.get("com.fasterxml.jackson.databind.node", "ArrayNode")
+        , node
+        , nodes)
+      .add("$N.add($L);\n", node, dataConstructor.index())
+
+      .add(dataConstructor
+        .arguments()
+        .stream()
+        .map(darg -> CodeBlock.of("$N.add($L);\n"
+          , node
+          , genFieldEncode(deriveUtils, instanceUtils, darg, nodes, fieldAccess)))
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+      .build();
+  }
+
+  private static CodeBlock genFieldEncode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataArgument darg
+    , ParameterSpec nodes
+    , Function<DataArgument, CodeBlock> fieldAccess) {
+    if (darg.type().getKind().isPrimitive())
+      return CodeBlock.of("$T.$N.encode($L, $N)"
+        , JavaTypes.class
+        , primitiveNodeInstance(deriveUtils, darg.type(), JsonNodeEncoder.class)
+        , fieldAccess.apply(darg)
+        , nodes);
+
+    final CodeBlock fieldRef = deriveUtils.isWildcarded(darg.type())
+      ? CodeBlock.of("($T) $L", deriveUtils.types().erasure(darg.type()), fieldAccess.apply(darg))
+      : fieldAccess.apply(darg);
+
+    return CodeBlock.of("$L.encode($L, $N)", instanceUtils.instanceFor(darg), fieldRef, nodes);
+  }
+
+  // Reads both the named and the positional encodings, as the deserializer does.
+  private static MethodSpec genNodeDecoderCode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , AlgebraicDataType adt
+    , MethodSpec methodSpec) {
+    final ParameterSpec node = methodSpec.parameters.get(0);
+
+    final ClassName nodesClassName = ClassName.get(JsonNodes.class);
+
+    return methodSpec
+      .toBuilder()
+
+      .beginControlFlow("if ($N.isArray())", node)
+      .beginControlFlow("switch($T.positionalValueConstructor($N))", nodesClassName, node)
+      .addCode(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .map(dataConstructor -> CodeBlock
+          .builder()
+          .beginControlFlow("case $L: ", dataConstructor.index())
+          .add(IntStream
+            .range(0, dataConstructor.arguments().size())
+            .mapToObj(i -> {
+              final DataArgument darg = dataConstructor.arguments().get(i);
+
+              return CodeBlock.of("final $T $N = $L;\n"
+                , darg.type()
+                , darg.fieldName()
+                , genFieldDecode(deriveUtils
+                  , instanceUtils
+                  , darg
+                  , CodeBlock.of("$T.component($N, $L)", nodesClassName, node, i + 1)));
+            })
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+          .add("return $L;\n", genConstruction(adt, dataConstructor))
+          .endControlFlow()
+          .build())
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+      .beginControlFlow("default:")
+      .addCode("throw $T.error($S);\n", nodesClassName, "Unknown value constructor")
+      .endControlFlow()
+      .endControlFlow()
+      .endControlFlow()
+
+      .beginControlFlow("\nswitch($T.valueConstructor($N))", nodesClassName, node)
+      .addCode(adt
+        .dataConstruction()
+        .constructors()
+        .stream()
+        .map(dataConstructor -> CodeBlock
+          .builder()
+          .beginControlFlow("case $S: ", dataConstructor.name())
+          .add(dataConstructor
+            .arguments()
+            .stream()
+            .map(darg -> CodeBlock.of("final $T $N = $L;\n"
+              , darg.type()
+              , darg.fieldName()
+              , genNamedFieldDecode(deriveUtils, instanceUtils, darg, node)))
+            .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+          .add("return $L;\n", genConstruction(adt, dataConstructor))
+          .endControlFlow()
+          .build())
+        .collect(Collectors.collectingAndThen(Collectors.toList(), codeBlocks -> CodeBlock.join(codeBlocks, ""))))
+      .beginControlFlow("default:")
+      .addCode("throw $T.error($S);\n", nodesClassName, "Unknown value constructor")
+      .endControlFlow()
+      .endControlFlow()
+      .build();
+  }
+
+  // Missing fields are read as the deserializer reads them: primitives as zero, others as null.
+  private static CodeBlock genNamedFieldDecode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataArgument darg
+    , ParameterSpec node) {
+    if (darg.type().getKind().isPrimitive())
+      return genFieldDecode(deriveUtils, instanceUtils, darg, CodeBlock.of("$N.path($S)", node, darg.fieldName()));
+
+    final CodeBlock decoding = CodeBlock.of("$T.field($N, $S, $L)"
+      , ClassName.get(JsonNodes.class)
+      , node
+      , darg.fieldName()
+      , instanceUtils.instanceFor(darg));
+
+    return deriveUtils.isWildcarded(darg.type())
+      ? CodeBlock.of("($T) $L", deriveUtils.types().erasure(darg.type()), decoding)
+      : decoding;
+  }
+
+  private static CodeBlock genFieldDecode(DeriveUtils deriveUtils
+    , InstanceUtils instanceUtils
+    , DataArgument darg
+    , CodeBlock fieldNode) {
+    if (darg.type().getKind().isPrimitive())
+      return CodeBlock.of("$T.$N.decode($L)"
+        , JavaTypes.class
+        , primitiveNodeInstance(deriveUtils, darg.type(), JsonNodeDecoder.class)
+        , fieldNode);
+
+    final CodeBlock decoding = CodeBlock.of("$L.decode($L)", instanceUtils.instanceFor(darg), fieldNode);
+
+    return deriveUtils.isWildcarded(darg.type())
+      ? CodeBlock.of("($T) $L", deriveUtils.types().erasure(darg.type()), decoding)
+      : decoding;
+  }
+
+  // The JavaTypes instance of the boxed type, eg. integerNodeDecoder for an int.
+  private static String primitiveNodeInstance(DeriveUtils deriveUtils, TypeMirror type, Class<?> instanceClass) {
+    return deriveUtils.uncapitalize(deriveUtils
+      .types()
+      .boxedClass((PrimitiveType) type)
+      .getSimpleName()) + instanceClass.getSimpleName().substring("Json".length());
+  }
+
+  private static CodeBlock genConstruction(AlgebraicDataType adt, DataConstructor dataConstructor) {
+    return CodeBlock.of("$T.$N($L)"
+      , adt.deriveConfig().targetClass().className()
+      , dataConstructor.name()
+      , dataConstructor
+        .arguments()
+        .stream()
+        .map(DataArgument::fieldName)
+        .collect(Collectors.joining(", ")));
+  }
+
+  // As defaultValue, boxed to the wrapper of the type.
+  private static CodeBlock boxedDefaultValue(TypeMirror type) {
+    switch (type.getKind()) {
+      case BYTE:
+      case SHORT: return CodeBlock.of("($T) 0", TypeName.get(type));
+      default: return defaultValue(type);
+    }
+  }
+
+  private static CodeBlock defaultValue(TypeMirror type) {
+    switch (type.getKind()) {
+      case BOOLEAN: return CodeBlock.of("false");
+      case CHAR: return CodeBlock.of("'\\0'");
+      case LONG: return CodeBlock.of("0L");
+      case FLOAT: return CodeBlock.of("0F");
+      case DOUBLE: return CodeBlock.of("0D");
+      case BYTE:
+      case SHORT:
+      case INT: return CodeBlock.of("0");
+      default: return CodeBlock.of("null");
+    }
+  }
+
   private static TypeElement getTypeElement(DeriveUtils deriveUtils, ClassName className) {
     return deriveUtils.elements().getTypeElement(className.toString());
   }
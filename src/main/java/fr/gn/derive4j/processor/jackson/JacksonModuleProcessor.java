@@ -0,0 +1,266 @@
+package fr.gn.derive4j.processor.jackson;
+
+import com.google.auto.service.AutoService;
+import com.squareup.javapoet.*;
+import fr.gn.derive4j.jackson.InstancesModule;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Generates, for each package of ADTs with derived serializers or deserializers, a
+// DerivedJacksonModule registering them (along with the instances of FjTypes),
+// listed as a service for ObjectMapper.findAndRegisterModules, and described to GraalVM's
+// native-image, so that nothing is left to reflective bean introspection.
+// The instances are reported by JacksonDerivations as derive4j derives them, and the modules
+// written in the first round with nothing left for derive4j (no root element annotated with
+// @Data), so that javac compiles them in a later round. Instances derived later anyway (eg.
+// of @Data types generated by another processor) get modules of their own packages then, or
+// a warning if their package's module is already written. The resources wait until
+// processing is over.
+// So are JacksonDerivations' notes (eg. timings), passed on to the compiler's Messager.
+@AutoService(Processor.class)
+public final class JacksonModuleProcessor extends AbstractProcessor {
+  static final String moduleSimpleName = "DerivedJacksonModule";
+
+  static final class Instance {
+    final ClassName adt;
+    final ClassName target;
+    final String factory;
+    final int typeArity;
+    final boolean serializer;
+
+    Instance(ClassName adt, ClassName target, String factory, int typeArity, boolean serializer) {
+      this.adt = adt;
+      this.target = target;
+      this.factory = factory;
+      this.typeArity = typeArity;
+      this.serializer = serializer;
+    }
+  }
+
+  // Keyed by compilation: derive4j's DeriveUtils and this processor share the compiler's Elements.
+  private static final Map<Elements, List<Instance>> derived = new WeakHashMap<>();
+
+  static void derived(Elements elements, Instance instance) {
+    synchronized (derived) {
+      derived.computeIfAbsent(elements, e -> new ArrayList<>()).add(instance);
+    }
+  }
+
+  private static List<Instance> drainDerived(Elements elements) {
+    synchronized (derived) {
+      final List<Instance> instances = derived.remove(elements);
+
+      return instances == null ? Collections.emptyList() : instances;
+    }
+  }
+
+  private static final Map<Elements, List<String>> notes = new WeakHashMap<>();
+
+  static void note(Elements elements, String note) {
+    synchronized (notes) {
+      notes.computeIfAbsent(elements, e -> new ArrayList<>()).add(note);
+    }
+  }
+
+  private static List<String> drainNotes(Elements elements) {
+    synchronized (notes) {
+      final List<String> drained = notes.remove(elements);
+
+      return drained == null ? Collections.emptyList() : drained;
+    }
+  }
+
+  private final Map<String, List<Instance>> derivedByPackage = new TreeMap<>();
+
+  // Those not yet in a module, by package.
+  private final Map<String, List<Instance>> pending = new TreeMap<>();
+
+  private final Set<String> writtenPackages = new HashSet<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (String note : drainNotes(processingEnv.getElementUtils()))
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, note);
+
+    for (Instance instance : drainDerived(processingEnv.getElementUtils())) {
+      derivedByPackage.computeIfAbsent(instance.adt.packageName(), p -> new ArrayList<>()).add(instance);
+      pending.computeIfAbsent(instance.adt.packageName(), p -> new ArrayList<>()).add(instance);
+    }
+
+    if (roundEnv.processingOver() || !derivesInstances(annotations)) {
+      pending.forEach(this::writeModule);
+      pending.clear();
+    }
+
+    if (roundEnv.processingOver() && !derivedByPackage.isEmpty())
+      writeResources();
+
+    return false;
+  }
+
+  // Whether derive4j derives instances this round: root elements are annotated with @Data,
+  // or with annotations of their own carrying it.
+  private static boolean derivesInstances(Set<? extends TypeElement> annotations) {
+    return annotations
+      .stream()
+      .anyMatch(annotation -> isData(annotation) || annotation
+        .getAnnotationMirrors()
+        .stream()
+        .anyMatch(meta -> isData((TypeElement) meta.getAnnotationType().asElement())));
+  }
+
+  private static boolean isData(TypeElement annotation) {
+    return annotation.getQualifiedName().contentEquals("org.derive4j.Data");
+  }
+
+  // Once per package: the Filer writes a file once.
+  private void writeModule(String packageName, List<Instance> instances) {
+    if (!writtenPackages.add(packageName)) {
+      for (Instance instance : instances)
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING
+          , instance.adt + " was derived after " + packageName + "." + moduleSimpleName
+            + " was written: it is not registered by the module");
+      return;
+    }
+
+    final MethodSpec.Builder constructor = MethodSpec
+      .constructorBuilder()
+      .addModifiers(Modifier.PUBLIC)
+      .addStatement("super($S)", packageName.isEmpty() ? moduleSimpleName : packageName + "." + moduleSimpleName);
+
+    for (Instance instance : instances)
+      constructor.addStatement(instance.typeArity == 0
+          ? CodeBlock.of("add$L($T.class, $T.$L())"
+            , instance.serializer ? "Serializer" : "Deserializer"
+            , instance.adt
+            , instance.target
+            , instance.factory)
+          : CodeBlock.of("addGeneric$L($T.class, instances -> $T.$L($L))"
+            , instance.serializer ? "Serializer" : "Deserializer"
+            , instance.adt
+            , instance.target
+            , instance.factory
+            , IntStream
+              .range(0, instance.typeArity)
+              .mapToObj(i -> "instances.get(" + i + ")")
+              .collect(Collectors.joining(", "))));
+
+    try {
+      JavaFile
+        .builder(packageName, TypeSpec
+          .classBuilder(moduleSimpleName)
+          .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+          .superclass(InstancesModule.class)
+          .addField(FieldSpec
+            .builder(long.class, "serialVersionUID", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("1L")
+            .build())
+          .addMethod(constructor.build())
+          .build())
+        .build()
+        .writeTo(processingEnv.getFiler());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR
+        , "Unable to write " + packageName + "." + moduleSimpleName + ": " + e);
+    }
+  }
+
+  // The modules as services, and the configuration native-image needs to load them:
+  // their constructors (ServiceLoader) and the ADT classes (Jackson's lookups by class).
+  private void writeResources() {
+    final List<String> modules = derivedByPackage
+      .keySet()
+      .stream()
+      .map(packageName -> packageName.isEmpty() ? moduleSimpleName : packageName + "." + moduleSimpleName)
+      .collect(Collectors.toList());
+
+    final String configPath = "META-INF/native-image/fr.gn.derive4j.jackson/" + modules.get(0) + "/";
+
+    final String services = "META-INF/services/com.fasterxml.jackson.databind.Module";
+
+    // Along with those already listed in the output (eg. by the compilation of other sources into it).
+    final Set<String> listed = new LinkedHashSet<>(readResource(services));
+    listed.addAll(modules);
+
+    writeResource(services, listed
+      .stream()
+      .map(module -> module + "\n")
+      .collect(Collectors.joining()));
+
+    writeResource(configPath + "reflect-config.json", Stream
+      .concat(modules
+          .stream()
+          .map(module -> "  {\"name\": \"" + module + "\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}")
+        , derivedByPackage
+          .values()
+          .stream()
+          .flatMap(List::stream)
+          .map(instance -> instance.adt.reflectionName())
+          .distinct()
+          .map(adt -> "  {\"name\": \"" + adt + "\"}"))
+      .collect(Collectors.joining(",\n", "[\n", "\n]\n")));
+
+    writeResource(configPath + "resource-config.json"
+      , "{\n  \"resources\": [{\"pattern\": \"\\\\Q" + services + "\\\\E\"}]\n}\n");
+  }
+
+  // The lines of a resource of the output, but comments and blank lines; none if it does not exist.
+  private List<String> readResource(String path) {
+    try {
+      final FileObject resource = processingEnv
+        .getFiler()
+        .getResource(StandardLocation.CLASS_OUTPUT, "", path);
+
+      try (BufferedReader reader = new BufferedReader(resource.openReader(true))) {
+        return reader
+          .lines()
+          .map(line -> line.replaceFirst("#.*", "").trim())
+          .filter(line -> !line.isEmpty())
+          .collect(Collectors.toList());
+      }
+    } catch (IOException | UncheckedIOException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  private void writeResource(String path, String content) {
+    try {
+      final FileObject resource = processingEnv
+        .getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", path);
+
+      try (Writer writer = resource.openWriter()) {
+        writer.write(content);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + path + ": " + e);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.Ord;
+import fj.data.Either;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Set;
+import fr.gn.derive4j.jackson.instances.FjTypes;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// The streaming deserializers read what the first, tree-based ones did: objects tagged by
+// their "_tag" field wherever it comes, unknown fields skipped, missing ones defaulted.
+public class BaselineFormatTest {
+  private static final ObjectMapper mapper = RoundTripTest.derivedMapper(new JsonFactory());
+
+  private static final JsonDeserializer<Option<Integer>> optionDeser =
+    FjTypes.optionStdDeserializer(JavaTypes.integerDeserializer);
+
+  private static final JsonDeserializer<Either<String, Integer>> eitherDeser =
+    FjTypes.eitherStdDeserializer(JavaTypes.stringDeserializer, JavaTypes.integerDeserializer);
+
+  @Test
+  public void readsTagsFirst() throws IOException {
+    assertEquals(Option.some(1), read(optionDeser, "{\"_tag\":\"some\",\"value\":1}"));
+    assertEquals(Option.none(), read(optionDeser, "{\"_tag\":\"none\"}"));
+    assertEquals(Either.left("l"), read(eitherDeser, "{\"_tag\":\"left\",\"value\":\"l\"}"));
+    assertEquals(Either.right(2), read(eitherDeser, "{\"_tag\":\"right\",\"value\":2}"));
+    assertEquals(Shapes.rect(1, 2), read(Shapes.shapeJsonDeserializer(), "{\"_tag\":\"rect\",\"width\":1,\"height\":2}"));
+  }
+
+  @Test
+  public void readsTagsLast() throws IOException {
+    assertEquals(Option.some(1), read(optionDeser, "{\"value\":1,\"_tag\":\"some\"}"));
+    assertEquals(Either.left("l"), read(eitherDeser, "{\"value\":\"l\",\"_tag\":\"left\"}"));
+    assertEquals(Either.right(2), read(eitherDeser, "{\"value\":2,\"_tag\":\"right\"}"));
+    assertEquals(Shapes.rect(1, 2), read(Shapes.shapeJsonDeserializer(), "{\"width\":1,\"height\":2,\"_tag\":\"rect\"}"));
+    assertEquals(Shapes.rect(1, 2), read(Shapes.shapeJsonDeserializer(), "{\"width\":1,\"_tag\":\"rect\",\"height\":2}"));
+  }
+
+  // Including unknown fields holding tagged objects, which must not be taken for the value's tag
+  @Test
+  public void skipsUnknownFields() throws IOException {
+    assertEquals(Option.some(2)
+      , read(optionDeser, "{\"x\":[1,{\"_tag\":\"none\"}],\"_tag\":\"some\",\"y\":{},\"value\":2,\"z\":null}"));
+    assertEquals(Either.right(3)
+      , read(eitherDeser, "{\"other\":{\"_tag\":\"left\",\"value\":\"no\"},\"value\":3,\"_tag\":\"right\"}"));
+    assertEquals(Shapes.rect(1, 2)
+      , read(Shapes.shapeJsonDeserializer()
+        , "{\"color\":\"red\",\"width\":1,\"extra\":{\"_tag\":\"circle\",\"radius\":2},\"_tag\":\"rect\",\"height\":2}"));
+  }
+
+  @Test
+  public void defaultsMissingFields() throws IOException {
+    assertEquals(Shapes.rect(3, 0), read(Shapes.shapeJsonDeserializer(), "{\"_tag\":\"rect\",\"width\":3}"));
+    assertEquals(Shapes.circle(0), read(Shapes.shapeJsonDeserializer(), "{\"_tag\":\"circle\"}"));
+    assertTrue(Shapes
+      .caseOf(read(Shapes.shapeJsonDeserializer(), "{\"_tag\":\"label\"}"))
+      .label((text, font, points) -> text == null && font == null && points == null)
+      .otherwise_(false));
+  }
+
+  // Without a value, a some or a left has nothing to hold
+  @Test(expected = JsonProcessingException.class)
+  public void rejectsMissingValues() throws IOException {
+    read(optionDeser, "{\"_tag\":\"some\"}");
+  }
+
+  @Test
+  public void readsArrays() throws IOException {
+    assertEquals(List.list(1, 2, 3), read(FjTypes.listStdDeserializer(JavaTypes.integerDeserializer), "[1,2,3]"));
+    assertEquals(List.nil(), read(FjTypes.listStdDeserializer(JavaTypes.integerDeserializer), "[]"));
+    assertEquals(Set.set(Ord.intOrd, 1, 2)
+      , read(FjTypes.setStdDeserializer(Ord.intOrd, JavaTypes.integerDeserializer), "[2,1,2]"));
+  }
+
+  @Test
+  public void readsNestedValues() throws IOException {
+    assertEquals(Option.some(List.list(Either.left("a"), Either.right(1)))
+      , read(FjTypes.optionStdDeserializer(FjTypes.listStdDeserializer(eitherDeser))
+        , "{\"value\":[{\"value\":\"a\",\"_tag\":\"left\"},{\"_tag\":\"right\",\"value\":1}],\"_tag\":\"some\"}"));
+
+    assertEquals(Trees.node(Trees.leaf(Shapes.circle(1)), Trees.leaf(Shapes.empty()), Either.right(4))
+      , read(Trees.treeJsonDeserializer()
+        , "{\"left\":{\"shape\":{\"radius\":1,\"_tag\":\"circle\"},\"_tag\":\"leaf\"}"
+          + ",\"_tag\":\"node\""
+          + ",\"weight\":{\"value\":4,\"_tag\":\"right\"}"
+          + ",\"right\":{\"_tag\":\"leaf\",\"shape\":{\"_tag\":\"empty\"}}}"));
+
+    assertEquals(Shapes.label("t", Option.some("f"), List.list(1L, 2L))
+      , read(Shapes.shapeJsonDeserializer()
+        , "{\"points\":[1,2],\"font\":{\"value\":\"f\",\"_tag\":\"some\"},\"_tag\":\"label\",\"text\":\"t\"}"));
+  }
+
+  private static <T> T read(JsonDeserializer<T> deser, String json) throws IOException {
+    try (JsonParser p = mapper.getFactory().createParser(json)) {
+      p.nextToken();
+      return deser.deserialize(p, Parsers.deserializationContext(mapper, p));
+    }
+  }
+}
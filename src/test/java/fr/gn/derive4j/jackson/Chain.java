@@ -0,0 +1,28 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A recursive sum type whose instances are derived outside of its target class, where
+// its case classes cannot be dispatched on
+@Data(@Derive(@Instances(value = {JsonSerializer.class, JsonDeserializer.class}, inClass = "ChainCodecs")))
+public abstract class Chain {
+  public interface Cases<R> {
+    R link(int weight, Chain next);
+    R end(String label);
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  @Override
+  public abstract boolean equals(Object obj);
+
+  @Override
+  public abstract int hashCode();
+
+  @Override
+  public abstract String toString();
+}
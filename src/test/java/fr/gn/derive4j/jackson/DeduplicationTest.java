@@ -0,0 +1,106 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+// Equal strings and small values read apart share an instance once deduplication is
+// enabled, and only then
+public class DeduplicationTest {
+  private final ObjectMapper mapper = derivedMapper(new JsonFactory());
+
+  private static final String twoLabels = "["
+    + "{\"_tag\":\"label\",\"text\":\"text\",\"font\":{\"_tag\":\"some\",\"value\":\"mono\"},\"points\":[]},"
+    + "{\"_tag\":\"label\",\"text\":\"text\",\"font\":{\"_tag\":\"some\",\"value\":\"mono\"},\"points\":[]}"
+    + "]";
+
+  @Test
+  public void sharesStringsOfFieldsAndTypeArguments() throws IOException {
+    for (JsonFactory factory : new JsonFactory[]{new JsonFactory(), new SmileFactory()}) {
+      final ObjectMapper deduplicating = Deduplication.enable(derivedMapper(factory), Deduplication.of(64, 64));
+      final Shape[] labels = deduplicating.readValue(deduplicating.writeValueAsBytes(mapper.readValue(twoLabels, Shape[].class)), Shape[].class);
+
+      assertSame(Shapes.getText(labels[0]).get(), Shapes.getText(labels[1]).get());
+      assertSame(Shapes.getFont(labels[0]).get().some(), Shapes.getFont(labels[1]).get().some());
+    }
+  }
+
+  @Test
+  public void leavesLongStringsAsRead() throws IOException {
+    final ObjectMapper deduplicating = Deduplication.enable(derivedMapper(new JsonFactory()), Deduplication.of(64, 64));
+    final String text = new String(new char[Deduplication.maxStringLength + 1]).replace('\0', 'a');
+    final Shape label = Shapes.label(text, Option.none(), List.nil());
+
+    final Shape[] labels = deduplicating.readValue(mapper.writeValueAsBytes(new Shape[]{label, label}), Shape[].class);
+
+    assertEquals(labels[0], labels[1]);
+    assertNotSame(Shapes.getText(labels[0]).get(), Shapes.getText(labels[1]).get());
+  }
+
+  // Shape has a structural equals; its rect and circle have a few primitive fields.
+  @Test
+  public void sharesSmallValues() throws IOException {
+    final byte[] json = mapper.writeValueAsBytes(new Shape[]{Shapes.rect(1, 2), Shapes.circle(3), Shapes.rect(1, 2), Shapes.circle(3)});
+
+    final Shape[] shapes = Deduplication.enable(mapper.readerFor(Shape[].class), Deduplication.of(64, 64)).readValue(json);
+
+    assertSame(shapes[0], shapes[2]);
+    assertSame(shapes[1], shapes[3]);
+  }
+
+  @Test
+  public void leavesValuesAsReadUnlessEnabled() throws IOException {
+    final Shape[] labels = mapper.readValue(twoLabels, Shape[].class);
+    final Shape[] rects = mapper.readValue(mapper.writeValueAsBytes(new Shape[]{Shapes.rect(1, 2), Shapes.rect(1, 2)}), Shape[].class);
+
+    assertNotSame(Shapes.getText(labels[0]).get(), Shapes.getText(labels[1]).get());
+    assertNotSame(rects[0], rects[1]);
+
+    // Nor with empty tables.
+    final ObjectReader empty = Deduplication.enable(mapper.readerFor(Shape[].class), Deduplication.of(0, 0));
+    final Shape[] emptyLabels = empty.readValue(twoLabels);
+    final Shape[] emptyRects = empty.readValue(mapper.writeValueAsBytes(rects));
+
+    assertNotSame(Shapes.getText(emptyLabels[0]).get(), Shapes.getText(emptyLabels[1]).get());
+    assertNotSame(emptyRects[0], emptyRects[1]);
+  }
+
+  @Test
+  public void forgetsValuesOnceCleared() throws IOException {
+    final Deduplication deduplication = Deduplication.of(64, 64);
+    final ObjectReader reader = Deduplication.enable(mapper.readerFor(Shape.class), deduplication);
+    final String rect = mapper.writeValueAsString(Shapes.rect(1, 2));
+
+    final Shape first = reader.readValue(rect);
+    assertSame(first, reader.readValue(rect));
+
+    deduplication.clear();
+    assertNotSame(first, reader.readValue(rect));
+  }
+
+  @Test
+  public void readsOtherTokensAsText() throws IOException {
+    try (JsonParser p = mapper.getFactory().createParser("12")) {
+      p.nextToken();
+
+      assertEquals("12", Deduplication.string(p, Parsers.deserializationContext(Deduplication.enable(mapper.copy(), Deduplication.of(64, 64)), p)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeSizes() {
+    Deduplication.of(-1, 64);
+  }
+}
@@ -0,0 +1,129 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static fr.gn.derive4j.jackson.RoundTripTest.shapes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Cached encodings must be written as the serializer writes the values, whatever the
+// generator, and only under the config they were made with
+public class EncodedValueCacheTest {
+  private static ObjectMapper cachingMapper(JsonFactory factory, EncodedValueCache<Shape> cache) {
+    return derivedMapper(factory).registerModule(new SimpleModule().addSerializer(Shape.class, cache));
+  }
+
+  private static EncodedValueCache<Shape> cache(int maxSize) {
+    return EncodedValueCache.of(Shapes.shapeJsonSerializer(), maxSize);
+  }
+
+  @Test
+  public void writesAsTheSerializer() throws IOException {
+    // The same instances each time, to be found in the cache.
+    final List<Shape> shapes = shapes();
+
+    for (JsonFactory factory : new JsonFactory[]{new JsonFactory(), new SmileFactory(), new CBORFactory()})
+      for (boolean positional : new boolean[]{false, true}) {
+        final ObjectMapper mapper = positional ? PositionalEncoding.enable(derivedMapper(factory)) : derivedMapper(factory);
+        final EncodedValueCache<Shape> cache = cache(64);
+        final ObjectMapper caching = positional
+          ? PositionalEncoding.enable(cachingMapper(factory, cache))
+          : cachingMapper(factory, cache);
+
+        for (int i = 0; i < 2; i++)
+          for (Shape shape : shapes)
+            assertArrayEquals(mapper.writerFor(Shape.class).writeValueAsBytes(shape)
+              , caching.writerFor(Shape.class).writeValueAsBytes(shape));
+
+        assertEquals(shapes.length(), cache.misses());
+        assertEquals(shapes.length(), cache.hits());
+      }
+  }
+
+  @Test
+  public void replaysTokensToGeneratorsChangingTheText() throws IOException {
+    final ObjectMapper mapper = derivedMapper(new JsonFactory());
+    final ObjectMapper caching = cachingMapper(new JsonFactory(), cache(64));
+    final Shape shape = Shapes.label("été", Option.some("mono"), List.list(1L, 2L));
+
+    caching.writerFor(Shape.class).writeValueAsString(shape);
+
+    assertEquals(mapper.writerFor(Shape.class).withDefaultPrettyPrinter().writeValueAsString(shape)
+      , caching.writerFor(Shape.class).withDefaultPrettyPrinter().writeValueAsString(shape));
+
+    final JsonFactory escaping = new JsonFactory().enable(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+    assertEquals(new String(derivedMapper(escaping).writerFor(Shape.class).writeValueAsBytes(shape), "UTF-8")
+      , new String(cachingMapper(escaping, cache(64)).writerFor(Shape.class).writeValueAsBytes(shape), "UTF-8"));
+  }
+
+  // By identity: an equal value built apart, or written under another config, is encoded again.
+  @Test
+  public void looksUpValuesByIdentityUnderTheirConfig() throws IOException {
+    final EncodedValueCache<Shape> cache = cache(64);
+    final ObjectMapper caching = cachingMapper(new JsonFactory(), cache);
+    final Shape shape = Shapes.rect(1, 2);
+
+    caching.writerFor(Shape.class).writeValueAsBytes(shape);
+    caching.writerFor(Shape.class).writeValueAsBytes(shape);
+    caching.writerFor(Shape.class).writeValueAsBytes(Shapes.rect(1, 2));
+    caching.writerFor(Shape.class).withAttribute("attribute", 1).writeValueAsBytes(shape);
+
+    assertEquals(1, cache.hits());
+    assertEquals(3, cache.misses());
+  }
+
+  @Test
+  public void keepsAtMostMaxSizeEntries() throws IOException {
+    final EncodedValueCache<Shape> cache = cache(4);
+    final ObjectMapper caching = cachingMapper(new JsonFactory(), cache);
+    // Kept reachable, so that only eviction bounds the size.
+    final Shape[] written = new Shape[100];
+
+    for (int i = 0; i < written.length; i++) {
+      written[i] = Shapes.rect(i, i);
+      caching.writerFor(Shape.class).writeValueAsBytes(written[i]);
+
+      assertTrue(cache.size() <= 4);
+    }
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveSizes() {
+    cache(0);
+  }
+
+  @Test
+  public void writesRawTextToPlainJsonGeneratorsOnly() throws IOException {
+    final JsonFactory json = new JsonFactory();
+
+    try (JsonGenerator gen = json.createGenerator(new StringWriter())) {
+      assertTrue(EncodedValueCache.canWriteRaw(gen));
+    }
+
+    try (JsonGenerator gen = json.createGenerator(new StringWriter()).useDefaultPrettyPrinter()) {
+      assertFalse(EncodedValueCache.canWriteRaw(gen));
+    }
+
+    try (JsonGenerator gen = new SmileFactory().createGenerator(new ByteArrayOutputStream())) {
+      assertFalse(EncodedValueCache.canWriteRaw(gen));
+    }
+  }
+}
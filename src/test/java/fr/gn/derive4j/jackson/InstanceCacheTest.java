@@ -0,0 +1,103 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.Either;
+import fj.data.Option;
+import fr.gn.derive4j.jackson.instances.FjTypes;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// Instances shared by the same type, instance class and argument instances, and by them only
+public class InstanceCacheTest {
+  private static final AtomicInteger built = new AtomicInteger();
+
+  private static Object[] build(Object argument) {
+    built.incrementAndGet();
+    return new Object[]{argument};
+  }
+
+  private static Object[] build(Object argument1, Object argument2) {
+    built.incrementAndGet();
+    return new Object[]{argument1, argument2};
+  }
+
+  private static Object[] build(Object argument1, Object argument2, Object argument3) {
+    built.incrementAndGet();
+    return new Object[]{argument1, argument2, argument3};
+  }
+
+  @Test
+  public void sharesInstancesOfTheSameArguments() {
+    final Object a = new Object();
+    final Object b = new Object();
+    final int before = built.get();
+
+    final Object[] one = InstanceCache.memoize(Option.class, JsonSerializer.class, a, InstanceCacheTest::build);
+    final Object[] two = InstanceCache.memoize(Either.class, JsonSerializer.class, a, b, InstanceCacheTest::build);
+    final Object[] three = InstanceCache.memoize(Either.class, JsonDeserializer.class, () -> build(a, b, a), a, b, a);
+
+    assertSame(one, InstanceCache.memoize(Option.class, JsonSerializer.class, a, InstanceCacheTest::build));
+    assertSame(two, InstanceCache.memoize(Either.class, JsonSerializer.class, a, b, InstanceCacheTest::build));
+    assertSame(three, InstanceCache.memoize(Either.class, JsonDeserializer.class, () -> build(a, b, a), a, b, a));
+    assertEquals(before + 3, built.get());
+  }
+
+  @Test
+  public void buildsInstancesOfOtherKeysApart() {
+    final Object a = new Object();
+    final Object b = new Object();
+    final Object[] instance = InstanceCache.memoize(Option.class, JsonSerializer.class, a, InstanceCacheTest::build);
+
+    // Other arguments, even equal ones, another type or another instance class.
+    assertNotSame(instance, InstanceCache.memoize(Option.class, JsonSerializer.class, b, InstanceCacheTest::build));
+    assertNotSame(InstanceCache.memoize(Option.class, JsonSerializer.class, "a", InstanceCacheTest::build)
+      , InstanceCache.memoize(Option.class, JsonSerializer.class, new String("a"), InstanceCacheTest::build));
+    assertNotSame(instance, InstanceCache.memoize(Either.class, JsonSerializer.class, a, InstanceCacheTest::build));
+    assertNotSame(instance, InstanceCache.memoize(Option.class, JsonDeserializer.class, a, InstanceCacheTest::build));
+
+    // The same arguments in another order.
+    assertNotSame(InstanceCache.memoize(Either.class, JsonSerializer.class, a, b, InstanceCacheTest::build)
+      , InstanceCache.memoize(Either.class, JsonSerializer.class, b, a, InstanceCacheTest::build));
+  }
+
+  @Test
+  public void sharesTheInstancesOfParameterizedFactories() {
+    assertSame(FjTypes.optionStdSerializer(JavaTypes.stringSerializer), FjTypes.optionStdSerializer(JavaTypes.stringSerializer));
+    assertSame(FjTypes.eitherStdSerializer(JavaTypes.stringSerializer, JavaTypes.integerSerializer)
+      , FjTypes.eitherStdSerializer(JavaTypes.stringSerializer, JavaTypes.integerSerializer));
+    assertNotSame(FjTypes.eitherStdSerializer(JavaTypes.stringSerializer, JavaTypes.stringSerializer)
+      , FjTypes.eitherStdSerializer(JavaTypes.stringSerializer, JavaTypes.integerSerializer));
+  }
+
+  // Kept reachable, so that only eviction bounds the size.
+  @Test
+  public void keepsABoundedNumberOfEntries() {
+    final Object[] arguments = new Object[10_000];
+
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = new Object();
+      InstanceCache.memoize(Option.class, JsonSerializer.class, arguments[i], InstanceCacheTest::build);
+    }
+
+    assertTrue(InstanceCache.size() <= Integer.getInteger("fr.gn.derive4j.jackson.instanceCacheSize", 4096));
+  }
+
+  @Test
+  public void buildsInstancesAgainOnceCleared() {
+    final Object a = new Object();
+    final Object[] instance = InstanceCache.memoize(Option.class, JsonSerializer.class, a, InstanceCacheTest::build);
+
+    InstanceCache.clear();
+
+    assertEquals(0, InstanceCache.size());
+    assertNotSame(instance, InstanceCache.memoize(Option.class, JsonSerializer.class, a, InstanceCacheTest::build));
+  }
+}
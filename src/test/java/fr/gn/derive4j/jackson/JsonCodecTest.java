@@ -0,0 +1,149 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static fr.gn.derive4j.jackson.RoundTripTest.shapes;
+import static fr.gn.derive4j.jackson.RoundTripTest.trees;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Each value written as the mapper writes it, then read back, with the per-thread state
+// reused from one call to the next and recovering from failed calls
+public class JsonCodecTest {
+  private final ObjectMapper mapper = derivedMapper(new JsonFactory());
+  private final JsonCodec<Shape> shapes = Shapes.shapeJsonCodec(mapper);
+
+  @Test
+  public void writesAsTheMapperAndReadsBack() throws IOException {
+    for (ObjectMapper mapper : new ObjectMapper[]{this.mapper, PositionalEncoding.enable(derivedMapper(new JsonFactory()))}) {
+      final JsonCodec<Shape> shapes = Shapes.shapeJsonCodec(mapper);
+      final JsonCodec<Tree> trees = Trees.treeJsonCodec(mapper);
+
+      for (Shape shape : shapes()) {
+        assertArrayEquals(mapper.writerFor(Shape.class).writeValueAsBytes(shape), shapes.toBytes(shape));
+        assertEquals(shape, shapes.readFrom(shapes.toBytes(shape)));
+      }
+
+      for (Tree tree : trees()) {
+        assertArrayEquals(mapper.writerFor(Tree.class).writeValueAsBytes(tree), trees.toBytes(tree));
+        assertEquals(tree, trees.readFrom(trees.toBytes(tree)));
+      }
+    }
+  }
+
+  @Test
+  public void writesToStreamsAndBuffers() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    for (Shape shape : shapes()) {
+      shapes.writeTo(shape, out);
+      shapes.writeTo(shape, buffer);
+    }
+
+    final StringBuilder expected = new StringBuilder();
+    for (Shape shape : shapes())
+      expected.append(mapper.writerFor(Shape.class).writeValueAsString(shape));
+
+    assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(expected.toString(), new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void recoversFromAnOverflowingBuffer() throws IOException {
+    final Shape shape = shapes().index(4);
+
+    try {
+      shapes.writeTo(shape, ByteBuffer.allocate(8));
+      fail("Expected the buffer to overflow");
+    } catch (BufferOverflowException e) {
+      // expected
+    }
+
+    assertArrayEquals(mapper.writerFor(Shape.class).writeValueAsBytes(shape), shapes.toBytes(shape));
+  }
+
+  @Test
+  public void readsMessagesWithinArrays() throws IOException {
+    final byte[] message = (" \n" + mapper.writerFor(Shape.class).writeValueAsString(Shapes.rect(1, 2)) + " ").getBytes(StandardCharsets.UTF_8);
+    final byte[] bytes = new byte[message.length + 6];
+    Arrays.fill(bytes, (byte) '}');
+    System.arraycopy(message, 0, bytes, 3, message.length);
+
+    assertEquals(Shapes.rect(1, 2), shapes.readFrom(bytes, 3, message.length));
+  }
+
+  @Test
+  public void readsAndWritesNulls() throws IOException {
+    assertEquals("null", new String(shapes.toBytes(null), StandardCharsets.UTF_8));
+    assertNull(shapes.readFrom(" null ".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void rejectsMessagesNotHoldingExactlyOneValue() throws IOException {
+    rejects(JsonEOFException.class, "  ");
+    rejects(JsonParseException.class, "{\"_tag\":\"empty\"} {\"_tag\":\"empty\"}");
+    rejects(JsonEOFException.class, "{\"_tag\":\"rect\",\"width\":1");
+    rejects(RejectedInputException.class, "{\"_tag\":\"unknown\"}");
+
+    // The next read gets a parser in a clean state.
+    assertEquals(Shapes.empty(), shapes.readFrom("{\"_tag\":\"empty\"}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOtherFormats() {
+    Shapes.shapeJsonCodec(derivedMapper(new SmileFactory()));
+  }
+
+  @Test
+  public void keepsAStatePerThread() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      final java.util.List<Future<?>> results = new ArrayList<>();
+
+      for (int thread = 0; thread < 4; thread++)
+        results.add(executor.submit(() -> {
+          for (int i = 0; i < 1_000; i++)
+            for (Shape shape : shapes())
+              assertEquals(shape, shapes.readFrom(shapes.toBytes(shape)));
+
+          return null;
+        }));
+
+      for (Future<?> result : results)
+        result.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void rejects(Class<? extends Exception> expected, String message) throws IOException {
+    try {
+      shapes.readFrom(message.getBytes(StandardCharsets.UTF_8));
+      fail("Expected " + message + " to be rejected");
+    } catch (IOException e) {
+      assertTrue(e.toString(), expected.isInstance(e));
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fj.P1;
+import fr.gn.derive4j.jackson.instances.FjTypes;
+import fr.gn.derive4j.jackson.instances.JavaTypes;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Structures captured from text and binary input, and from token buffers, then decoded on
+// first access; the parser goes on after the captured structure
+public class LazyValueTest {
+  @Test
+  public void decodesStructuresOnFirstAccess() throws IOException {
+    for (JsonFactory factory : new JsonFactory[]{new JsonFactory(), new SmileFactory(), new CBORFactory()}) {
+      final ObjectMapper mapper = derivedMapper(factory);
+
+      for (Shape shape : RoundTripTest.shapes()) {
+        final byte[] bytes = mapper.writeValueAsBytes(new Shape[]{shape, Shapes.empty()});
+
+        try (JsonParser p = mapper.getFactory().createParser(bytes)) {
+          final P1<Shape> lazy = captureElement(mapper, p);
+
+          assertTrue(lazy instanceof LazyValue);
+          assertFalse(((LazyValue<Shape>) lazy).isDecoded());
+
+          // The captured structure was consumed whole.
+          p.nextToken();
+          assertEquals(Shapes.empty(), Shapes.shapeJsonDeserializer().deserialize(p, Parsers.deserializationContext(mapper, p)));
+
+          assertEquals(shape, lazy._1());
+          assertTrue(((LazyValue<Shape>) lazy).isDecoded());
+          assertSame(lazy._1(), lazy._1());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void capturesTokensOfParsersWithoutInput() throws IOException {
+    final ObjectMapper mapper = derivedMapper(new JsonFactory());
+    final Shape shape = Shapes.rect(1, 2);
+
+    final TokenBuffer tokens = new TokenBuffer(mapper, false);
+    mapper.writerFor(Shape.class).writeValue(tokens, shape);
+
+    try (JsonParser p = tokens.asParser(mapper)) {
+      p.nextToken();
+      final P1<Shape> lazy = LazyValue.capture(p, Parsers.deserializationContext(mapper, p), Shapes.shapeJsonDeserializer());
+
+      assertEquals(shape, lazy._1());
+    }
+  }
+
+  @Test
+  public void decodesScalarsRightAway() throws IOException {
+    final ObjectMapper mapper = new ObjectMapper();
+
+    try (JsonParser p = mapper.getFactory().createParser("\"text\"")) {
+      p.nextToken();
+      final P1<String> value = FjTypes
+        .p1StdDeserializer(JavaTypes.stringDeserializer)
+        .deserialize(p, Parsers.deserializationContext(mapper, p));
+
+      assertFalse(value instanceof LazyValue);
+      assertEquals("text", value._1());
+    }
+  }
+
+  @Test
+  public void reportsDecodingErrorsOnAccess() throws IOException {
+    final ObjectMapper mapper = derivedMapper(new JsonFactory());
+
+    try (JsonParser p = mapper.getFactory().createParser("[{\"_tag\":\"unknown\"}]")) {
+      final P1<Shape> lazy = captureElement(mapper, p);
+
+      try {
+        lazy._1();
+        fail("Expected the value to be rejected");
+      } catch (UncheckedIOException e) {
+        assertTrue(e.getCause() instanceof RejectedInputException);
+      }
+    }
+  }
+
+  // Through P1's deserializer, as a derived deserializer reads a P1 field
+  private static P1<Shape> captureElement(ObjectMapper mapper, JsonParser p) throws IOException {
+    final DeserializationContext ctxt = Parsers.deserializationContext(mapper, p);
+
+    assertEquals(JsonToken.START_ARRAY, p.nextToken());
+    p.nextToken();
+
+    return FjTypes.p1StdDeserializer(Shapes.shapeJsonDeserializer()).deserialize(p, ctxt);
+  }
+}
@@ -0,0 +1,103 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.data.List;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static fr.gn.derive4j.jackson.RoundTripTest.shapes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Values fed in chunks of every size, split anywhere, must be read as a blocking parser reads them
+public class NonBlockingReaderTest {
+  private final ObjectMapper mapper = derivedMapper(new JsonFactory());
+
+  @Test
+  public void readsElementsFedInChunks() throws IOException {
+    final byte[] bytes = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(java.util.List.class, Shape.class))
+      .writeValueAsBytes(shapes().toJavaList());
+
+    for (int chunkSize : new int[]{1, 2, 7, bytes.length})
+      assertEquals(shapes(), feedInChunks(NonBlockingReader.readElements(mapper, Shapes.shapeJsonDeserializer()), bytes, chunkSize));
+  }
+
+  @Test
+  public void readsNewlineDelimitedValuesFedInChunks() throws IOException {
+    final StringBuilder lines = new StringBuilder();
+    for (Shape shape : shapes())
+      lines.append(mapper.writerFor(Shape.class).writeValueAsString(shape)).append('\n');
+
+    final byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+    for (int chunkSize : new int[]{1, 3, 64, bytes.length})
+      assertEquals(shapes(), feedInChunks(NonBlockingReader.readValues(mapper, Shapes.shapeJsonDeserializer()), bytes, chunkSize));
+  }
+
+  @Test
+  public void returnsValuesOnceTheirLastByteArrives() throws IOException {
+    final NonBlockingReader<Shape> reader = NonBlockingReader.readValues(mapper, Shapes.shapeJsonDeserializer());
+
+    assertEquals(List.nil(), reader.feed(utf8("{\"_tag\":\"rect\",\"width\":1,")));
+    assertEquals(List.list(Shapes.rect(1, 2)), reader.feed(utf8("\"height\":2} {\"_tag\":\"ci")));
+    assertEquals(List.list(Shapes.circle(3)), reader.feed(utf8("rcle\",\"radius\":3.0}")));
+    assertEquals(List.nil(), reader.endOfInput());
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsAnInputEndingInsideAValue() throws IOException {
+    final NonBlockingReader<Shape> reader = NonBlockingReader.readValues(mapper, Shapes.shapeJsonDeserializer());
+
+    reader.feed(utf8("{\"_tag\":\"rect\",\"width\":1"));
+    reader.endOfInput();
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void rejectsAnUnclosedArray() throws IOException {
+    final NonBlockingReader<Shape> reader = NonBlockingReader.readElements(mapper, Shapes.shapeJsonDeserializer());
+
+    reader.feed(utf8("[{\"_tag\":\"empty\"}"));
+    reader.endOfInput();
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void readsElementsOfArraysOnly() throws IOException {
+    NonBlockingReader.readElements(mapper, Shapes.shapeJsonDeserializer()).feed(utf8("{\"_tag\":\"empty\"}"));
+  }
+
+  // maxTokens bounds each value, not the whole input
+  @Test
+  public void limitsTheTokensOfEachValue() throws IOException {
+    final ReadLimits limits = ReadLimits.none.withMaxTokens(8);
+    final NonBlockingReader<Shape> reader = NonBlockingReader.readValues(mapper, Shapes.shapeJsonDeserializer(), limits);
+
+    for (int i = 0; i < 10; i++)
+      assertEquals(List.list(Shapes.rect(i, i)), reader.feed(utf8("{\"_tag\":\"rect\",\"width\":" + i + ",\"height\":" + i + "}\n")));
+
+    try {
+      reader.feed(utf8("{\"_tag\":\"label\",\"text\":\"a\",\"font\":null,\"points\":[1,2,3,4]}"));
+      throw new AssertionError("Expected the value to be rejected");
+    } catch (RejectedInputException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("tokens"));
+    }
+  }
+
+  private static <T> List<T> feedInChunks(NonBlockingReader<T> reader, byte[] bytes, int chunkSize) throws IOException {
+    final List.Buffer<T> values = new List.Buffer<>();
+
+    for (int offset = 0; offset < bytes.length; offset += chunkSize)
+      values.append(reader.feed(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + chunkSize))));
+
+    return values.append(reader.endOfInput()).toList();
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,102 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Seq;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static org.junit.Assert.assertEquals;
+
+// Arrays large enough to be split into several slices, whose strings hold what could be
+// mistaken for the bounds of a slice: quotes, brackets, braces, commas and backslashes
+public class ParallelArrayReaderTest {
+  private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+  private final ObjectMapper mapper = derivedMapper(new JsonFactory());
+
+  @AfterClass
+  public static void shutdownPool() {
+    pool.shutdown();
+  }
+
+  private static List<Shape> manyShapes() {
+    final List.Buffer<Shape> shapes = new List.Buffer<>();
+
+    for (int i = 0; i < 20_000; i++)
+      shapes.snoc(i % 2 == 0
+        ? Shapes.label("\"],[{\"" + i + "}\\", Option.some("], {\"x\": ["), List.list((long) i))
+        : Shapes.rect(i, -i));
+
+    return shapes.toList();
+  }
+
+  @Test
+  public void readsWhatTheSequentialReaderReads() throws IOException {
+    final byte[] json = mapper.writerFor(Shape[].class).writeValueAsBytes(manyShapes().array(Shape[].class));
+    final List<Shape> sequential = sequential(json);
+
+    assertEquals(manyShapes(), sequential);
+    assertEquals(sequential, ParallelArrayReader.readList(mapper, Shapes.shapeJsonDeserializer(), json, pool));
+    assertEquals(sequential, ParallelArrayReader.readList(mapper, Shapes.shapeJsonDeserializer(), json));
+    assertEquals(Seq.iterableSeq(sequential), ParallelArrayReader.readSeq(mapper, Shapes.shapeJsonDeserializer(), json, pool));
+    assertEquals(Seq.iterableSeq(sequential), ParallelArrayReader.readSeq(mapper, Shapes.shapeJsonDeserializer(), json));
+  }
+
+  @Test
+  public void readsSmallAndEmptyArraysSequentially() throws IOException {
+    assertEquals(RoundTripTest.shapes(), ParallelArrayReader.readList(mapper
+      , Shapes.shapeJsonDeserializer()
+      , mapper.writerFor(Shape[].class).writeValueAsBytes(RoundTripTest.shapes().array(Shape[].class))
+      , pool));
+    assertEquals(List.nil(), ParallelArrayReader.readList(mapper, Shapes.shapeJsonDeserializer(), utf8(" [ ] "), pool));
+  }
+
+  @Test
+  public void readsOtherFormatsSequentially() throws IOException {
+    final ObjectMapper smile = derivedMapper(new SmileFactory());
+    final byte[] bytes = smile.writerFor(Shape[].class).writeValueAsBytes(manyShapes().array(Shape[].class));
+
+    assertEquals(manyShapes(), ParallelArrayReader.readList(smile, Shapes.shapeJsonDeserializer(), bytes, pool));
+  }
+
+  // The invalid element is in the middle of the second of several slices
+  @Test(expected = RejectedInputException.class)
+  public void throwsTheErrorOfAFailingSlice() throws IOException {
+    final StringJoiner elements = new StringJoiner(",", "[", "]");
+    final List<Shape> shapes = manyShapes();
+
+    int i = 0;
+    for (Shape shape : shapes)
+      elements.add(i++ == shapes.length() * 3 / 8
+        ? "{\"_tag\":\"unknown\"}"
+        : mapper.writerFor(Shape.class).writeValueAsString(shape));
+
+    ParallelArrayReader.readList(mapper, Shapes.shapeJsonDeserializer(), utf8(elements.toString()), pool);
+  }
+
+  private List<Shape> sequential(byte[] json) throws IOException {
+    final List.Buffer<Shape> shapes = new List.Buffer<>();
+
+    try (MappingIterator<Shape> values = mapper.readerFor(Shape.class).readValues(json)) {
+      while (values.hasNext())
+        shapes.snoc(values.next());
+    }
+
+    return shapes.toList();
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+}
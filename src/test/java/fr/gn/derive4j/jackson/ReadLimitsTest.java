@@ -0,0 +1,89 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static fr.gn.derive4j.jackson.RoundTripTest.derivedMapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+// Each limit accepts input up to it and rejects what exceeds it, including what the
+// derived deserializers skip
+public class ReadLimitsTest {
+  private final ObjectMapper mapper = derivedMapper(new JsonFactory());
+
+  @Test
+  public void leavesParsersAsIsWithoutLimits() throws IOException {
+    try (JsonParser p = mapper.getFactory().createParser("{}")) {
+      assertSame(p, ReadLimits.none.limit(p));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeLimits() {
+    ReadLimits.none.withMaxDepth(-1);
+  }
+
+  @Test
+  public void limitsTheDepth() throws IOException {
+    final String leaf = "{\"_tag\":\"leaf\",\"shape\":{\"_tag\":\"empty\"}}";
+
+    assertEquals(Trees.leaf(Shapes.empty()), read(ReadLimits.none.withMaxDepth(2), leaf, Tree.class));
+    rejects(ReadLimits.none.withMaxDepth(1), leaf, Tree.class);
+
+    // Skipped fields are checked as well.
+    rejects(ReadLimits.none.withMaxDepth(3), "{\"_tag\":\"empty\",\"extra\":[[[[1]]]]}", Shape.class);
+  }
+
+  @Test
+  public void limitsTheSizeOfCollections() throws IOException {
+    final Shape label = Shapes.label("a", Option.none(), List.list(1L, 2L, 3L, 4L));
+    final String json = mapper.writerFor(Shape.class).writeValueAsString(label);
+
+    assertEquals(label, read(ReadLimits.none.withMaxCollectionSize(4), json, Shape.class));
+    rejects(ReadLimits.none.withMaxCollectionSize(3), json, Shape.class);
+  }
+
+  @Test
+  public void limitsTheLengthOfStrings() throws IOException {
+    final String json = "{\"_tag\":\"label\",\"text\":\"twelve chars\",\"font\":{\"_tag\":\"none\"},\"points\":[]}";
+
+    assertEquals(Shapes.label("twelve chars", Option.none(), List.nil()), read(ReadLimits.none.withMaxStringLength(12), json, Shape.class));
+    rejects(ReadLimits.none.withMaxStringLength(11), json, Shape.class);
+
+    // Field names are checked, skipped string values are not decoded.
+    rejects(ReadLimits.none.withMaxStringLength(8), "{\"_tag\":\"empty\",\"very long name\":1}", Shape.class);
+    assertEquals(Shapes.empty(), read(ReadLimits.none.withMaxStringLength(8), "{\"_tag\":\"empty\",\"x\":\"a very long string\"}", Shape.class));
+  }
+
+  @Test
+  public void limitsTheNumberOfTokens() throws IOException {
+    final String json = mapper.writerFor(Shape.class).writeValueAsString(Shapes.rect(1, 2));
+
+    // {, _tag, "rect", width, 1, height, 2, }
+    assertEquals(Shapes.rect(1, 2), read(ReadLimits.none.withMaxTokens(8), json, Shape.class));
+    rejects(ReadLimits.none.withMaxTokens(7), json, Shape.class);
+  }
+
+  private <T> T read(ReadLimits limits, String json, Class<T> type) throws IOException {
+    try (JsonParser p = limits.limit(mapper.getFactory().createParser(json))) {
+      return mapper.readValue(p, type);
+    }
+  }
+
+  private void rejects(ReadLimits limits, String json, Class<?> type) throws IOException {
+    try {
+      read(limits, json, type);
+      fail("Expected " + json + " to be rejected");
+    } catch (RejectedInputException e) {
+      // expected
+    }
+  }
+}
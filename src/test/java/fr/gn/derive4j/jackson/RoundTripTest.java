@@ -0,0 +1,185 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fj.data.Either;
+import fj.data.List;
+import fj.data.Option;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeFalse;
+
+// Values written then read back by the derived instances, through JSON, Smile and CBOR,
+// in both the named and the positional encodings
+@RunWith(Parameterized.class)
+public class RoundTripTest {
+  private final JsonFactory factory;
+  private final boolean positional;
+  private final ObjectMapper mapper;
+
+  public RoundTripTest(String format, String encoding, JsonFactory factory, boolean positional) {
+    this.factory = factory;
+    this.positional = positional;
+    this.mapper = positional ? PositionalEncoding.enable(derivedMapper(factory)) : derivedMapper(factory);
+  }
+
+  @Parameters(name = "{0}, {1}")
+  public static Collection<Object[]> formats() {
+    final Collection<Object[]> formats = new ArrayList<>();
+
+    for (JsonFactory factory : new JsonFactory[]{new JsonFactory(), new SmileFactory(), new CBORFactory()}) {
+      formats.add(new Object[]{factory.getFormatName(), "named", factory, false});
+      formats.add(new Object[]{factory.getFormatName(), "positional", factory, true});
+    }
+
+    return formats;
+  }
+
+  static ObjectMapper derivedMapper(JsonFactory factory) {
+    return new ObjectMapper(factory).registerModule(new DerivedJacksonModule());
+  }
+
+  static List<Shape> shapes() {
+    return List.list(Shapes.circle(1.5)
+      , Shapes.circle(-0.0)
+      , Shapes.rect(3, -4)
+      , Shapes.rect(Integer.MAX_VALUE, Integer.MIN_VALUE)
+      , Shapes.label("text", Option.some("mono"), List.list(1L, Long.MAX_VALUE, Long.MIN_VALUE))
+      , Shapes.label("", Option.none(), List.nil())
+      , Shapes.label("été \"quoted\"\n", Option.some(""), List.list(0L))
+      , Shapes.empty());
+  }
+
+  static List<Tree> trees() {
+    return List.list(Trees.leaf(Shapes.empty())
+      , Trees.node(Trees.leaf(Shapes.circle(2)), Trees.leaf(Shapes.rect(1, 2)), Either.left("heavy"))
+      , Trees.node(Trees.node(Trees.leaf(Shapes.empty()), Trees.leaf(Shapes.empty()), Either.right(0))
+        , Trees.leaf(Shapes.label("deep", Option.none(), List.list(7L)))
+        , Either.right(-1)));
+  }
+
+  @Test
+  public void roundTripsEveryConstructor() throws IOException {
+    for (Shape shape : shapes())
+      assertEquals(shape, mapper.readValue(mapper.writerFor(Shape.class).writeValueAsBytes(shape), Shape.class));
+  }
+
+  @Test
+  public void roundTripsNestedAndRecursiveValues() throws IOException {
+    for (Tree tree : trees())
+      assertEquals(tree, mapper.readValue(mapper.writerFor(Tree.class).writeValueAsBytes(tree), Tree.class));
+  }
+
+  // Nested far deeper than ExplicitStack.recursionLimit, with (Tree) and without (Chain)
+  // case classes to dispatch on. The values are compared through their encoding, as
+  // derive4j's equals recurses.
+  @Test
+  public void roundTripsDeeplyNestedValues() throws IOException {
+    Tree tree = Trees.leaf(Shapes.empty());
+    Chain chain = Chains.end("end");
+
+    for (int i = 0; i < deepNesting; i++) {
+      tree = Trees.node(tree, Trees.leaf(Shapes.circle(i)), Either.right(i));
+      chain = Chains.link(i, chain);
+    }
+
+    final byte[] treeBytes = mapper.writerFor(Tree.class).writeValueAsBytes(tree);
+    final byte[] chainBytes = mapper.writerFor(Chain.class).writeValueAsBytes(chain);
+
+    assertArrayEquals(treeBytes, mapper.writerFor(Tree.class).writeValueAsBytes(mapper.readValue(treeBytes, Tree.class)));
+    assertArrayEquals(chainBytes, mapper.writerFor(Chain.class).writeValueAsBytes(mapper.readValue(chainBytes, Chain.class)));
+  }
+
+  @Test
+  public void roundTripsChains() throws IOException {
+    for (Chain chain : List.list(Chains.end(""), Chains.link(-1, Chains.link(2, Chains.end("é")))))
+      assertEquals(chain, mapper.readValue(mapper.writerFor(Chain.class).writeValueAsBytes(chain), Chain.class));
+  }
+
+  // Values read by the explicit stack are deduplicated as the recursively read ones
+  @Test
+  public void deduplicatesDeeplyNestedValues() throws IOException {
+    final ObjectMapper deduplicating = Deduplication.enable(mapper.copy(), Deduplication.of(1 << 8, 1 << 8));
+
+    Chain chain = Chains.end("end");
+    for (int i = 0; i < deepNesting; i++)
+      chain = Chains.link(i, chain);
+
+    final Chain end = deduplicating.readValue(mapper.writerFor(Chain.class).writeValueAsBytes(Chains.end("end")), Chain.class);
+    Chain read = deduplicating.readValue(mapper.writerFor(Chain.class).writeValueAsBytes(chain), Chain.class);
+
+    for (Optional<Chain> next = Chains.getNext(read); next.isPresent(); next = Chains.getNext(read))
+      read = next.get();
+
+    assertSame(end, read);
+  }
+
+  private static final int deepNesting = 100_000;
+
+  @Test
+  public void writesTheConfiguredEncoding() throws IOException {
+    try (JsonParser p = factory.createParser(mapper.writerFor(Shape.class).writeValueAsBytes(Shapes.rect(1, 2)))) {
+      assertEquals(positional ? JsonToken.START_ARRAY : JsonToken.START_OBJECT, p.nextToken());
+    }
+  }
+
+  // Named values whose tag comes after their fields, as other writers may order them
+  @Test
+  public void readsTagsArrivingLast() throws IOException {
+    assumeFalse(positional);
+
+    final ObjectMapper json = new ObjectMapper();
+    final ObjectMapper format = new ObjectMapper(factory);
+
+    for (Tree tree : trees()) {
+      final JsonNode node = tagsLast(json.readTree(derivedMapper(new JsonFactory()).writerFor(Tree.class).writeValueAsBytes(tree)));
+
+      assertEquals(tree, mapper.readValue(format.writeValueAsBytes(node), Tree.class));
+    }
+  }
+
+  @Test
+  public void readsTagsArrivingLastFromText() throws IOException {
+    assumeFalse(positional || !JsonFactory.FORMAT_NAME_JSON.equals(factory.getFormatName()));
+
+    assertEquals(Shapes.rect(3, 4), mapper.readValue("{\"width\":3,\"height\":4,\"_tag\":\"rect\"}", Shape.class));
+    assertEquals(Shapes.label("a", Option.some("b"), List.list(1L))
+      , mapper.readValue("{\"points\":[1],\"font\":{\"value\":\"b\",\"_tag\":\"some\"},\"text\":\"a\",\"_tag\":\"label\"}", Shape.class));
+    assertEquals(Trees.leaf(Shapes.circle(1))
+      , mapper.readValue("{\"shape\":{\"radius\":1.0,\"_tag\":\"circle\"},\"_tag\":\"leaf\"}", Tree.class));
+  }
+
+  // Moves the tag of every object after its fields
+  private static JsonNode tagsLast(JsonNode node) {
+    if (node.isObject()) {
+      final ObjectNode object = (ObjectNode) node;
+      final JsonNode tag = object.remove("_tag");
+
+      object.fields().forEachRemaining(field -> field.setValue(tagsLast(field.getValue())));
+
+      if (tag != null)
+        object.set("_tag", tag);
+    } else if (node.isArray())
+      for (int i = 0; i < node.size(); i++)
+        tagsLast(node.get(i));
+
+    return node;
+  }
+}
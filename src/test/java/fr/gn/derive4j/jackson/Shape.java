@@ -0,0 +1,40 @@
+package fr.gn.derive4j.jackson;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import fj.data.List;
+import fj.data.Option;
+import org.derive4j.Data;
+import org.derive4j.Derive;
+import org.derive4j.Instances;
+
+// A sum type with fields of most kinds, a nullary constructor and fj types
+@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))
+public abstract class Shape {
+  public interface Cases<R> {
+    R circle(double radius);
+    R rect(int width, int height);
+    R label(String text, Option<String> font, List<Long> points);
+    R empty();
+  }
+
+  public abstract <R> R match(Cases<R> cases);
+
+  @Override
+  public abstract boolean equals(Object obj);
+
+  @Override
+  public abstract int hashCode();
+
+  @Override
+  public abstract String toString();
+
+  // Looked up by the instances of the ADTs that hold a Shape
+  public static JsonSerializer<Shape> shapeJsonSerializer() {
+    return Shapes.shapeJsonSerializer();
+  }
+
+  public static JsonDeserializer<Shape> shapeJsonDeserializer() {
+    return Shapes.shapeJsonDeserializer();
+  }
+}
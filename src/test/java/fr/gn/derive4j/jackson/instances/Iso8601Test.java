@@ -0,0 +1,251 @@
+package fr.gn.derive4j.jackson.instances;
+
+import org.junit.Test;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// The texts Iso8601 writes and the values it reads are those of the ISO formatters (and of
+// Duration.toString and parse), whether it handles them itself or leaves them to the
+// formatters: values are written as the formatters print them, and texts read as they parse
+// them, or rejected as they are.
+public class Iso8601Test {
+  private static final LocalDate[] dates = {
+    LocalDate.of(2020, 2, 29)
+    , LocalDate.of(1970, 1, 1)
+    , LocalDate.of(0, 1, 1)
+    , LocalDate.of(-1, 12, 31)
+    , LocalDate.of(-10000, 6, 15)
+    , LocalDate.of(9999, 12, 31)
+    , LocalDate.of(10000, 1, 1)
+    , LocalDate.of(123456, 7, 8)
+    , LocalDate.MIN
+    , LocalDate.MAX};
+
+  private static final LocalTime[] times = {
+    LocalTime.MIDNIGHT
+    , LocalTime.of(23, 59)
+    , LocalTime.of(12, 34, 56)
+    , LocalTime.of(1, 2, 3, 1)
+    , LocalTime.of(1, 2, 3, 10)
+    , LocalTime.of(1, 2, 3, 1000)
+    , LocalTime.of(1, 2, 3, 120000)
+    , LocalTime.of(1, 2, 3, 1000000)
+    , LocalTime.of(1, 2, 3, 500000000)
+    , LocalTime.of(1, 2, 3, 123456789)
+    , LocalTime.MAX};
+
+  private static final ZoneOffset[] offsets = {
+    ZoneOffset.UTC
+    , ZoneOffset.ofHours(1)
+    , ZoneOffset.ofHoursMinutes(-9, -30)
+    , ZoneOffset.ofHoursMinutesSeconds(5, 30, 15)
+    , ZoneOffset.ofHoursMinutesSeconds(-1, 0, -1)
+    , ZoneOffset.MAX
+    , ZoneOffset.MIN};
+
+  @Test
+  public void writesLocalDatesAsTheFormatter() {
+    for (LocalDate date : dates)
+      writesAsFormatter(date, Iso8601::localDate, DateTimeFormatter.ISO_DATE::format);
+  }
+
+  @Test
+  public void writesLocalDateTimesAsTheFormatter() {
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        writesAsFormatter(LocalDateTime.of(date, time), Iso8601::localDateTime, DateTimeFormatter.ISO_DATE_TIME::format);
+  }
+
+  @Test
+  public void writesOffsetDateTimesAsTheFormatter() {
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        for (ZoneOffset offset : offsets)
+          writesAsFormatter(OffsetDateTime.of(date, time, offset)
+            , Iso8601::offsetDateTime
+            , DateTimeFormatter.ISO_OFFSET_DATE_TIME::format);
+  }
+
+  @Test
+  public void writesZonedDateTimesAsTheFormatter() {
+    for (ZoneId zone : new ZoneId[]{ZoneOffset.UTC, ZoneOffset.ofHoursMinutesSeconds(0, 0, 30), ZoneId.of("UTC")
+      , ZoneId.of("GMT+02:00"), ZoneId.of("Europe/Paris"), ZoneId.of("America/Sao_Paulo"), ZoneId.of("Pacific/Chatham")})
+      for (LocalDate date : dates)
+        for (LocalTime time : times)
+          writesAsFormatter(ZonedDateTime.of(date, time, zone), Iso8601::zonedDateTime, DateTimeFormatter.ISO_ZONED_DATE_TIME::format);
+
+    // Both offsets of an overlap, when clocks go back
+    final ZonedDateTime overlap = ZonedDateTime.of(LocalDateTime.of(2021, 10, 31, 2, 30), ZoneId.of("Europe/Paris"));
+
+    writesAsFormatter(overlap.withEarlierOffsetAtOverlap(), Iso8601::zonedDateTime, DateTimeFormatter.ISO_ZONED_DATE_TIME::format);
+    writesAsFormatter(overlap.withLaterOffsetAtOverlap(), Iso8601::zonedDateTime, DateTimeFormatter.ISO_ZONED_DATE_TIME::format);
+  }
+
+  @Test
+  public void writesInstantsAsTheFormatter() {
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        if (!date.equals(LocalDate.MIN) && !date.equals(LocalDate.MAX))
+          writesAsFormatter(LocalDateTime.of(date, time).toInstant(ZoneOffset.UTC), Iso8601::instant, DateTimeFormatter.ISO_INSTANT::format);
+
+    for (Instant instant : new Instant[]{Instant.EPOCH, Instant.ofEpochSecond(-1, 1), Instant.MIN, Instant.MAX
+      , Instant.parse("0000-01-01T00:00:00Z"), Instant.parse("9999-12-31T23:59:59.999999999Z")})
+      writesAsFormatter(instant, Iso8601::instant, DateTimeFormatter.ISO_INSTANT::format);
+  }
+
+  @Test
+  public void writesDurationsAsToString() {
+    for (Duration duration : durations())
+      writesAsFormatter(duration, Iso8601::duration, Duration::toString);
+  }
+
+  @Test
+  public void readsLocalDatesAsTheFormatter() {
+    for (LocalDate date : dates)
+      readsAsFormatter(DateTimeFormatter.ISO_DATE.format(date), Iso8601::localDate, LocalDate::from, DateTimeFormatter.ISO_DATE);
+
+    for (String text : new String[]{"2020-02-30", "2021-02-29", "2020-13-01", "2020-00-10", "2020-1-01", "20200101"
+      , "2020-01-01+01:00", "2020-01-01Z", "+2020-01-01", "-0001-01-01", "+10000-01-01", "10000-01-01", "2020-01-01 "
+      , "\uFF12\uFF10\uFF12\uFF10-01-01", ""})
+      readsAsFormatter(text, Iso8601::localDate, LocalDate::from, DateTimeFormatter.ISO_DATE);
+  }
+
+  @Test
+  public void readsLocalDateTimesAsTheFormatter() {
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        readsAsFormatter(DateTimeFormatter.ISO_DATE_TIME.format(LocalDateTime.of(date, time))
+          , Iso8601::localDateTime
+          , LocalDateTime::from
+          , DateTimeFormatter.ISO_DATE_TIME);
+
+    for (String text : new String[]{"2020-01-01T10:15", "2020-01-01T10:15:30", "2020-01-01T10:15:30.", "2020-01-01T24:00"
+      , "2020-01-01T23:60", "2020-01-01T23:59:60", "2020-01-01T10:15:30.1234567891", "2020-01-01T10:15:30,5"
+      , "2020-01-01t10:15", "2020-01-01T10:15Z", "2020-01-01T10:15+01:00[Europe/Paris]", "2020-01-01T1:15"
+      , "2020-01-01T10:15:3", "2020-01-01T"})
+      readsAsFormatter(text, Iso8601::localDateTime, LocalDateTime::from, DateTimeFormatter.ISO_DATE_TIME);
+  }
+
+  @Test
+  public void readsOffsetDateTimesAsTheFormatter() {
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        for (ZoneOffset offset : offsets)
+          readsAsFormatter(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(OffsetDateTime.of(date, time, offset))
+            , Iso8601::offsetDateTime
+            , OffsetDateTime::from
+            , DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+
+    for (String text : new String[]{"2020-01-01T10:15-00:00", "2020-01-01T10:15+00:00", "2020-01-01T10:15:30+18:00"
+      , "2020-01-01T10:15:30-18:00", "2020-01-01T10:15:30+18:01", "2020-01-01T10:15:30+19:00", "2020-01-01T10:15:30+01:60"
+      , "2020-01-01T10:15:30+01:00:30", "2020-01-01T10:15:30-01:00:30", "2020-01-01T10:15:30+01:00:60"
+      , "2020-01-01T10:15:30+0100", "2020-01-01T10:15:30+01", "2020-01-01T10:15:30z", "2020-01-01T10:15:30"
+      , "2020-01-01T10:15:30+01:00[Europe/Paris]", "2020-01-01T10:15:30.5-05:30"})
+      readsAsFormatter(text, Iso8601::offsetDateTime, OffsetDateTime::from, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+  }
+
+  @Test
+  public void readsZonedDateTimesAsTheFormatter() {
+    for (String text : new String[]{"2020-06-01T10:15:30+02:00[Europe/Paris]", "2020-06-01T10:15:30Z", "2020-06-01T10:15:30-00:00"
+      , "2020-06-01T10:15:30+01:00:30", "2020-06-01T10:15:30+05:30:15[Asia/Kolkata]"
+      // The offset of another season, or of no time of the region
+      , "2020-06-01T10:15:30+01:00[Europe/Paris]", "2020-06-01T10:15:30+05:00[Europe/Paris]"
+      // Both offsets of an overlap, and a gap
+      , "2021-10-31T02:30+02:00[Europe/Paris]", "2021-10-31T02:30+01:00[Europe/Paris]", "2021-03-28T02:30+01:00[Europe/Paris]"
+      , "2021-03-28T02:30+02:00[Europe/Paris]"
+      , "2020-06-01T10:15:30Z[UTC]", "2020-06-01T10:15:30Z[Etc/UTC]", "2020-06-01T10:15:30+02:00[GMT+02:00]"
+      , "2020-06-01T10:15:30+02:00[UTC+02:00]", "2020-06-01T10:15:30+02:00[+02:00]", "2020-06-01T10:15:30+02:00[Nowhere/Atall]"
+      , "2020-06-01T10:15:30+02:00[]", "2020-06-01T10:15:30+02:00[Europe/Paris", "2020-06-01T10:15:30+02:00]"
+      , "2020-06-01T10:15:30[Europe/Paris]", "[Europe/Paris]", "]"})
+      readsAsFormatter(text, Iso8601::zonedDateTime, ZonedDateTime::from, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+
+    for (LocalDate date : dates)
+      for (LocalTime time : times)
+        for (ZoneId zone : new ZoneId[]{ZoneOffset.ofHours(-3), ZoneId.of("Europe/Paris"), ZoneId.of("Australia/Lord_Howe")})
+          readsAsFormatter(DateTimeFormatter.ISO_ZONED_DATE_TIME.format(ZonedDateTime.of(date, time, zone))
+            , Iso8601::zonedDateTime
+            , ZonedDateTime::from
+            , DateTimeFormatter.ISO_ZONED_DATE_TIME);
+  }
+
+  @Test
+  public void readsInstantsAsTheFormatter() {
+    for (Instant instant : new Instant[]{Instant.EPOCH, Instant.ofEpochSecond(-1, 1), Instant.MIN, Instant.MAX
+      , Instant.parse("0000-01-01T00:00:00Z"), Instant.parse("9999-12-31T23:59:59.999999999Z")})
+      readsAsFormatter(DateTimeFormatter.ISO_INSTANT.format(instant), Iso8601::instant, Instant::from, DateTimeFormatter.ISO_INSTANT);
+
+    for (String text : new String[]{"2020-01-01T10:15:30Z", "2020-01-01T10:15:30.1Z", "2020-01-01T10:15:30.123456789Z"
+      , "2020-01-01T10:15Z", "2020-01-01T23:59:60Z", "2020-01-01T10:15:30+01:00", "2020-01-01T10:15:30", "2020-01-01T10:15:30z"
+      , "-0001-01-01T00:00:00Z", "+10000-01-01T00:00:00Z", "Z"})
+      readsAsFormatter(text, Iso8601::instant, Instant::from, DateTimeFormatter.ISO_INSTANT);
+  }
+
+  @Test
+  public void readsDurationsAsParse() {
+    for (Duration duration : durations())
+      readsAsParse(duration.toString());
+
+    for (String text : new String[]{"PT0S", "PT-0S", "PT1H-30M", "PT-1H30M", "PT0.5S", "PT-0.5S", "PT-1.5S", "PT1.5S"
+      , "PT-0.000000001S", "PT0.000000001S", "PT1.0000000001S", "PT1.S", "PT.5S", "PT1.5H", "PT1S1M", "PT1H1H"
+      , "PT+1S", "-PT1S", "pt1s", "P1DT1H", "P1D", "PT", "PT999999999999999H", "PT9999999999999999H", "PT1", "PT1X"})
+      readsAsParse(text);
+  }
+
+  private static Duration[] durations() {
+    return new Duration[]{Duration.ZERO
+      , Duration.ofSeconds(1)
+      , Duration.ofSeconds(-1)
+      , Duration.ofMillis(1500)
+      , Duration.ofMillis(-1500)
+      , Duration.ofNanos(-1)
+      , Duration.ofNanos(1)
+      , Duration.ofSeconds(-59, 999999999)
+      , Duration.ofMinutes(-90)
+      , Duration.ofHours(-25).plusMillis(500)
+      , Duration.ofSeconds(3661, 10)
+      , Duration.ofSeconds(Long.MAX_VALUE, 999999999)
+      , Duration.ofSeconds(Long.MIN_VALUE)
+      , Duration.ofSeconds(Long.MIN_VALUE, 1)};
+  }
+
+  private static <T> void writesAsFormatter(T value, Iso8601.Writer<T> writer, Function<T, String> format) {
+    assertEquals(value.toString(), format.apply(value), Iso8601.text(value, writer, format));
+  }
+
+  private static <T> void readsAsFormatter(String text
+    , Iso8601.Reader<T> reader
+    , java.time.temporal.TemporalQuery<T> query
+    , DateTimeFormatter formatter) {
+    readsAs(text, reader, t -> formatter.parse(t, query));
+  }
+
+  private static void readsAsParse(String text) {
+    readsAs(text, Iso8601::duration, Duration::parse);
+  }
+
+  private static <T> void readsAs(String text, Iso8601.Reader<T> reader, Function<String, T> parse) {
+    final T expected;
+
+    try {
+      expected = parse.apply(text);
+    } catch (DateTimeParseException e) {
+      rejects(text, reader, parse);
+      return;
+    }
+
+    assertEquals(text, expected, Iso8601.parse(text, reader, parse));
+  }
+
+  private static <T> void rejects(String text, Iso8601.Reader<T> reader, Function<String, T> parse) {
+    try {
+      fail(text + " read as " + Iso8601.parse(text, reader, parse));
+    } catch (DateTimeParseException expected) {
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package fr.gn.derive4j.jackson.instances;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.gn.derive4j.jackson.Parsers;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JavaTypesTest {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void readsShortsAndBytesInRange() throws IOException {
+    assertEquals(Short.valueOf(Short.MIN_VALUE), read(JavaTypes.shortDeserializer, "-32768"));
+    assertEquals(Short.valueOf(Short.MAX_VALUE), read(JavaTypes.shortDeserializer, "32767"));
+    assertEquals(Byte.valueOf(Byte.MIN_VALUE), read(JavaTypes.byteDeserializer, "-128"));
+    assertEquals(Byte.valueOf(Byte.MAX_VALUE), read(JavaTypes.byteDeserializer, "127"));
+
+    assertEquals((short) -1, JavaTypes.shortReader.read(parser("-1")));
+    assertEquals((byte) 1, JavaTypes.byteReader.read(parser("1")));
+
+    assertEquals(Short.valueOf((short) 7), JavaTypes.shortNodeDecoder.decode(mapper.readTree("7")));
+    assertEquals(Byte.valueOf((byte) -7), JavaTypes.byteNodeDecoder.decode(mapper.readTree("-7")));
+  }
+
+  // Rather than wrapped around, or converted
+  @Test
+  public void rejectsOtherShortsAndBytes() throws IOException {
+    for (String json : new String[]{"32768", "-32769", "4294967296", "\"1\"", "1.0", "true"}) {
+      rejects(JavaTypes.shortDeserializer, json);
+      rejects(p -> JavaTypes.shortReader.read(p), json);
+      rejects(p -> JavaTypes.shortNodeDecoder.decode(mapper.readTree(p)), json);
+    }
+
+    for (String json : new String[]{"128", "255", "-129", "\"1\"", "1.5", "false"}) {
+      rejects(JavaTypes.byteDeserializer, json);
+      rejects(p -> JavaTypes.byteReader.read(p), json);
+      rejects(p -> JavaTypes.byteNodeDecoder.decode(mapper.readTree(p)), json);
+    }
+  }
+
+  // From the table of ASCII chars, or the per-thread buffer.
+  @Test
+  public void writesCharsAsStrings() throws IOException {
+    for (char c : new char[]{'a', 'Z', '0', ' ', '"', '\\', '\n', '\u0000', '\u007f', '\u00e9', '\u20ac'}) {
+      final String expected = mapper.writeValueAsString(String.valueOf(c));
+
+      assertEquals(expected, write(gen -> JavaTypes.charWriter.write(c, gen)));
+      assertEquals(expected, write(gen -> JavaTypes.characterSerializer.serialize(c, gen, mapper.getSerializerProviderInstance())));
+      assertEquals(c, JavaTypes.charReader.read(parser(expected)));
+    }
+  }
+
+  private static <T> T read(JsonDeserializer<T> deser, String json) throws IOException {
+    final JsonParser p = parser(json);
+
+    return deser.deserialize(p, Parsers.deserializationContext(mapper, p));
+  }
+
+  private static void rejects(JsonDeserializer<?> deser, String json) {
+    rejects(p -> deser.deserialize(p, Parsers.deserializationContext(mapper, p)), json);
+  }
+
+  private static void rejects(Read read, String json) {
+    try {
+      read.read(parser(json));
+      fail("Accepted " + json);
+    } catch (IOException expected) {
+    }
+  }
+
+  private static JsonParser parser(String json) throws IOException {
+    final JsonParser p = mapper.getFactory().createParser(json);
+    p.nextToken();
+    return p;
+  }
+
+  private static String write(Write write) throws IOException {
+    final StringWriter out = new StringWriter();
+
+    try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+      write.write(gen);
+    }
+
+    return out.toString();
+  }
+
+  private interface Read {
+    Object read(JsonParser p) throws IOException;
+  }
+
+  private interface Write {
+    void write(JsonGenerator gen) throws IOException;
+  }
+}
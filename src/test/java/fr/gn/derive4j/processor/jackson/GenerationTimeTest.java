@@ -0,0 +1,136 @@
+package fr.gn.derive4j.processor.jackson;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Derives the instances of synthetic ADTs of many constructors, through derive4j and the
+// compiler of the running JDK, reading back the time JacksonDerivations reports in its notes:
+// it must grow about linearly with the number of constructors.
+public class GenerationTimeTest {
+  private static final Pattern timingNote =
+    Pattern.compile("(\\w+) of synthetic\\.Large(\\d+) \\((\\d+) constructors, (\\d+) fields\\): ([0-9.]+) ms");
+
+  private static final int constructors = 64;
+
+  // Read as JacksonDerivations is loaded, by the first compilation.
+  @BeforeClass
+  public static void enableTiming() {
+    System.setProperty("fr.gn.derive4j.jackson.timing", "true");
+  }
+
+  @Test
+  public void reportsTheTimeOfEachInstance() throws IOException {
+    final DiagnosticCollector<JavaFileObject> diagnostics = derive(constructors);
+    int notes = 0;
+
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      final Matcher matcher = timingNote.matcher(diagnostic.getMessage(null));
+
+      if (diagnostic.getKind() == Diagnostic.Kind.NOTE && matcher.matches()) {
+        assertEquals(String.valueOf(constructors), matcher.group(3));
+        assertEquals(String.valueOf(2 * constructors), matcher.group(4));
+        notes++;
+      }
+    }
+
+    assertEquals("one note per derived instance", 2, notes);
+  }
+
+  @Test
+  public void scalesLinearlyWithTheNumberOfConstructors() throws IOException {
+    // Warms up the compiler and the processors before measuring.
+    for (int i = 0; i < 3; i++)
+      derive(constructors);
+
+    final double small = minDerivationMillis(constructors);
+    final double large = minDerivationMillis(4 * constructors);
+
+    // Quadratic generation would take 16 times as long.
+    assertTrue(String.format("%.1f ms for %d constructors, %.1f ms for %d", small, constructors, large, 4 * constructors)
+      , large < 8 * small);
+  }
+
+  private static double minDerivationMillis(int constructors) throws IOException {
+    double min = Double.MAX_VALUE;
+
+    for (int i = 0; i < 3; i++) {
+      double millis = 0;
+
+      for (Diagnostic<? extends JavaFileObject> diagnostic : derive(constructors).getDiagnostics()) {
+        final Matcher matcher = timingNote.matcher(diagnostic.getMessage(null));
+
+        if (matcher.matches())
+          millis += Double.parseDouble(matcher.group(5));
+      }
+
+      min = Math.min(min, millis);
+    }
+
+    return min;
+  }
+
+  // Processing only: the generated sources are not compiled.
+  private static DiagnosticCollector<JavaFileObject> derive(int constructors) throws IOException {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final Path output = Files.createTempDirectory("generation-time");
+    final String classPath = System.getProperty("java.class.path");
+
+    final boolean success = compiler
+      .getTask(null, null, diagnostics
+        , Arrays.asList("-proc:only", "-classpath", classPath, "-processorpath", classPath
+          , "-d", output.toString(), "-s", output.toString())
+        , null
+        , Collections.singletonList(largeAdt(constructors)))
+      .call();
+
+    assertTrue(diagnostics.getDiagnostics().toString(), success);
+    return diagnostics;
+  }
+
+  // An ADT of the given number of constructors, of two fields each.
+  private static JavaFileObject largeAdt(int constructors) {
+    final String name = "Large" + constructors;
+    final StringBuilder source = new StringBuilder()
+      .append("package synthetic;\n")
+      .append("import com.fasterxml.jackson.databind.JsonDeserializer;\n")
+      .append("import com.fasterxml.jackson.databind.JsonSerializer;\n")
+      .append("import org.derive4j.*;\n")
+      .append("@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))\n")
+      .append("public abstract class ").append(name).append(" {\n")
+      .append("  public interface Cases<R> {\n");
+
+    for (int i = 0; i < constructors; i++)
+      source.append("    R case").append(i).append("(int count").append(i).append(", String label").append(i).append(");\n");
+
+    source
+      .append("  }\n")
+      .append("  public abstract <R> R match(Cases<R> cases);\n")
+      .append("}\n");
+
+    return new SimpleJavaFileObject(URI.create("string:///synthetic/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}
@@ -0,0 +1,85 @@
+package fr.gn.derive4j.processor.jackson;
+
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Compiles ADTs of two packages through derive4j and the processors of the running JDK's
+// compiler: their modules must be compiled along, without warnings (eg. for sources created
+// in the last round), and listed as services.
+public class JacksonModuleProcessorTest {
+  @Test
+  public void compilesAModulePerPackageWithoutWarnings() throws IOException {
+    final Path output = Files.createTempDirectory("module-processor");
+    final DiagnosticCollector<JavaFileObject> diagnostics = compile(output
+      , adt("first", "Shape")
+      , adt("first", "Color")
+      , adt("second", "Event"));
+
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+      assertTrue(diagnostic.toString()
+        , diagnostic.getKind() != Diagnostic.Kind.WARNING && diagnostic.getKind() != Diagnostic.Kind.MANDATORY_WARNING);
+
+    assertTrue(Files.exists(output.resolve("first/DerivedJacksonModule.class")));
+    assertTrue(Files.exists(output.resolve("second/DerivedJacksonModule.class")));
+
+    final List<String> services = Files.readAllLines(output
+      .resolve("META-INF/services/com.fasterxml.jackson.databind.Module"), StandardCharsets.UTF_8);
+
+    assertEquals(Arrays.asList("first.DerivedJacksonModule", "second.DerivedJacksonModule"), services);
+  }
+
+  private static DiagnosticCollector<JavaFileObject> compile(Path output, JavaFileObject... sources) {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final String classPath = System.getProperty("java.class.path");
+
+    final boolean success = compiler
+      .getTask(null, null, diagnostics
+        , Arrays.asList("-classpath", classPath, "-processorpath", classPath
+          , "-d", output.toString(), "-s", output.toString())
+        , null
+        , Arrays.asList(sources))
+      .call();
+
+    assertTrue(diagnostics.getDiagnostics().toString(), success);
+    return diagnostics;
+  }
+
+  private static JavaFileObject adt(String packageName, String name) {
+    final String source = "package " + packageName + ";\n"
+      + "import com.fasterxml.jackson.databind.JsonDeserializer;\n"
+      + "import com.fasterxml.jackson.databind.JsonSerializer;\n"
+      + "import org.derive4j.*;\n"
+      + "@Data(@Derive(@Instances({JsonSerializer.class, JsonDeserializer.class})))\n"
+      + "public abstract class " + name + " {\n"
+      + "  public interface Cases<R> {\n"
+      + "    R first(int count);\n"
+      + "    R second(String label);\n"
+      + "  }\n"
+      + "  public abstract <R> R match(Cases<R> cases);\n"
+      + "}\n";
+
+    return new SimpleJavaFileObject(URI.create("string:///" + packageName + "/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+  }
+}